@@ -2,21 +2,91 @@
 create database prod;
 use prod;
 
+/* one schema hosts many lots, spot numbers start over in each lot */
 create table parking(
-PARKING_NUMBER int PRIMARY KEY,
+LOT_ID int NOT NULL DEFAULT 1,
+PARKING_NUMBER int NOT NULL,
 AVAILABLE bool NOT NULL,
-TYPE varchar(10) NOT NULL
+TYPE varchar(10) NOT NULL,
+ZONE varchar(10) NOT NULL DEFAULT 'A',
+LEVEL int NOT NULL DEFAULT 0,
+PRIMARY KEY (LOT_ID, PARKING_NUMBER)
 );
 
+/* ticket ids are issued by TicketIdGenerator, never by the database */
+/* plates are stored as PlateCodec.normalize gives them, NormalizePlates.sql migrates older rows */
 create table ticket(
- ID int PRIMARY KEY AUTO_INCREMENT,
+ ID bigint PRIMARY KEY,
+ LOT_ID int NOT NULL DEFAULT 1,
  PARKING_NUMBER int NOT NULL,
  VEHICLE_REG_NUMBER varchar(10) NOT NULL,
  PRICE double,
  IN_TIME DATETIME NOT NULL,
  OUT_TIME DATETIME,
- FOREIGN KEY (PARKING_NUMBER)
- REFERENCES parking(PARKING_NUMBER));
+ DISCOUNT bool NOT NULL DEFAULT false,
+ FOREIGN KEY (LOT_ID, PARKING_NUMBER)
+ REFERENCES parking(LOT_ID, PARKING_NUMBER));
+
+create index IDX_TICKET_IN_TIME on ticket(LOT_ID, IN_TIME);
+create index IDX_TICKET_OUT_TIME on ticket(LOT_ID, OUT_TIME);
+/* history of a vehicle, newest first, read by (IN_TIME, ID) keyset pages */
+create index IDX_TICKET_VEHICLE_IN_TIME on ticket(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME, ID);
+/* open ticket of a spot, checked by the drift reconciler */
+create index IDX_TICKET_PARKING_OUT_TIME on ticket(LOT_ID, PARKING_NUMBER, OUT_TIME);
+
+create table reservation(
+ ID bigint PRIMARY KEY AUTO_INCREMENT,
+ LOT_ID int NOT NULL DEFAULT 1,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ START_TIME DATETIME NOT NULL,
+ END_TIME DATETIME NOT NULL,
+ STATUS varchar(10) NOT NULL DEFAULT 'BOOKED');
+
+create index IDX_RESERVATION_END_TIME on reservation(LOT_ID, END_TIME);
+/* reservations of a type overlapping a booking, counted before it is inserted */
+create index IDX_RESERVATION_TYPE_START_TIME on reservation(LOT_ID, TYPE, START_TIME);
+
+/* one row per lot and type, locked by each booking so that every instance checks and inserts in turn */
+create table reservation_lock(
+ LOT_ID int NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ PRIMARY KEY (LOT_ID, TYPE));
+
+/* progress of each settlement job, written in the same transaction as the prices of a chunk */
+create table settlement_checkpoint(
+ LOT_ID int NOT NULL DEFAULT 1,
+ JOB_ID varchar(40) NOT NULL,
+ AS_OF DATETIME NOT NULL,
+ LAST_TICKET_ID bigint NOT NULL,
+ SETTLED bigint NOT NULL,
+ FINISHED bool NOT NULL DEFAULT false,
+ PRIMARY KEY (LOT_ID, JOB_ID));
+
+/* every change to parking and ticket, polled by each instance to keep its caches in line */
+create table change_log(
+ SEQ bigint PRIMARY KEY AUTO_INCREMENT,
+ LOT_ID int NOT NULL,
+ TABLE_NAME varchar(10) NOT NULL,
+ ROW_ID bigint NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ AVAILABLE bool,
+ VEHICLE_REG_NUMBER varchar(10),
+ OUT_TIME DATETIME,
+ CHANGED_AT DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3));
+
+create index IDX_CHANGE_LOG_CHANGED_AT on change_log(CHANGED_AT);
+create index IDX_CHANGE_LOG_PARKING_NUMBER on change_log(LOT_ID, PARKING_NUMBER);
+create index IDX_CHANGE_LOG_LOT_SEQ on change_log(LOT_ID, SEQ);
+
+create trigger TRG_PARKING_UPDATE after update on parking for each row
+ insert into change_log(LOT_ID, TABLE_NAME, ROW_ID, PARKING_NUMBER, AVAILABLE) values(new.LOT_ID, 'parking', new.PARKING_NUMBER, new.PARKING_NUMBER, new.AVAILABLE);
+
+create trigger TRG_TICKET_INSERT after insert on ticket for each row
+ insert into change_log(LOT_ID, TABLE_NAME, ROW_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, OUT_TIME) values(new.LOT_ID, 'ticket', new.ID, new.PARKING_NUMBER, new.VEHICLE_REG_NUMBER, new.OUT_TIME);
+
+create trigger TRG_TICKET_UPDATE after update on ticket for each row
+ insert into change_log(LOT_ID, TABLE_NAME, ROW_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, OUT_TIME) values(new.LOT_ID, 'ticket', new.ID, new.PARKING_NUMBER, new.VEHICLE_REG_NUMBER, new.OUT_TIME);
 
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
@@ -29,21 +99,91 @@ commit;
 create database test;
 use test;
 
+/* one schema hosts many lots, spot numbers start over in each lot */
 create table parking(
-PARKING_NUMBER int PRIMARY KEY,
+LOT_ID int NOT NULL DEFAULT 1,
+PARKING_NUMBER int NOT NULL,
 AVAILABLE bool NOT NULL,
-TYPE varchar(10) NOT NULL
+TYPE varchar(10) NOT NULL,
+ZONE varchar(10) NOT NULL DEFAULT 'A',
+LEVEL int NOT NULL DEFAULT 0,
+PRIMARY KEY (LOT_ID, PARKING_NUMBER)
 );
 
+/* ticket ids are issued by TicketIdGenerator, never by the database */
+/* plates are stored as PlateCodec.normalize gives them, NormalizePlates.sql migrates older rows */
 create table ticket(
- ID int PRIMARY KEY AUTO_INCREMENT,
+ ID bigint PRIMARY KEY,
+ LOT_ID int NOT NULL DEFAULT 1,
  PARKING_NUMBER int NOT NULL,
  VEHICLE_REG_NUMBER varchar(10) NOT NULL,
  PRICE double,
  IN_TIME DATETIME NOT NULL,
  OUT_TIME DATETIME,
- FOREIGN KEY (PARKING_NUMBER)
- REFERENCES parking(PARKING_NUMBER));
+ DISCOUNT bool NOT NULL DEFAULT false,
+ FOREIGN KEY (LOT_ID, PARKING_NUMBER)
+ REFERENCES parking(LOT_ID, PARKING_NUMBER));
+
+create index IDX_TICKET_IN_TIME on ticket(LOT_ID, IN_TIME);
+create index IDX_TICKET_OUT_TIME on ticket(LOT_ID, OUT_TIME);
+/* history of a vehicle, newest first, read by (IN_TIME, ID) keyset pages */
+create index IDX_TICKET_VEHICLE_IN_TIME on ticket(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME, ID);
+/* open ticket of a spot, checked by the drift reconciler */
+create index IDX_TICKET_PARKING_OUT_TIME on ticket(LOT_ID, PARKING_NUMBER, OUT_TIME);
+
+create table reservation(
+ ID bigint PRIMARY KEY AUTO_INCREMENT,
+ LOT_ID int NOT NULL DEFAULT 1,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ START_TIME DATETIME NOT NULL,
+ END_TIME DATETIME NOT NULL,
+ STATUS varchar(10) NOT NULL DEFAULT 'BOOKED');
+
+create index IDX_RESERVATION_END_TIME on reservation(LOT_ID, END_TIME);
+/* reservations of a type overlapping a booking, counted before it is inserted */
+create index IDX_RESERVATION_TYPE_START_TIME on reservation(LOT_ID, TYPE, START_TIME);
+
+/* one row per lot and type, locked by each booking so that every instance checks and inserts in turn */
+create table reservation_lock(
+ LOT_ID int NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ PRIMARY KEY (LOT_ID, TYPE));
+
+/* progress of each settlement job, written in the same transaction as the prices of a chunk */
+create table settlement_checkpoint(
+ LOT_ID int NOT NULL DEFAULT 1,
+ JOB_ID varchar(40) NOT NULL,
+ AS_OF DATETIME NOT NULL,
+ LAST_TICKET_ID bigint NOT NULL,
+ SETTLED bigint NOT NULL,
+ FINISHED bool NOT NULL DEFAULT false,
+ PRIMARY KEY (LOT_ID, JOB_ID));
+
+/* every change to parking and ticket, polled by each instance to keep its caches in line */
+create table change_log(
+ SEQ bigint PRIMARY KEY AUTO_INCREMENT,
+ LOT_ID int NOT NULL,
+ TABLE_NAME varchar(10) NOT NULL,
+ ROW_ID bigint NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ AVAILABLE bool,
+ VEHICLE_REG_NUMBER varchar(10),
+ OUT_TIME DATETIME,
+ CHANGED_AT DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3));
+
+create index IDX_CHANGE_LOG_CHANGED_AT on change_log(CHANGED_AT);
+create index IDX_CHANGE_LOG_PARKING_NUMBER on change_log(LOT_ID, PARKING_NUMBER);
+create index IDX_CHANGE_LOG_LOT_SEQ on change_log(LOT_ID, SEQ);
+
+create trigger TRG_PARKING_UPDATE after update on parking for each row
+ insert into change_log(LOT_ID, TABLE_NAME, ROW_ID, PARKING_NUMBER, AVAILABLE) values(new.LOT_ID, 'parking', new.PARKING_NUMBER, new.PARKING_NUMBER, new.AVAILABLE);
+
+create trigger TRG_TICKET_INSERT after insert on ticket for each row
+ insert into change_log(LOT_ID, TABLE_NAME, ROW_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, OUT_TIME) values(new.LOT_ID, 'ticket', new.ID, new.PARKING_NUMBER, new.VEHICLE_REG_NUMBER, new.OUT_TIME);
+
+create trigger TRG_TICKET_UPDATE after update on ticket for each row
+ insert into change_log(LOT_ID, TABLE_NAME, ROW_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, OUT_TIME) values(new.LOT_ID, 'ticket', new.ID, new.PARKING_NUMBER, new.VEHICLE_REG_NUMBER, new.OUT_TIME);
 
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
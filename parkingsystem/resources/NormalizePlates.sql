@@ -0,0 +1,24 @@
+/* Rewrites the plates saved before they were normalized at the gate (PlateCodec.normalize): without the
+   spaces and dashes typed between groups, in upper case. Until it runs, a vehicle that entered as "AB-123-CD"
+   is not found at the exit and its earlier visits do not count for the recurring user discount.
+   Only rows which change are updated, each fires the ticket update trigger once. */
+
+use prod;
+
+update ticket set VEHICLE_REG_NUMBER = upper(replace(replace(replace(replace(replace(VEHICLE_REG_NUMBER, '-', ''), ' ', ''), '\t', ''), '\r', ''), '\n', ''))
+ where binary VEHICLE_REG_NUMBER <> binary upper(replace(replace(replace(replace(replace(VEHICLE_REG_NUMBER, '-', ''), ' ', ''), '\t', ''), '\r', ''), '\n', ''));
+
+update reservation set VEHICLE_REG_NUMBER = upper(replace(replace(replace(replace(replace(VEHICLE_REG_NUMBER, '-', ''), ' ', ''), '\t', ''), '\r', ''), '\n', ''))
+ where binary VEHICLE_REG_NUMBER <> binary upper(replace(replace(replace(replace(replace(VEHICLE_REG_NUMBER, '-', ''), ' ', ''), '\t', ''), '\r', ''), '\n', ''));
+
+commit;
+
+use test;
+
+update ticket set VEHICLE_REG_NUMBER = upper(replace(replace(replace(replace(replace(VEHICLE_REG_NUMBER, '-', ''), ' ', ''), '\t', ''), '\r', ''), '\n', ''))
+ where binary VEHICLE_REG_NUMBER <> binary upper(replace(replace(replace(replace(replace(VEHICLE_REG_NUMBER, '-', ''), ' ', ''), '\t', ''), '\r', ''), '\n', ''));
+
+update reservation set VEHICLE_REG_NUMBER = upper(replace(replace(replace(replace(replace(VEHICLE_REG_NUMBER, '-', ''), ' ', ''), '\t', ''), '\r', ''), '\n', ''))
+ where binary VEHICLE_REG_NUMBER <> binary upper(replace(replace(replace(replace(replace(VEHICLE_REG_NUMBER, '-', ''), ' ', ''), '\t', ''), '\r', ''), '\n', ''));
+
+commit;
@@ -1,13 +1,39 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.monitoring.IncidentRecording;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateWarmup;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.simulation.SimulationEngine;
+import com.parkit.parkingsystem.simulation.SyntheticArrivals;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.concurrent.TimeUnit;
+
 public class App {
     private static final Logger logger = LogManager.getLogger("App");
     public static void main(String args[]){
         logger.info("Initializing Parking System");
+        if(Boolean.getBoolean("parkit.cds.training")){
+            trainingRun();
+            return;
+        }
+        if(Boolean.getBoolean("parkit.jfr.incident")){
+            IncidentRecording.start();
+        }
         InteractiveShell.loadInterface();
     }
+
+    //run by the fast-start build profile to record the classes of a startup and of a few entries and exits
+    //in the class data sharing archive, without a console and with or without a database
+    private static void trainingRun(){
+        new GateWarmup(new ParkingSpotDAO(), new TicketDAO(), new FareCalculatorService()).run();
+        long start = System.currentTimeMillis();
+        new SimulationEngine(10, 5, new FareCalculatorService()).run(new SyntheticArrivals(start, start + TimeUnit.HOURS.toMillis(4),
+                SyntheticArrivals.flatRate(10), 60, 0.2, 10, 0.3, 42));
+        logger.info("Training run done");
+    }
 }
@@ -1,19 +1,135 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.monitoring.ConnectionEvent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    public static final String PRIMARY_URL = "jdbc:mysql://localhost:3306/test?serverTimezone=UTC&enabledTLSProtocols=TLSv1.2&useCursorFetch=true";
+    public static final long DEFAULT_READ_YOUR_WRITES_WINDOW_MILLIS = 5000;
+    //plates remembered for read your writes, the oldest writes are forgotten first
+    public static final int MAX_RECENT_WRITES = 10000;
+    public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+    //socket reads may outlive the query timeout a little, the server side cancel should fire first
+    private static final long SOCKET_TIMEOUT_GRACE_MILLIS = 1000;
+
+    //time of the last write of each plate done by this process, in write order, shared by every DataBaseConfig
+    private static final Map<String, Long> lastWriteMillis = new LinkedHashMap<>();
+
+    //reads of a plate through getReadConnection stay on the primary for this long after a write of that plate
+    public long readYourWritesWindowMillis = Long.getLong("parkit.db.readYourWritesMillis", DEFAULT_READ_YOUR_WRITES_WINDOW_MILLIS);
+
     public Connection getConnection() throws ClassNotFoundException, SQLException {
         logger.info("Create DB connection");
+        return connect(getPrimaryUrl(), DEFAULT_CONNECT_TIMEOUT_MILLIS, 0);
+    }
+
+    public Connection getConnection(Deadline deadline) throws ClassNotFoundException, SQLException {
+        logger.info("Create DB connection");
+        return openConnection(getPrimaryUrl(), deadline);
+    }
+
+    //history only reads which can tolerate replication lag: reports, exports and ticket history
+    public Connection getReplicaConnection() throws ClassNotFoundException, SQLException {
+        logger.info("Create DB replica connection");
+        return connect(getReplicaUrl(), DEFAULT_CONNECT_TIMEOUT_MILLIS, 0);
+    }
+
+    public Connection getReplicaConnection(Deadline deadline) throws ClassNotFoundException, SQLException {
+        logger.info("Create DB replica connection");
+        return openConnection(getReplicaUrl(), deadline);
+    }
+
+    //reads of a plate which should see the writes of this process: the replica, unless that plate was written
+    //within the window
+    public Connection getReadConnection(String vehicleRegNumber) throws ClassNotFoundException, SQLException {
+        if(isRecentlyWritten(vehicleRegNumber)){
+            return getConnection();
+        }
+        return getReplicaConnection();
+    }
+
+    public Connection getReadConnection(String vehicleRegNumber, Deadline deadline) throws ClassNotFoundException, SQLException {
+        if(isRecentlyWritten(vehicleRegNumber)){
+            return getConnection(deadline);
+        }
+        return getReplicaConnection(deadline);
+    }
+
+    //bounds the statement by what is left of the deadline
+    public void applyTimeout(Statement statement, Deadline deadline) throws SQLException {
+        deadline.check();
+        statement.setQueryTimeout(deadline.remainingSeconds());
+    }
+
+    public void recordWrite(String vehicleRegNumber){
+        long now = System.currentTimeMillis();
+        synchronized (lastWriteMillis){
+            //moved to the end so the eldest entry is always the oldest write
+            lastWriteMillis.remove(vehicleRegNumber);
+            lastWriteMillis.put(vehicleRegNumber, now);
+            if(lastWriteMillis.size() > MAX_RECENT_WRITES){
+                lastWriteMillis.remove(lastWriteMillis.keySet().iterator().next());
+            }
+        }
+    }
+
+    private boolean isRecentlyWritten(String vehicleRegNumber){
+        Long writeMillis;
+        synchronized (lastWriteMillis){
+            writeMillis = lastWriteMillis.get(vehicleRegNumber);
+        }
+        return writeMillis != null && System.currentTimeMillis() - writeMillis < readYourWritesWindowMillis;
+    }
+
+    protected String getPrimaryUrl(){
+        return System.getProperty("parkit.db.url", PRIMARY_URL);
+    }
+
+    //without a configured replica every read goes to the primary
+    protected String getReplicaUrl(){
+        return System.getProperty("parkit.db.replica.url", getPrimaryUrl());
+    }
+
+    private Connection openConnection(String url, Deadline deadline) throws ClassNotFoundException, SQLException {
+        deadline.check();
+        long remaining = Math.max(1, deadline.remainingMillis());
+        return connect(url, remaining, remaining + SOCKET_TIMEOUT_GRACE_MILLIS);
+    }
+
+    private Connection connect(String url, long connectTimeoutMillis, long socketTimeoutMillis) throws ClassNotFoundException, SQLException {
+        ConnectionEvent event = new ConnectionEvent();
+        event.begin();
+        try {
+            Connection con = openConnection(url, connectTimeoutMillis, socketTimeoutMillis);
+            event.success = true;
+            return con;
+        } finally {
+            event.end();
+            if(event.shouldCommit()){
+                event.instance = url.equals(getPrimaryUrl()) ? "primary" : "replica";
+                event.commit();
+            }
+        }
+    }
+
+    //timeouts in milliseconds, 0 meaning no timeout
+    protected Connection openConnection(String url, long connectTimeoutMillis, long socketTimeoutMillis) throws ClassNotFoundException, SQLException {
         Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/test?serverTimezone=UTC&enabledTLSProtocols=TLSv1.2","root","codio");
+        Properties properties = new Properties();
+        properties.setProperty("user", "root");
+        properties.setProperty("password", "codio");
+        properties.setProperty("connectTimeout", String.valueOf(connectTimeoutMillis));
+        properties.setProperty("socketTimeout", String.valueOf(socketTimeoutMillis));
+        return DriverManager.getConnection(url, properties);
     }
 
     public void closeConnection(Connection con){
@@ -27,6 +143,17 @@ public class DataBaseConfig {
         }
     }
 
+    public void rollback(Connection con){
+        if(con!=null){
+            try {
+                con.rollback();
+                logger.info("Rolling back DB transaction");
+            } catch (SQLException e) {
+                logger.error("Error while rolling back transaction",e);
+            }
+        }
+    }
+
     public void closePreparedStatement(PreparedStatement ps) {
         if(ps!=null){
             try {
@@ -0,0 +1,51 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//Bounded pool running the asynchronous DAO calls, a full queue fails the call instead of growing without limit
+public class DataBaseExecutor {
+
+    private static final Logger logger = LogManager.getLogger("DataBaseExecutor");
+
+    public static final int POOL_SIZE = 8;
+    public static final int QUEUE_CAPACITY = 256;
+
+    private static class Holder {
+        private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "db-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static Executor getExecutor() {
+        return Holder.EXECUTOR;
+    }
+
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        }catch (RejectedExecutionException ex){
+            logger.error("Database executor is saturated",ex);
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.OperationType;
+import com.parkit.parkingsystem.util.LatencyTracker;
+
+import java.sql.SQLTimeoutException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+//Time budget of one DAO operation, covering the wait for a bulkhead permit, the connection and the statement.
+//Each OperationType has its own bulkhead so entry, exit and reporting traffic cannot starve each other.
+//Budgets and bulkhead sizes can be set with -Dparkit.deadline.<type>.millis and -Dparkit.bulkhead.<type>.size
+public class Deadline implements AutoCloseable {
+
+    private static final Map<OperationType, Long> budgetMillis = new EnumMap<>(OperationType.class);
+    private static final Map<OperationType, Semaphore> bulkheads = new EnumMap<>(OperationType.class);
+
+    static {
+        configure(OperationType.ENTRY, 2000, 16);
+        configure(OperationType.EXIT, 2000, 16);
+        configure(OperationType.REPORT, 60 * 60 * 1000, 2);
+        configure(OperationType.SYNC, 2000, 2);
+    }
+
+    private final OperationType operationType;
+    private final long budget;
+    private final long startNanos;
+    private final long deadlineNanos;
+    private boolean permitHeld;
+
+    private Deadline(OperationType operationType, long budget) {
+        this.operationType = operationType;
+        this.budget = budget;
+        this.startNanos = System.nanoTime();
+        this.deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(budget);
+    }
+
+    private static void configure(OperationType operationType, long defaultBudgetMillis, int defaultBulkheadSize) {
+        String name = operationType.name().toLowerCase();
+        budgetMillis.put(operationType, Long.getLong("parkit.deadline." + name + ".millis", defaultBudgetMillis));
+        bulkheads.put(operationType, new Semaphore(Integer.getInteger("parkit.bulkhead." + name + ".size", defaultBulkheadSize)));
+    }
+
+    public static Deadline start(OperationType operationType) {
+        return start(operationType, budgetMillis.get(operationType));
+    }
+
+    //for callers that need a tighter budget than the one configured for their operation type
+    public static Deadline start(OperationType operationType, long budget) {
+        Deadline deadline = new Deadline(operationType, budget);
+        try {
+            if(!bulkheads.get(operationType).tryAcquire(deadline.remainingNanos(), TimeUnit.NANOSECONDS)){
+                LatencyTracker.getInstance().record(operationType, System.nanoTime() - deadline.startNanos);
+                throw new DeadlineExceededException("No " + operationType + " capacity available within " + deadline.budget + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException("Interrupted while waiting for " + operationType + " capacity", e);
+        }
+        deadline.permitHeld = true;
+        return deadline;
+    }
+
+    public OperationType getOperationType() {
+        return operationType;
+    }
+
+    public long remainingNanos() {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+    }
+
+    //JDBC query timeouts are in whole seconds, 0 meaning no timeout
+    public int remainingSeconds() {
+        return (int) Math.max(1, (remainingMillis() + 999) / 1000);
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    public void check() {
+        if(isExpired()){
+            throw new DeadlineExceededException(operationType + " deadline of " + budget + "ms exceeded");
+        }
+    }
+
+    //turns a failure caused by the budget running out into a DeadlineExceededException
+    public void failIfExceeded(Exception ex) {
+        if(ex instanceof DeadlineExceededException){
+            throw (DeadlineExceededException) ex;
+        }
+        if(ex instanceof SQLTimeoutException || isExpired()){
+            throw new DeadlineExceededException(operationType + " deadline of " + budget + "ms exceeded", ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        if(permitHeld){
+            permitHeld = false;
+            bulkheads.get(operationType).release();
+            //what the caller observed, bulkhead wait included: this is what admission control adapts to
+            LatencyTracker.getInstance().record(operationType, System.nanoTime() - startNanos);
+        }
+    }
+}
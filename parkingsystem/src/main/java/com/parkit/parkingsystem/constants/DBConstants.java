@@ -2,11 +2,74 @@ package com.parkit.parkingsystem.constants;
 
 public class DBConstants {
 
-    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
-    public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
+    //LOT_ID default in Data.sql: the lot of a single lot installation
+    public static final int DEFAULT_LOT_ID = 1;
 
-    public static final String SAVE_TICKET = "insert into ticket(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?,?)";
+    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where LOT_ID = ? and AVAILABLE = true and TYPE = ?";
+    public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where LOT_ID = ? and PARKING_NUMBER = ?";
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, TYPE, ZONE, LEVEL from parking where LOT_ID = ?";
+    public static final String GET_OCCUPIED_PARKING_SPOTS = "select PARKING_NUMBER from parking where LOT_ID = ? and AVAILABLE = false";
+
+    public static final String SAVE_TICKET_WITH_ID = "insert into ticket(ID, LOT_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT) values(?,?,?,?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, IN_TIME=?, OUT_TIME=? where ID=?";
-    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC  limit 1";
-    public static final String GET_NUMBER_OF_TICKETS = "select COUNT(*) from ticket where VEHICLE_REG_NUMBER=?";
+    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, t.DISCOUNT from ticket t where t.LOT_ID=? and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC  limit 1";
+    //a ticket of another lot is not found at this lot's exit
+    public static final String GET_TICKET_BY_ID = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, t.DISCOUNT, t.VEHICLE_REG_NUMBER from ticket t where t.ID=? and t.LOT_ID=?";
+    //newest first, a page after the first one starts strictly after the (IN_TIME, ID) of the last row seen
+    public static final String GET_TICKET_HISTORY = "select t.ID, t.PARKING_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, t.DISCOUNT from ticket t where t.LOT_ID=? and t.VEHICLE_REG_NUMBER=? "
+            + "order by t.IN_TIME DESC, t.ID DESC limit ?";
+    public static final String GET_TICKET_HISTORY_AFTER = "select t.ID, t.PARKING_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, t.DISCOUNT from ticket t where t.LOT_ID=? and t.VEHICLE_REG_NUMBER=? "
+            + "and (t.IN_TIME < ? or (t.IN_TIME = ? and t.ID < ?)) order by t.IN_TIME DESC, t.ID DESC limit ?";
+    //visits are counted per lot, the recurring user discount is earned in each lot separately
+    public static final String GET_NUMBER_OF_TICKETS = "select COUNT(*) from ticket where LOT_ID=? and VEHICLE_REG_NUMBER=?";
+
+    public static final String GET_OCCUPANCY_AT = "select p.TYPE, COUNT(*) from ticket t,parking p where p.LOT_ID = t.LOT_ID and p.parking_number = t.parking_number "
+            + "and t.LOT_ID = ? and t.IN_TIME < ? and (t.OUT_TIME is null or t.OUT_TIME >= ?) group by p.TYPE";
+    public static final String GET_TICKET_EVENTS = "select e.EVENT_TIME, e.DELTA, e.PARKING_NUMBER, e.PRICE, e.IN_TIME from ("
+            + "select t.IN_TIME as EVENT_TIME, 1 as DELTA, t.PARKING_NUMBER, 0 as PRICE, t.IN_TIME from ticket t where t.LOT_ID = ? and t.IN_TIME >= ? and t.IN_TIME < ? "
+            + "union all "
+            + "select t.OUT_TIME as EVENT_TIME, -1 as DELTA, t.PARKING_NUMBER, t.PRICE, t.IN_TIME from ticket t where t.LOT_ID = ? and t.OUT_TIME >= ? and t.OUT_TIME < ?"
+            + ") e order by e.EVENT_TIME, e.DELTA";
+    public static final String GET_TICKETS_BETWEEN = "select t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME from ticket t where t.LOT_ID = ? and t.IN_TIME >= ? and t.IN_TIME < ?";
+
+    //a booking locks the row of its lot and type, then counts the reservations already there before inserting
+    public static final String ADD_RESERVATION_LOCK = "insert ignore into reservation_lock(LOT_ID, TYPE) values(?,?)";
+    public static final String LOCK_RESERVATIONS = "select r.LOT_ID from reservation_lock r where r.LOT_ID = ? and r.TYPE = ? for update";
+    //most reservations of a type running at once over [from, to): the count only goes up at the start of the
+    //interval or at the start of a reservation within it
+    public static final String GET_PEAK_RESERVATIONS = "select coalesce(max(c.RUNNING), 0) from ("
+            + "select (select count(*) from reservation o where o.LOT_ID = ? and o.TYPE = ? and o.STATUS <> 'CANCELLED' and o.START_TIME <= p.T and o.END_TIME > p.T) as RUNNING from ("
+            + "select ? as T union select r.START_TIME from reservation r where r.LOT_ID = ? and r.TYPE = ? and r.STATUS <> 'CANCELLED' and r.START_TIME > ? and r.START_TIME < ?"
+            + ") p) c";
+    public static final String SAVE_RESERVATION = "insert into reservation(LOT_ID, VEHICLE_REG_NUMBER, TYPE, START_TIME, END_TIME, STATUS) values(?,?,?,?,?,?)";
+    public static final String UPDATE_RESERVATION_STATUS = "update reservation set STATUS=? where ID=?";
+    public static final String GET_RESERVATIONS_ENDING_AFTER = "select r.ID, r.VEHICLE_REG_NUMBER, r.TYPE, r.START_TIME, r.END_TIME, r.STATUS from reservation r where r.LOT_ID = ? and r.END_TIME > ? and r.STATUS <> 'CANCELLED'";
+
+    //the change log is read for every lot of the process at once
+    public static final String GET_LAST_CHANGE = "select coalesce(max(SEQ), 0) from change_log";
+    public static final String GET_CHANGES_SINCE = "select c.SEQ, c.TABLE_NAME, c.ROW_ID, c.PARKING_NUMBER, c.AVAILABLE, c.VEHICLE_REG_NUMBER, c.OUT_TIME, c.LOT_ID from change_log c where c.SEQ > ? order by c.SEQ limit ?";
+    public static final String PURGE_CHANGES_BEFORE = "delete from change_log where CHANGED_AT < ?";
+
+    public static final String GET_OPEN_TICKETS_AFTER = "select t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, t.IN_TIME, t.DISCOUNT from ticket t where t.LOT_ID = ? and t.OUT_TIME is null and t.ID > ? order by t.ID limit ?";
+    public static final String UPDATE_OPEN_TICKET_PRICE = "update ticket set PRICE=? where ID=? and OUT_TIME is null";
+    public static final String GET_SETTLEMENT_CHECKPOINT = "select s.AS_OF, s.LAST_TICKET_ID, s.SETTLED, s.FINISHED from settlement_checkpoint s where s.LOT_ID=? and s.JOB_ID=?";
+    public static final String SAVE_SETTLEMENT_CHECKPOINT = "insert into settlement_checkpoint(LOT_ID, JOB_ID, AS_OF, LAST_TICKET_ID, SETTLED, FINISHED) values(?,?,?,?,?,?) "
+            + "on duplicate key update AS_OF=values(AS_OF), LAST_TICKET_ID=values(LAST_TICKET_ID), SETTLED=values(SETTLED), FINISHED=values(FINISHED)";
+
+    //spots changed in a window of the lot's changes, left out while they have changes after it: those may be half done
+    public static final String GET_LAST_CHANGE_BEFORE = "select coalesce(max(w.SEQ), ?) from ("
+            + "select c.SEQ from change_log c where c.LOT_ID = ? and c.SEQ > ? and c.CHANGED_AT < ? order by c.SEQ limit ?) w";
+    public static final String GET_TAKEN_SPOTS_WITHOUT_TICKET = "select distinct p.PARKING_NUMBER from change_log c join parking p on p.LOT_ID = c.LOT_ID and p.PARKING_NUMBER = c.PARKING_NUMBER "
+            + "where c.LOT_ID = ? and c.SEQ > ? and c.SEQ <= ? and p.AVAILABLE = false "
+            + "and not exists (select 1 from ticket t where t.LOT_ID = p.LOT_ID and t.PARKING_NUMBER = p.PARKING_NUMBER and t.OUT_TIME is null) "
+            + "and not exists (select 1 from change_log n where n.LOT_ID = p.LOT_ID and n.PARKING_NUMBER = p.PARKING_NUMBER and n.SEQ > ?)";
+    public static final String GET_FREE_SPOTS_WITH_TICKET = "select distinct p.PARKING_NUMBER from change_log c join parking p on p.LOT_ID = c.LOT_ID and p.PARKING_NUMBER = c.PARKING_NUMBER "
+            + "where c.LOT_ID = ? and c.SEQ > ? and c.SEQ <= ? and p.AVAILABLE = true "
+            + "and exists (select 1 from ticket t where t.LOT_ID = p.LOT_ID and t.PARKING_NUMBER = p.PARKING_NUMBER and t.OUT_TIME is null) "
+            + "and not exists (select 1 from change_log n where n.LOT_ID = p.LOT_ID and n.PARKING_NUMBER = p.PARKING_NUMBER and n.SEQ > ?)";
+    //repairs check the drift again, a gate may have fixed it since
+    public static final String FREE_SPOT_WITHOUT_TICKET = "update parking p set p.AVAILABLE = true where p.LOT_ID = ? and p.PARKING_NUMBER = ? and p.AVAILABLE = false "
+            + "and not exists (select 1 from ticket t where t.LOT_ID = p.LOT_ID and t.PARKING_NUMBER = p.PARKING_NUMBER and t.OUT_TIME is null)";
+    public static final String TAKE_SPOT_WITH_TICKET = "update parking p set p.AVAILABLE = false where p.LOT_ID = ? and p.PARKING_NUMBER = ? and p.AVAILABLE = true "
+            + "and exists (select 1 from ticket t where t.LOT_ID = p.LOT_ID and t.PARKING_NUMBER = p.PARKING_NUMBER and t.OUT_TIME is null)";
 }
@@ -0,0 +1,8 @@
+package com.parkit.parkingsystem.constants;
+
+public enum OperationType {
+    ENTRY,
+    EXIT,
+    REPORT,
+    SYNC
+}
@@ -0,0 +1,7 @@
+package com.parkit.parkingsystem.constants;
+
+public enum ParkingEventType {
+    VEHICLE_ENTERED,
+    VEHICLE_EXITED,
+    SPOT_CHANGED
+}
@@ -0,0 +1,6 @@
+package com.parkit.parkingsystem.constants;
+
+public enum ReportGranularity {
+    HOUR,
+    DAY
+}
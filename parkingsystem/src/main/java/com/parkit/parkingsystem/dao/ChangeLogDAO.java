@@ -0,0 +1,124 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.Deadline;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.OperationType;
+import com.parkit.parkingsystem.model.ChangeLogEntry;
+import com.parkit.parkingsystem.monitoring.StatementEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+//The change_log table is filled by triggers on parking and ticket, see Data.sql. It is read for every lot at once
+public class ChangeLogDAO {
+
+    private static final Logger logger = LogManager.getLogger("ChangeLogDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    //sequence of the last change, -1 on error
+    public long getLastSequence(){
+        Deadline deadline = Deadline.start(OperationType.SYNC);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_LAST_CHANGE, deadline);
+        Connection con = null;
+        long result = -1;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_LAST_CHANGE);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ResultSet rs = ps.executeQuery();
+            if(rs.next()){
+                result = rs.getLong(1);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            logger.error("Error fetching last change",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+        return result;
+    }
+
+    //changes after the given sequence in sequence order, at most limit of them, null on error.
+    //Always read on the primary: a replica would add its lag to the staleness
+    public List<ChangeLogEntry> getChangesSince(long sequence, int limit){
+        Deadline deadline = Deadline.start(OperationType.SYNC);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_CHANGES_SINCE, deadline);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_CHANGES_SINCE);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setLong(1, sequence);
+            ps.setInt(2, limit);
+            ResultSet rs = ps.executeQuery();
+            List<ChangeLogEntry> entries = new ArrayList<>();
+            while(rs.next()){
+                ChangeLogEntry entry = new ChangeLogEntry();
+                entry.setSequence(rs.getLong(1));
+                entry.setTableName(rs.getString(2));
+                entry.setRowId(rs.getLong(3));
+                entry.setParkingNumber(rs.getInt(4));
+                entry.setAvailable(rs.getBoolean(5));
+                entry.setVehicleRegNumber(rs.getString(6));
+                Timestamp outTime = rs.getTimestamp(7);
+                entry.setOutTime((outTime == null) ? null : new Date(outTime.getTime()));
+                entry.setLotId(rs.getInt(8));
+                entries.add(entry);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return entries;
+        }catch (Exception ex){
+            logger.error("Error fetching changes",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return null;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+
+    //number of changes deleted, -1 on error
+    public int purgeChangesBefore(Date time){
+        Deadline deadline = Deadline.start(OperationType.SYNC);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.PURGE_CHANGES_BEFORE, deadline);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.PURGE_CHANGES_BEFORE);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setTimestamp(1, new Timestamp(time.getTime()));
+            int deleted = ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            return deleted;
+        }catch (Exception ex){
+            logger.error("Error purging changes",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return -1;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+}
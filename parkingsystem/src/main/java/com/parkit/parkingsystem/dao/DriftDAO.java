@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.Deadline;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.OperationType;
+import com.parkit.parkingsystem.monitoring.StatementEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+//Availability of parking rows against open tickets, only for the spots found in a window of the change log
+public class DriftDAO {
+
+    private static final Logger logger = LogManager.getLogger("DriftDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    //every query is bound to this lot
+    public int lotId = DBConstants.DEFAULT_LOT_ID;
+
+    //last sequence of the lot after fromSequence written before the given time, at most limit of the lot's
+    //changes further, fromSequence when there is none and -1 on error
+    public long getLastChangeBefore(long fromSequence, int limit, Date time){
+        Deadline deadline = Deadline.start(OperationType.SYNC);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_LAST_CHANGE_BEFORE, deadline);
+        Connection con = null;
+        long result = -1;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_LAST_CHANGE_BEFORE);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setLong(1, fromSequence);
+            ps.setInt(2, lotId);
+            ps.setLong(3, fromSequence);
+            ps.setTimestamp(4, new Timestamp(time.getTime()));
+            ps.setInt(5, limit);
+            ResultSet rs = ps.executeQuery();
+            if(rs.next()){
+                result = rs.getLong(1);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            logger.error("Error fetching last change",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+        return result;
+    }
+
+    //spots changed in (fromSequence, toSequence] marked taken but with no open ticket, null on error
+    public List<Integer> getTakenSpotsWithoutTicket(long fromSequence, long toSequence){
+        return getSpots(DBConstants.GET_TAKEN_SPOTS_WITHOUT_TICKET, fromSequence, toSequence);
+    }
+
+    //spots changed in (fromSequence, toSequence] marked free but with an open ticket, null on error
+    public List<Integer> getFreeSpotsWithTicket(long fromSequence, long toSequence){
+        return getSpots(DBConstants.GET_FREE_SPOTS_WITH_TICKET, fromSequence, toSequence);
+    }
+
+    private List<Integer> getSpots(String query, long fromSequence, long toSequence){
+        Deadline deadline = Deadline.start(OperationType.SYNC);
+        StatementEvent statementEvent = new StatementEvent(query, deadline);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(query);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setInt(1, lotId);
+            ps.setLong(2, fromSequence);
+            ps.setLong(3, toSequence);
+            ps.setLong(4, toSequence);
+            ResultSet rs = ps.executeQuery();
+            List<Integer> parkingNumbers = new ArrayList<>();
+            while(rs.next()){
+                parkingNumbers.add(rs.getInt(1));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return parkingNumbers;
+        }catch (Exception ex){
+            logger.error("Error fetching drifting spots",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return null;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+
+    //number of spots set free, -1 on error
+    public int freeSpotsWithoutTicket(List<Integer> parkingNumbers){
+        return repair(DBConstants.FREE_SPOT_WITHOUT_TICKET, parkingNumbers);
+    }
+
+    //number of spots set taken, -1 on error
+    public int takeSpotsWithTicket(List<Integer> parkingNumbers){
+        return repair(DBConstants.TAKE_SPOT_WITH_TICKET, parkingNumbers);
+    }
+
+    private int repair(String query, List<Integer> parkingNumbers){
+        Deadline deadline = Deadline.start(OperationType.SYNC);
+        StatementEvent statementEvent = new StatementEvent(query, deadline);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(query);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            for(int parkingNumber : parkingNumbers){
+                ps.setInt(1, lotId);
+                ps.setInt(2, parkingNumber);
+                ps.addBatch();
+            }
+            int repaired = 0;
+            for(int updated : ps.executeBatch()){
+                repaired += Math.max(0, updated);
+            }
+            dataBaseConfig.closePreparedStatement(ps);
+            return repaired;
+        }catch (Exception ex){
+            logger.error("Error repairing spots",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return -1;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+}
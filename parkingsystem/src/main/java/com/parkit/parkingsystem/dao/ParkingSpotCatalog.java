@@ -0,0 +1,196 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.Deadline;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.OperationType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.monitoring.StatementEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Static spot metadata indexed by parking number. It is loaded once, shared by the DAOs and services,
+//and only reloaded through refresh() after an admin change or when an unknown spot number shows up.
+//There is one catalog per lot, see forLot.
+public class ParkingSpotCatalog {
+
+    private static final Logger logger = LogManager.getLogger("ParkingSpotCatalog");
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+    private static final byte NO_SPOT = -1;
+    public static final long MIN_RELOAD_INTERVAL_MILLIS = 1000;
+
+    private static final Map<Integer, ParkingSpotCatalog> LOTS = new ConcurrentHashMap<>();
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    public Clock clock = Clock.systemUTC();
+
+    private final int lotId;
+
+    private volatile Spots spots;
+    private long lastReload;
+
+    //immutable snapshot, replaced as a whole on refresh
+    private static final class Spots {
+        private final byte[] parkingTypes;
+        private final int[] capacities;
+        //zone of each spot as an index in zones
+        private final short[] zoneIds;
+        private final String[] zones;
+        private final int[] levels;
+
+        private Spots(byte[] parkingTypes, short[] zoneIds, String[] zones, int[] levels) {
+            this.parkingTypes = parkingTypes;
+            this.zoneIds = zoneIds;
+            this.zones = zones;
+            this.levels = levels;
+            this.capacities = new int[PARKING_TYPES.length];
+            for(byte parkingType : parkingTypes){
+                if(parkingType != NO_SPOT){
+                    capacities[parkingType]++;
+                }
+            }
+        }
+    }
+
+    public ParkingSpotCatalog() {
+        this(DBConstants.DEFAULT_LOT_ID);
+    }
+
+    public ParkingSpotCatalog(int lotId) {
+        this.lotId = lotId;
+    }
+
+    //catalog of the default lot
+    public static ParkingSpotCatalog getInstance() {
+        return forLot(DBConstants.DEFAULT_LOT_ID);
+    }
+
+    public static ParkingSpotCatalog forLot(int lotId) {
+        return LOTS.computeIfAbsent(lotId, ParkingSpotCatalog::new);
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    public ParkingType getParkingType(int parkingNumber) {
+        Spots current = getSpots();
+        if(!contains(current, parkingNumber)){
+            current = reloadOnMiss();
+            if(!contains(current, parkingNumber)){
+                return ParkingType.UNKNOWN;
+            }
+        }
+        return PARKING_TYPES[current.parkingTypes[parkingNumber]];
+    }
+
+    //null for an unknown spot
+    public String getZone(int parkingNumber) {
+        Spots current = getSpots();
+        return contains(current, parkingNumber) ? current.zones[current.zoneIds[parkingNumber]] : null;
+    }
+
+    public int getLevel(int parkingNumber) {
+        Spots current = getSpots();
+        return contains(current, parkingNumber) ? current.levels[parkingNumber] : 0;
+    }
+
+    public boolean exists(int parkingNumber) {
+        return contains(getSpots(), parkingNumber);
+    }
+
+    public int getCapacity(ParkingType parkingType) {
+        return getSpots().capacities[parkingType.ordinal()];
+    }
+
+    public int getMaxParkingNumber() {
+        return getSpots().parkingTypes.length - 1;
+    }
+
+    //runs on the gate path when an unknown spot shows up and holds the catalog while it runs: like any
+    //DAO operation it is bounded by a deadline, the SYNC one, and fails rather than stall every gate
+    public synchronized boolean refresh() {
+        lastReload = clock.millis();
+        Deadline deadline = Deadline.start(OperationType.SYNC);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_PARKING_SPOTS, deadline);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_PARKING_SPOTS);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setInt(1, lotId);
+            ResultSet rs = ps.executeQuery();
+            byte[] parkingTypes = new byte[0];
+            short[] zoneIds = new short[0];
+            int[] levels = new int[0];
+            List<String> zones = new ArrayList<>();
+            int maxParkingNumber = -1;
+            while(rs.next()){
+                int parkingNumber = rs.getInt(1);
+                maxParkingNumber = Math.max(maxParkingNumber, parkingNumber);
+                if(parkingNumber >= parkingTypes.length){
+                    int length = parkingTypes.length;
+                    int newLength = Math.max(parkingNumber + 1, 2 * length);
+                    parkingTypes = Arrays.copyOf(parkingTypes, newLength);
+                    Arrays.fill(parkingTypes, length, newLength, NO_SPOT);
+                    zoneIds = Arrays.copyOf(zoneIds, newLength);
+                    levels = Arrays.copyOf(levels, newLength);
+                }
+                parkingTypes[parkingNumber] = (byte) ParkingType.valueOf(rs.getString(2)).ordinal();
+                //a handful of zones per site, a linear lookup is enough
+                String zone = rs.getString(3);
+                int zoneId = zones.indexOf(zone);
+                if(zoneId < 0){
+                    zoneId = zones.size();
+                    zones.add(zone);
+                }
+                zoneIds[parkingNumber] = (short) zoneId;
+                levels[parkingNumber] = rs.getInt(4);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            spots = new Spots(Arrays.copyOf(parkingTypes, maxParkingNumber + 1), Arrays.copyOf(zoneIds, maxParkingNumber + 1),
+                    zones.toArray(new String[0]), Arrays.copyOf(levels, maxParkingNumber + 1));
+            logger.info("Loaded parking spot catalog of lot " + lotId + " up to spot number " + maxParkingNumber);
+            return true;
+        }catch (Exception ex){
+            logger.error("Error loading parking spot catalog",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return false;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+
+    private Spots getSpots() {
+        Spots current = spots;
+        return (current == null) ? reloadOnMiss() : current;
+    }
+
+    private synchronized Spots reloadOnMiss() {
+        if(clock.millis() - lastReload >= MIN_RELOAD_INTERVAL_MILLIS){
+            refresh();
+        }
+        return (spots == null) ? new Spots(new byte[0], new short[0], new String[0], new int[0]) : spots;
+    }
+
+    private static boolean contains(Spots current, int parkingNumber) {
+        return parkingNumber >= 0 && parkingNumber < current.parkingTypes.length && current.parkingTypes[parkingNumber] != NO_SPOT;
+    }
+}
@@ -1,28 +1,45 @@
 package com.parkit.parkingsystem.dao;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseExecutor;
+import com.parkit.parkingsystem.config.Deadline;
 import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.OperationType;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.monitoring.StatementEvent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class ParkingSpotDAO {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    public Executor executor = DataBaseExecutor.getExecutor();
+
+    //every query is bound to this lot
+    public int lotId = DBConstants.DEFAULT_LOT_ID;
+
     public int getNextAvailableSlot(ParkingType parkingType){
+        Deadline deadline = Deadline.start(OperationType.ENTRY);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_NEXT_PARKING_SPOT, deadline);
         Connection con = null;
         int result=-1;
         try {
-            con = dataBaseConfig.getConnection();
+            con = dataBaseConfig.getConnection(deadline);
             PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
-            ps.setString(1, parkingType.toString());
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setInt(1, lotId);
+            ps.setString(2, parkingType.toString());
             ResultSet rs = ps.executeQuery();
             if(rs.next()){
                 result = rs.getInt(1);
@@ -31,29 +48,85 @@ public class ParkingSpotDAO {
             dataBaseConfig.closePreparedStatement(ps);
         }catch (Exception ex){
             logger.error("Error fetching next available slot",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
         }finally {
+            statementEvent.finish();
             dataBaseConfig.closeConnection(con);
+            deadline.close();
         }
         return result;
     }
 
     public boolean updateParking(ParkingSpot parkingSpot){
-        //update the availability for that parking spot
+        //update the availability for that parking spot, freeing it is part of an exit
+        Deadline deadline = Deadline.start(parkingSpot.isAvailable() ? OperationType.EXIT : OperationType.ENTRY);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.UPDATE_PARKING_SPOT, deadline);
         Connection con = null;
         try {
-            con = dataBaseConfig.getConnection();
+            con = dataBaseConfig.getConnection(deadline);
             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
             ps.setBoolean(1, parkingSpot.isAvailable());
-            ps.setInt(2, parkingSpot.getId());
+            ps.setInt(2, lotId);
+            ps.setInt(3, parkingSpot.getId());
             int updateRowCount = ps.executeUpdate();
             dataBaseConfig.closePreparedStatement(ps);
             return (updateRowCount == 1);
         }catch (Exception ex){
             logger.error("Error updating parking info",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
             return false;
         }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+
+    //startup snapshot for the occupancy counters, null on error
+    public int[] getOccupiedParkingNumbers(){
+        Deadline deadline = Deadline.start(OperationType.SYNC);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_OCCUPIED_PARKING_SPOTS, deadline);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_OCCUPIED_PARKING_SPOTS);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setInt(1, lotId);
+            ResultSet rs = ps.executeQuery();
+            int[] parkingNumbers = new int[16];
+            int count = 0;
+            while(rs.next()){
+                if(count == parkingNumbers.length){
+                    parkingNumbers = Arrays.copyOf(parkingNumbers, count * 2);
+                }
+                parkingNumbers[count++] = rs.getInt(1);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return Arrays.copyOf(parkingNumbers, count);
+        }catch (Exception ex){
+            logger.error("Error fetching occupied parking spots",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return null;
+        }finally {
+            statementEvent.finish();
             dataBaseConfig.closeConnection(con);
+            deadline.close();
         }
     }
 
+    public CompletableFuture<Integer> getNextAvailableSlotAsync(ParkingType parkingType){
+        return DataBaseExecutor.supplyAsync(() -> getNextAvailableSlot(parkingType), executor);
+    }
+
+    public CompletableFuture<Boolean> updateParkingAsync(ParkingSpot parkingSpot){
+        return DataBaseExecutor.supplyAsync(() -> updateParking(parkingSpot), executor);
+    }
+
 }
@@ -0,0 +1,176 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.Deadline;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.OperationType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ReservationStatus;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.monitoring.StatementEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class ReservationDAO {
+
+    private static final Logger logger = LogManager.getLogger("ReservationDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    //every query is bound to this lot
+    public int lotId = DBConstants.DEFAULT_LOT_ID;
+
+    //inserts the reservation unless its type is already booked up to capacity at some point of its interval, and
+    //sets the generated id on it. The check and the insert run in one transaction holding the lock row of the
+    //lot and type, so bookings made by other instances are counted as well
+    public boolean saveReservation(Reservation reservation, int capacity){
+        Deadline deadline = Deadline.start(OperationType.ENTRY);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.SAVE_RESERVATION, deadline);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            String type = reservation.getParkingType().toString();
+            Timestamp startTime = new Timestamp(reservation.getStartTime().getTime());
+            Timestamp endTime = new Timestamp(reservation.getEndTime().getTime());
+            statementEvent.start();
+            //the lock row is added in its own transaction, locking it for update right after a shared lock
+            //taken by the insert could deadlock two bookings
+            PreparedStatement ps = con.prepareStatement(DBConstants.ADD_RESERVATION_LOCK);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            ps.setInt(1, lotId);
+            ps.setString(2, type);
+            ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+
+            con.setAutoCommit(false);
+            ps = con.prepareStatement(DBConstants.LOCK_RESERVATIONS);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            ps.setInt(1, lotId);
+            ps.setString(2, type);
+            dataBaseConfig.closeResultSet(ps.executeQuery());
+            dataBaseConfig.closePreparedStatement(ps);
+
+            ps = con.prepareStatement(DBConstants.GET_PEAK_RESERVATIONS);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            ps.setInt(1, lotId);
+            ps.setString(2, type);
+            ps.setTimestamp(3, startTime);
+            ps.setInt(4, lotId);
+            ps.setString(5, type);
+            ps.setTimestamp(6, startTime);
+            ps.setTimestamp(7, endTime);
+            ResultSet rs = ps.executeQuery();
+            int booked = rs.next() ? rs.getInt(1) : 0;
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            if(booked + 1 > capacity){
+                logger.info("No " + type + " spot left to book between " + startTime + " and " + endTime);
+                dataBaseConfig.rollback(con);
+                return false;
+            }
+
+            ps = con.prepareStatement(DBConstants.SAVE_RESERVATION, Statement.RETURN_GENERATED_KEYS);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            //LOT_ID, VEHICLE_REG_NUMBER, TYPE, START_TIME, END_TIME, STATUS)
+            ps.setInt(1, lotId);
+            ps.setString(2, reservation.getVehicleRegNumber());
+            ps.setString(3, type);
+            ps.setTimestamp(4, startTime);
+            ps.setTimestamp(5, endTime);
+            ps.setString(6, reservation.getStatus().toString());
+            ps.executeUpdate();
+            rs = ps.getGeneratedKeys();
+            if(rs.next()){
+                reservation.setId(rs.getLong(1));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            con.commit();
+            return true;
+        }catch (Exception ex){
+            logger.error("Error saving reservation",ex);
+            dataBaseConfig.rollback(con);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+        return false;
+    }
+
+    public boolean updateReservationStatus(Reservation reservation){
+        Deadline deadline = Deadline.start(OperationType.ENTRY);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.UPDATE_RESERVATION_STATUS, deadline);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_RESERVATION_STATUS);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setString(1, reservation.getStatus().toString());
+            ps.setLong(2, reservation.getId());
+            int updateRowCount = ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            return (updateRowCount == 1);
+        }catch (Exception ex){
+            logger.error("Error updating reservation",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return false;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+
+    //booked and used reservations still running after the given time, null on error
+    public List<Reservation> getReservationsEndingAfter(Date time){
+        Deadline deadline = Deadline.start(OperationType.REPORT);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_RESERVATIONS_ENDING_AFTER, deadline);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_RESERVATIONS_ENDING_AFTER);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setInt(1, lotId);
+            ps.setTimestamp(2, new Timestamp(time.getTime()));
+            ResultSet rs = ps.executeQuery();
+            List<Reservation> reservations = new ArrayList<>();
+            while(rs.next()){
+                Reservation reservation = new Reservation();
+                reservation.setId(rs.getLong(1));
+                reservation.setVehicleRegNumber(rs.getString(2));
+                reservation.setParkingType(ParkingType.valueOf(rs.getString(3)));
+                reservation.setStartTime(new Date(rs.getTimestamp(4).getTime()));
+                reservation.setEndTime(new Date(rs.getTimestamp(5).getTime()));
+                reservation.setStatus(ReservationStatus.valueOf(rs.getString(6)));
+                reservations.add(reservation);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return reservations;
+        }catch (Exception ex){
+            logger.error("Error fetching reservations",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return null;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.Deadline;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.OperationType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.SettlementCheckpoint;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.monitoring.StatementEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class SettlementDAO {
+
+    private static final Logger logger = LogManager.getLogger("SettlementDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    //every query is bound to this lot, parkingSpotCatalog must be the lot's one
+    public int lotId = DBConstants.DEFAULT_LOT_ID;
+
+    public ParkingSpotCatalog parkingSpotCatalog = ParkingSpotCatalog.getInstance();
+
+    //open tickets with an id above afterId, by id: each chunk is one index range, wherever the job stopped
+    public List<Ticket> getOpenTicketsAfter(long afterId, int limit){
+        Deadline deadline = Deadline.start(OperationType.REPORT);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_OPEN_TICKETS_AFTER, deadline);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_OPEN_TICKETS_AFTER);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setInt(1, lotId);
+            ps.setLong(2, afterId);
+            ps.setInt(3, limit);
+            ResultSet rs = ps.executeQuery();
+            List<Ticket> tickets = new ArrayList<>();
+            while(rs.next()){
+                Ticket ticket = new Ticket();
+                ticket.setId(rs.getLong(1));
+                int parkingNumber = rs.getInt(2);
+                ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingSpotCatalog.getParkingType(parkingNumber), false));
+                ticket.setVehicleRegNumber(rs.getString(3));
+                ticket.setInTime(new Date(rs.getTimestamp(4).getTime()));
+                ticket.setDiscount(rs.getBoolean(5));
+                tickets.add(ticket);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return tickets;
+        }catch (Exception ex){
+            logger.error("Error fetching open tickets",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return null;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+
+    //the prices of a chunk as one JDBC batch and the checkpoint after it, in a single transaction.
+    //Tickets closed since they were read keep the price of their exit
+    public boolean settleChunk(List<Ticket> tickets, SettlementCheckpoint checkpoint){
+        Deadline deadline = Deadline.start(OperationType.REPORT);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.UPDATE_OPEN_TICKET_PRICE, deadline);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            con.setAutoCommit(false);
+            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_OPEN_TICKET_PRICE);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            for(Ticket ticket : tickets){
+                ps.setDouble(1, ticket.getPrice());
+                ps.setLong(2, ticket.getId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            dataBaseConfig.closePreparedStatement(ps);
+            PreparedStatement checkpointPs = con.prepareStatement(DBConstants.SAVE_SETTLEMENT_CHECKPOINT);
+            dataBaseConfig.applyTimeout(checkpointPs, deadline);
+            //LOT_ID, JOB_ID, AS_OF, LAST_TICKET_ID, SETTLED, FINISHED
+            checkpointPs.setInt(1, lotId);
+            checkpointPs.setString(2, checkpoint.getJobId());
+            checkpointPs.setTimestamp(3, new Timestamp(checkpoint.getAsOf().getTime()));
+            checkpointPs.setLong(4, checkpoint.getLastTicketId());
+            checkpointPs.setLong(5, checkpoint.getSettled());
+            checkpointPs.setBoolean(6, checkpoint.isFinished());
+            checkpointPs.executeUpdate();
+            con.commit();
+            dataBaseConfig.closePreparedStatement(checkpointPs);
+            return true;
+        }catch (Exception ex){
+            logger.error("Error settling tickets",ex);
+            dataBaseConfig.rollback(con);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return false;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+
+    //null when the job never ran, or on error: the job then starts over, which only redoes work
+    public SettlementCheckpoint getCheckpoint(String jobId){
+        Deadline deadline = Deadline.start(OperationType.REPORT);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_SETTLEMENT_CHECKPOINT, deadline);
+        Connection con = null;
+        SettlementCheckpoint checkpoint = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_SETTLEMENT_CHECKPOINT);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setInt(1, lotId);
+            ps.setString(2, jobId);
+            ResultSet rs = ps.executeQuery();
+            if(rs.next()){
+                checkpoint = new SettlementCheckpoint();
+                checkpoint.setJobId(jobId);
+                checkpoint.setAsOf(new Date(rs.getTimestamp(1).getTime()));
+                checkpoint.setLastTicketId(rs.getLong(2));
+                checkpoint.setSettled(rs.getLong(3));
+                checkpoint.setFinished(rs.getBoolean(4));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            logger.error("Error fetching settlement checkpoint",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+        return checkpoint;
+    }
+}
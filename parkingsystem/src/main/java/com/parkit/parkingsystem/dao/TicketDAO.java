@@ -1,101 +1,214 @@
 package com.parkit.parkingsystem.dao;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseExecutor;
+import com.parkit.parkingsystem.config.Deadline;
 import com.parkit.parkingsystem.constants.DBConstants;
-import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.OperationType;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketSummary;
+import com.parkit.parkingsystem.monitoring.StatementEvent;
+import com.parkit.parkingsystem.util.TicketIdGenerator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class TicketDAO {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
+    public static final int MAX_HISTORY_PAGE_SIZE = 500;
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    public Executor executor = DataBaseExecutor.getExecutor();
+
+    //every query is bound to this lot, parkingSpotCatalog must be the lot's one
+    public int lotId = DBConstants.DEFAULT_LOT_ID;
+
+    public ParkingSpotCatalog parkingSpotCatalog = ParkingSpotCatalog.getInstance();
+
+    public TicketIdGenerator ticketIdGenerator = TicketIdGenerator.getInstance();
+
+    //ids always come from the generator: a database sequence on the same column would, once past the
+    //generated ids, hand out values the generator issues later
     public boolean saveTicket(Ticket ticket){
+        if(ticket.getId() <= 0){
+            ticket.setId(ticketIdGenerator.nextId());
+        }
+        return saveTickets(Collections.singletonList(ticket));
+    }
+
+    //tickets carrying a client generated id are inserted as one JDBC batch in a single transaction
+    public boolean saveTickets(List<Ticket> tickets){
+        Deadline deadline = Deadline.start(OperationType.ENTRY);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.SAVE_TICKET_WITH_ID, deadline);
         Connection con = null;
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            ps.setInt(1,ticket.getId());
-            ps.setInt(2,ticket.getParkingSpot().getId());
-            ps.setString(3, ticket.getVehicleRegNumber());
-            ps.setDouble(4, ticket.getPrice());
-            ps.setTimestamp(5, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(6, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
-            return ps.execute();
+            con = dataBaseConfig.getConnection(deadline);
+            con.setAutoCommit(false);
+            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET_WITH_ID);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            for(Ticket ticket : tickets){
+                //ID, LOT_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT)
+                ps.setLong(1,ticket.getId());
+                ps.setInt(2,lotId);
+                ps.setInt(3,ticket.getParkingSpot().getId());
+                ps.setString(4, ticket.getVehicleRegNumber());
+                ps.setDouble(5, ticket.getPrice());
+                ps.setTimestamp(6, new Timestamp(ticket.getInTime().getTime()));
+                ps.setTimestamp(7, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
+                ps.setBoolean(8, ticket.isDiscount());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            con.commit();
+            for(Ticket ticket : tickets){
+                dataBaseConfig.recordWrite(ticket.getVehicleRegNumber());
+            }
+            dataBaseConfig.closePreparedStatement(ps);
+            return true;
         }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            logger.error("Error saving ticket info",ex);
+            dataBaseConfig.rollback(con);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
         }finally {
+            statementEvent.finish();
             dataBaseConfig.closeConnection(con);
-            return false;
+            deadline.close();
         }
+        return false;
     }
 
     public Ticket getTicket(String vehicleRegNumber) {
+        Deadline deadline = Deadline.start(OperationType.EXIT);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_TICKET, deadline);
         Connection con = null;
         Ticket ticket = null;
         try {
-            con = dataBaseConfig.getConnection();
+            con = dataBaseConfig.getConnection(deadline);
             PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
             //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            ps.setString(1,vehicleRegNumber);
+            ps.setInt(1,lotId);
+            ps.setString(2,vehicleRegNumber);
             ResultSet rs = ps.executeQuery();
             if(rs.next()){
-                ticket = new Ticket();
-                ticket.setId(rs.getInt(2));
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
-                ticket.setInTime(rs.getTimestamp(4));
-                ticket.setOutTime(rs.getTimestamp(5));
+                ticket = readTicket(rs, vehicleRegNumber);
             }
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
         }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            logger.error("Error fetching ticket",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
         }finally {
+            statementEvent.finish();
             dataBaseConfig.closeConnection(con);
-            return ticket;
+            deadline.close();
         }
+        return ticket;
+    }
+
+    public Ticket getTicket(long ticketId) {
+        Deadline deadline = Deadline.start(OperationType.EXIT);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_TICKET_BY_ID, deadline);
+        Connection con = null;
+        Ticket ticket = null;
+        try {
+            con = dataBaseConfig.getConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET_BY_ID);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setLong(1,ticketId);
+            ps.setInt(2,lotId);
+            ResultSet rs = ps.executeQuery();
+            if(rs.next()){
+                ticket = readTicket(rs, rs.getString(7));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            logger.error("Error fetching ticket",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+        return ticket;
+    }
+
+    private Ticket readTicket(ResultSet rs, String vehicleRegNumber) throws SQLException {
+        Ticket ticket = new Ticket();
+        ticket.setId(rs.getLong(2));
+        int parkingNumber = rs.getInt(1);
+        ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingSpotCatalog.getParkingType(parkingNumber),false);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(rs.getDouble(3));
+        ticket.setInTime(rs.getTimestamp(4));
+        ticket.setOutTime(rs.getTimestamp(5));
+        ticket.setDiscount(rs.getBoolean(6));
+        return ticket;
     }
 
     public boolean updateTicket(Ticket ticket) {
+        Deadline deadline = Deadline.start(OperationType.EXIT);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.UPDATE_TICKET, deadline);
         Connection con = null;
         try {
-            con = dataBaseConfig.getConnection();
+            con = dataBaseConfig.getConnection(deadline);
             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
             //PRICE, IN_TIME, OUT_TIME, ID
             ps.setDouble(1, ticket.getPrice());
             ps.setTimestamp(2, new Timestamp(ticket.getInTime().getTime()));
             ps.setTimestamp(3, new Timestamp(ticket.getOutTime().getTime()));
-            ps.setInt(4,ticket.getId());
+            ps.setLong(4,ticket.getId());
             ps.execute();
+            dataBaseConfig.recordWrite(ticket.getVehicleRegNumber());
             return true;
         }catch (Exception ex){
             logger.error("Error saving ticket info",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
         }finally {
+            statementEvent.finish();
             dataBaseConfig.closeConnection(con);
+            deadline.close();
         }
         return false;
     }
 
     public int getNbTicket(String vehicleRegNumber){
+        Deadline deadline = Deadline.start(OperationType.ENTRY);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_NUMBER_OF_TICKETS, deadline);
         Connection con = null;
         int result=-1;
         try {
-            con = dataBaseConfig.getConnection();
+            con = dataBaseConfig.getReadConnection(vehicleRegNumber, deadline);
             PreparedStatement ps = con.prepareStatement(DBConstants.GET_NUMBER_OF_TICKETS);
-            ps.setString(1, vehicleRegNumber);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setInt(1, lotId);
+            ps.setString(2, vehicleRegNumber);
             ResultSet rs = ps.executeQuery();
             if(rs.next()){
                 result = rs.getInt(1);
@@ -104,9 +217,84 @@ public class TicketDAO {
             dataBaseConfig.closePreparedStatement(ps);
         }catch (Exception ex){
             logger.error("Error fetching next available slot",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
         }finally {
+            statementEvent.finish();
             dataBaseConfig.closeConnection(con);
+            deadline.close();
         }
         return result;
     }
+
+    //one page of the vehicle's tickets, newest first. after is the last ticket of the previous page, null for
+    //the first one: the next page is an index range scan from there, so page 1000 costs the same as page 1.
+    //A page shorter than pageSize is the last one
+    public List<TicketSummary> getTicketHistory(String vehicleRegNumber, TicketSummary after, int pageSize){
+        if(pageSize <= 0 || pageSize > MAX_HISTORY_PAGE_SIZE){
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE + ": " + pageSize);
+        }
+        String query = (after == null) ? DBConstants.GET_TICKET_HISTORY : DBConstants.GET_TICKET_HISTORY_AFTER;
+        Deadline deadline = Deadline.start(OperationType.REPORT);
+        StatementEvent statementEvent = new StatementEvent(query, deadline);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getReadConnection(vehicleRegNumber, deadline);
+            PreparedStatement ps = con.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setFetchSize(pageSize);
+            ps.setInt(1, lotId);
+            ps.setString(2, vehicleRegNumber);
+            if(after == null){
+                ps.setInt(3, pageSize);
+            }else{
+                Timestamp inTime = new Timestamp(after.getInTime().getTime());
+                ps.setTimestamp(3, inTime);
+                ps.setTimestamp(4, inTime);
+                ps.setLong(5, after.getId());
+                ps.setInt(6, pageSize);
+            }
+            ResultSet rs = ps.executeQuery();
+            List<TicketSummary> tickets = new ArrayList<>(pageSize);
+            while(rs.next()){
+                //ID, PARKING_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT
+                int parkingNumber = rs.getInt(2);
+                tickets.add(new TicketSummary(rs.getLong(1), parkingNumber, parkingSpotCatalog.getParkingType(parkingNumber),
+                        rs.getDouble(3), rs.getTimestamp(4), rs.getTimestamp(5), rs.getBoolean(6)));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return tickets;
+        }catch (Exception ex){
+            logger.error("Error fetching ticket history",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return null;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+
+    public CompletableFuture<Boolean> saveTicketAsync(Ticket ticket){
+        return DataBaseExecutor.supplyAsync(() -> saveTicket(ticket), executor);
+    }
+
+    public CompletableFuture<Ticket> getTicketAsync(String vehicleRegNumber){
+        return DataBaseExecutor.supplyAsync(() -> getTicket(vehicleRegNumber), executor);
+    }
+
+    public CompletableFuture<Ticket> getTicketAsync(long ticketId){
+        return DataBaseExecutor.supplyAsync(() -> getTicket(ticketId), executor);
+    }
+
+    public CompletableFuture<Boolean> updateTicketAsync(Ticket ticket){
+        return DataBaseExecutor.supplyAsync(() -> updateTicket(ticket), executor);
+    }
+
+    public CompletableFuture<Integer> getNbTicketAsync(String vehicleRegNumber){
+        return DataBaseExecutor.supplyAsync(() -> getNbTicket(vehicleRegNumber), executor);
+    }
 }
@@ -0,0 +1,158 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.Deadline;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.OperationType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.monitoring.StatementEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class TicketHistoryDAO {
+
+    private static final Logger logger = LogManager.getLogger("TicketHistoryDAO");
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    //every query is bound to this lot, parkingSpotCatalog must be the lot's one
+    public int lotId = DBConstants.DEFAULT_LOT_ID;
+
+    public ParkingSpotCatalog parkingSpotCatalog = ParkingSpotCatalog.getInstance();
+
+    public int fetchSize = DEFAULT_FETCH_SIZE;
+
+    public interface TicketEventHandler {
+        //delta is 1 for a vehicle entering and -1 for a vehicle exiting, price is only set on exits
+        void onEvent(long eventTime, int delta, ParkingType parkingType, double price, long inTime) throws Exception;
+    }
+
+    public interface TicketRowHandler {
+        //outTime is null for tickets that are still open
+        void onTicket(long id, int parkingNumber, String vehicleRegNumber, ParkingType parkingType, double price, long inTime, Timestamp outTime) throws Exception;
+    }
+
+    public Map<ParkingType, Integer> getOccupancyAt(Date time) {
+        Deadline deadline = Deadline.start(OperationType.REPORT);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_OCCUPANCY_AT, deadline);
+        Connection con = null;
+        Map<ParkingType, Integer> occupancy = new EnumMap<>(ParkingType.class);
+        try {
+            con = openHistoryConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_OCCUPANCY_AT);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setInt(1, lotId);
+            ps.setTimestamp(2, new Timestamp(time.getTime()));
+            ps.setTimestamp(3, new Timestamp(time.getTime()));
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                occupancy.put(ParkingType.valueOf(rs.getString(1)), rs.getInt(2));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            logger.error("Error fetching occupancy",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return null;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+        return occupancy;
+    }
+
+    public boolean streamTicketEvents(Date from, Date to, TicketEventHandler handler) {
+        Deadline deadline = Deadline.start(OperationType.REPORT);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_TICKET_EVENTS, deadline);
+        Connection con = null;
+        try {
+            con = openHistoryConnection(deadline);
+            //forward only cursor with a bounded fetch size so rows are never all held in memory
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET_EVENTS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setFetchSize(fetchSize);
+            ps.setInt(1, lotId);
+            ps.setTimestamp(2, new Timestamp(from.getTime()));
+            ps.setTimestamp(3, new Timestamp(to.getTime()));
+            ps.setInt(4, lotId);
+            ps.setTimestamp(5, new Timestamp(from.getTime()));
+            ps.setTimestamp(6, new Timestamp(to.getTime()));
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                handler.onEvent(rs.getTimestamp(1).getTime(), rs.getInt(2), parkingSpotCatalog.getParkingType(rs.getInt(3)),
+                        rs.getDouble(4), rs.getTimestamp(5).getTime());
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return true;
+        }catch (Exception ex){
+            logger.error("Error streaming ticket history",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return false;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+
+    public boolean streamTickets(Date from, Date to, TicketRowHandler handler) {
+        return streamTickets(from, to, fetchSize, handler);
+    }
+
+    public boolean streamTickets(Date from, Date to, int fetchSize, TicketRowHandler handler) {
+        Deadline deadline = Deadline.start(OperationType.REPORT);
+        StatementEvent statementEvent = new StatementEvent(DBConstants.GET_TICKETS_BETWEEN, deadline);
+        Connection con = null;
+        try {
+            con = openHistoryConnection(deadline);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKETS_BETWEEN, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            dataBaseConfig.applyTimeout(ps, deadline);
+            statementEvent.start();
+            ps.setFetchSize(fetchSize);
+            ps.setInt(1, lotId);
+            ps.setTimestamp(2, new Timestamp(from.getTime()));
+            ps.setTimestamp(3, new Timestamp(to.getTime()));
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                handler.onTicket(rs.getLong(1), rs.getInt(2), rs.getString(3), parkingSpotCatalog.getParkingType(rs.getInt(2)),
+                        rs.getDouble(4), rs.getTimestamp(5).getTime(), rs.getTimestamp(6));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return true;
+        }catch (Exception ex){
+            logger.error("Error streaming tickets",ex);
+            statementEvent.fail();
+            deadline.failIfExceeded(ex);
+            return false;
+        }finally {
+            statementEvent.finish();
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+
+    private Connection openHistoryConnection(Deadline deadline) throws Exception {
+        Connection con = dataBaseConfig.getReplicaConnection(deadline);
+        //plain consistent reads in autocommit mode: no row locks and no long lived snapshot on the gate tables
+        con.setReadOnly(true);
+        con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return con;
+    }
+}
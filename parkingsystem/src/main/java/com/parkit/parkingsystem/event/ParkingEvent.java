@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+//One entry, exit or spot change. Instances live in the bus ring and are overwritten, never allocated per event
+public class ParkingEvent {
+    private long sequence;
+    private ParkingEventType eventType;
+    private long eventTime;
+    private long ticketId;
+    private int parkingNumber;
+    private ParkingType parkingType;
+    private String vehicleRegNumber;
+    private double price;
+    private boolean available;
+
+    void set(long sequence, ParkingEventType eventType, long eventTime, long ticketId, int parkingNumber,
+             ParkingType parkingType, String vehicleRegNumber, double price, boolean available) {
+        this.sequence = sequence;
+        this.eventType = eventType;
+        this.eventTime = eventTime;
+        this.ticketId = ticketId;
+        this.parkingNumber = parkingNumber;
+        this.parkingType = parkingType;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.price = price;
+        this.available = available;
+    }
+
+    void copyFrom(ParkingEvent event) {
+        set(event.sequence, event.eventType, event.eventTime, event.ticketId, event.parkingNumber,
+                event.parkingType, event.vehicleRegNumber, event.price, event.available);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public ParkingEventType getEventType() {
+        return eventType;
+    }
+
+    public long getEventTime() {
+        return eventTime;
+    }
+
+    //0 for spot changes
+    public long getTicketId() {
+        return ticketId;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    //null for spot changes
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    //the fare, set on exits only
+    public double getPrice() {
+        return price;
+    }
+
+    //the spot state after a spot change
+    public boolean isAvailable() {
+        return available;
+    }
+}
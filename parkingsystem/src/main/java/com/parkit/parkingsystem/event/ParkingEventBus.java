@@ -0,0 +1,227 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//In-process publish/subscribe of entries, exits and spot changes, so that boards, billing and analytics
+//do not poll the ticket table.
+//Events are written into a preallocated ring by a single writer at a time and read by each subscriber on its
+//own thread, in batches. The writer never waits for subscribers: one that falls a whole ring behind loses
+//the overwritten events (reported through onLost) instead of slowing the gates down.
+public class ParkingEventBus {
+
+    private static final Logger logger = LogManager.getLogger("ParkingEventBus");
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final int SPINS_BEFORE_PARK = 100;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final ParkingEventBus INSTANCE = new ParkingEventBus(DEFAULT_CAPACITY);
+
+    private final ParkingEvent[] ring;
+    private final int mask;
+
+    //last sequence handed to the writer, its slot may still be being written
+    private volatile long claimed = -1;
+    //last sequence completely written
+    private volatile long published = -1;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public ParkingEventBus(int capacity) {
+        if(capacity <= 0 || Integer.bitCount(capacity) != 1){
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        ring = new ParkingEvent[capacity];
+        for(int i = 0; i < capacity; i++){
+            ring[i] = new ParkingEvent();
+        }
+        mask = capacity - 1;
+    }
+
+    public static ParkingEventBus getInstance() {
+        return INSTANCE;
+    }
+
+    public void publishEntry(Ticket ticket) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        publish(ParkingEventType.VEHICLE_ENTERED, ticket.getInTime().getTime(), ticket.getId(), parkingSpot.getId(),
+                parkingSpot, ticket.getVehicleRegNumber(), 0);
+    }
+
+    public void publishExit(Ticket ticket) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        publish(ParkingEventType.VEHICLE_EXITED, ticket.getOutTime().getTime(), ticket.getId(), parkingSpot.getId(),
+                parkingSpot, ticket.getVehicleRegNumber(), ticket.getPrice());
+    }
+
+    public void publishSpotChange(ParkingSpot parkingSpot, long eventTime) {
+        publish(ParkingEventType.SPOT_CHANGED, eventTime, 0, parkingSpot.getId(), parkingSpot, null, 0);
+    }
+
+    //gates publish from many threads, the lock makes them a single writer: sequence order is publication order
+    private synchronized void publish(ParkingEventType eventType, long eventTime, long ticketId, int parkingNumber,
+                                      ParkingSpot parkingSpot, String vehicleRegNumber, double price) {
+        long sequence = claimed + 1;
+        claimed = sequence;
+        //a reader must never see the new slot content without seeing the claim, or it could not detect the overwrite
+        VarHandle.storeStoreFence();
+        ring[(int) sequence & mask].set(sequence, eventType, eventTime, ticketId, parkingNumber,
+                parkingSpot.getParkingType(), vehicleRegNumber, price, parkingSpot.isAvailable());
+        published = sequence;
+        for(Subscription subscription : subscriptions){
+            subscription.wakeUp();
+        }
+    }
+
+    //events published from now on, delivered on a new daemon thread
+    public Subscription subscribe(String name, ParkingEventSubscriber subscriber) {
+        return subscribe(name, subscriber, DEFAULT_BATCH_SIZE);
+    }
+
+    public Subscription subscribe(String name, ParkingEventSubscriber subscriber, int batchSize) {
+        Subscription subscription = new Subscription(name, subscriber, batchSize, published + 1);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    public long getPublishedCount() {
+        return published + 1;
+    }
+
+    //stops every subscription, events published afterwards reach nobody
+    public void close() {
+        for(Subscription subscription : subscriptions){
+            subscription.close();
+        }
+    }
+
+    public final class Subscription implements AutoCloseable {
+        private final String name;
+        private final ParkingEventSubscriber subscriber;
+        private final int batchSize;
+        private final Thread thread;
+        //copy of the slot being delivered, so a writer lapping the reader cannot change it under the subscriber
+        private final ParkingEvent event = new ParkingEvent();
+        private final AtomicLong lostEvents = new AtomicLong();
+
+        private volatile boolean running = true;
+        private volatile boolean waiting;
+        private volatile long nextSequence;
+
+        private Subscription(String name, ParkingEventSubscriber subscriber, int batchSize, long nextSequence) {
+            this.name = name;
+            this.subscriber = subscriber;
+            this.batchSize = batchSize;
+            this.nextSequence = nextSequence;
+            this.thread = new Thread(this::run, "event-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            int idleSpins = 0;
+            while(running){
+                long available = published;
+                if(available < nextSequence){
+                    idleSpins = idle(idleSpins);
+                    continue;
+                }
+                idleSpins = 0;
+                readBatch(nextSequence, Math.min(available, nextSequence + batchSize - 1));
+            }
+        }
+
+        private void readBatch(long first, long last) {
+            for(long sequence = first; sequence <= last; sequence++){
+                event.copyFrom(ring[(int) sequence & mask]);
+                VarHandle.loadLoadFence();
+                long writerSequence = claimed;
+                if(writerSequence - sequence >= ring.length){
+                    //the slot was reused while or before it was copied: skip to the oldest slot still intact
+                    long resume = writerSequence - ring.length + 1;
+                    lost(resume - sequence);
+                    nextSequence = resume;
+                    return;
+                }
+                deliver(sequence == last);
+                nextSequence = sequence + 1;
+            }
+        }
+
+        private void deliver(boolean endOfBatch) {
+            try {
+                subscriber.onEvent(event, endOfBatch);
+            } catch (Exception e) {
+                logger.error("Subscriber " + name + " failed on event " + event.getSequence(), e);
+            }
+        }
+
+        private void lost(long count) {
+            lostEvents.addAndGet(count);
+            logger.warn("Subscriber " + name + " is too slow, " + count + " events lost");
+            try {
+                subscriber.onLost(count);
+            } catch (Exception e) {
+                logger.error("Subscriber " + name + " failed on lost events", e);
+            }
+        }
+
+        private int idle(int idleSpins) {
+            if(idleSpins < SPINS_BEFORE_PARK){
+                Thread.onSpinWait();
+                return idleSpins + 1;
+            }
+            waiting = true;
+            //re check after raising the flag, a publish in between would not have unparked us
+            if(published < nextSequence && running){
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+            waiting = false;
+            return idleSpins;
+        }
+
+        private void wakeUp() {
+            if(waiting){
+                LockSupport.unpark(thread);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLostEvents() {
+            return lostEvents.get();
+        }
+
+        //events published but not yet delivered
+        public long getLag() {
+            return Math.max(0, published + 1 - nextSequence);
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            subscriptions.remove(this);
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
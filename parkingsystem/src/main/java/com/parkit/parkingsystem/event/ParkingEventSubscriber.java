@@ -0,0 +1,12 @@
+package com.parkit.parkingsystem.event;
+
+public interface ParkingEventSubscriber {
+
+    //called on the subscriber thread, in publication order. The event is reused for the next call:
+    //copy what must be kept. endOfBatch is true on the last event currently available
+    void onEvent(ParkingEvent event, boolean endOfBatch) throws Exception;
+
+    //the subscriber fell more than the ring capacity behind and these events were overwritten
+    default void onLost(long lostEvents) {
+    }
+}
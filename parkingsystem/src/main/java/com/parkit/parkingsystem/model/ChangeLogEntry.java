@@ -0,0 +1,86 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+
+import java.util.Date;
+
+//One row of the change_log table: a parking row change carries its availability, a ticket row change its
+//vehicle and out time
+public class ChangeLogEntry {
+    public static final String PARKING = "parking";
+    public static final String TICKET = "ticket";
+
+    private long sequence;
+    private int lotId = DBConstants.DEFAULT_LOT_ID;
+    private String tableName;
+    private long rowId;
+    private int parkingNumber;
+    private boolean available;
+    private String vehicleRegNumber;
+    private Date outTime;
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    public void setLotId(int lotId) {
+        this.lotId = lotId;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public long getRowId() {
+        return rowId;
+    }
+
+    public void setRowId(long rowId) {
+        this.rowId = rowId;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public void setParkingNumber(int parkingNumber) {
+        this.parkingNumber = parkingNumber;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public void setVehicleRegNumber(String vehicleRegNumber) {
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    public Date getOutTime() {
+        return outTime;
+    }
+
+    public void setOutTime(Date outTime) {
+        this.outTime = outTime;
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.Date;
+
+public class SettlementCheckpoint {
+    private String jobId;
+    private Date asOf;
+    private long lastTicketId;
+    private long settled;
+    private boolean finished;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public Date getAsOf() {
+        return asOf;
+    }
+
+    public void setAsOf(Date asOf) {
+        this.asOf = asOf;
+    }
+
+    public long getLastTicketId() {
+        return lastTicketId;
+    }
+
+    public void setLastTicketId(long lastTicketId) {
+        this.lastTicketId = lastTicketId;
+    }
+
+    public long getSettled() {
+        return settled;
+    }
+
+    public void setSettled(long settled) {
+        this.settled = settled;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public void setFinished(boolean finished) {
+        this.finished = finished;
+    }
+
+}
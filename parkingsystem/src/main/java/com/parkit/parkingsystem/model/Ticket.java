@@ -4,7 +4,7 @@ import java.util.Calendar;
 import java.util.Date;
 
 public class Ticket {
-    private int id;
+    private long id;
     private ParkingSpot parkingSpot;
     private String vehicleRegNumber;
     private double price;
@@ -12,11 +12,11 @@ public class Ticket {
     private Date outTime;
     private boolean discount;
 
-    public int getId() {
+    public long getId() {
         return id;
     }
 
-    public void setId(int id) {
+    public void setId(long id) {
         this.id = id;
     }
 
@@ -60,4 +60,12 @@ public class Ticket {
         this.outTime = outTime;
     }
 
+    public boolean isDiscount() {
+        return discount;
+    }
+
+    public void setDiscount(boolean discount) {
+        this.discount = discount;
+    }
+
 }
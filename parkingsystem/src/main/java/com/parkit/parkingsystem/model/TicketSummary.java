@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Date;
+
+//Read only projection of a ticket for history listings: no ParkingSpot, and nothing to keep in sync
+public class TicketSummary {
+    private final long id;
+    private final int parkingNumber;
+    private final ParkingType parkingType;
+    private final double price;
+    private final Date inTime;
+    private final Date outTime;
+    private final boolean discount;
+
+    public TicketSummary(long id, int parkingNumber, ParkingType parkingType, double price, Date inTime, Date outTime, boolean discount) {
+        this.id = id;
+        this.parkingNumber = parkingNumber;
+        this.parkingType = parkingType;
+        this.price = price;
+        this.inTime = inTime;
+        this.outTime = outTime;
+        this.discount = discount;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public Date getInTime() {
+        return inTime;
+    }
+
+    //null while the vehicle is still parked
+    public Date getOutTime() {
+        return outTime;
+    }
+
+    public boolean isDiscount() {
+        return discount;
+    }
+}
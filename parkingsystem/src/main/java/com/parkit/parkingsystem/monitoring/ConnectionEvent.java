@@ -0,0 +1,23 @@
+package com.parkit.parkingsystem.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.parkit.parkingsystem.Connection")
+@Label("Connection Acquisition")
+@Description("Opening a JDBC connection, from the driver lookup to the authenticated session")
+@Category({"Parking System", "Database"})
+@StackTrace(false)
+public class ConnectionEvent extends Event {
+
+    @Label("Instance")
+    @Description("primary or replica")
+    public String instance;
+
+    @Label("Success")
+    public boolean success;
+}
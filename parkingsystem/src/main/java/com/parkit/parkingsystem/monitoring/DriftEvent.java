@@ -0,0 +1,33 @@
+package com.parkit.parkingsystem.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.parkit.parkingsystem.Drift")
+@Label("Drift Reconciliation")
+@Description("One window of the change log checked for spots whose availability disagrees with the open tickets")
+@Category({"Parking System", "Database"})
+@StackTrace(false)
+public class DriftEvent extends Event {
+
+    @Label("From Sequence")
+    public long fromSequence;
+
+    @Label("To Sequence")
+    public long toSequence;
+
+    @Label("Taken Without Ticket")
+    @Description("Spots marked taken with no open ticket")
+    public int takenWithoutTicket;
+
+    @Label("Free With Ticket")
+    @Description("Spots marked free with an open ticket")
+    public int freeWithTicket;
+
+    @Label("Repaired")
+    public int repaired;
+}
@@ -0,0 +1,23 @@
+package com.parkit.parkingsystem.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.parkit.parkingsystem.FareCalculation")
+@Label("Fare Calculation")
+@Category({"Parking System", "Pricing"})
+@StackTrace(false)
+public class FareCalculationEvent extends Event {
+
+    @Label("Parking Type")
+    public String parkingType;
+
+    @Label("Discount")
+    public boolean discount;
+
+    @Label("Price")
+    public double price;
+}
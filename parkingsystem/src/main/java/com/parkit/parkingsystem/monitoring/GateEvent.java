@@ -0,0 +1,34 @@
+package com.parkit.parkingsystem.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.parkit.parkingsystem.Gate")
+@Label("Gate Operation")
+@Description("A whole entry or exit at a gate, prompts and console output included: "
+        + "the time not covered by the database and fare events nested in it went to the console or to waiting")
+@Category({"Parking System", "Gate"})
+@StackTrace(false)
+public class GateEvent extends Event {
+
+    public static final String OK = "OK";
+    public static final String REJECTED = "REJECTED";
+    public static final String TIMEOUT = "TIMEOUT";
+    public static final String FAILED = "FAILED";
+
+    @Label("Operation")
+    @Description("ENTRY, EXIT or EXIT_BY_TICKET")
+    public String operation;
+
+    @Label("Outcome")
+    @Description("OK, REJECTED by admission control, TIMEOUT on a deadline or FAILED")
+    public String outcome = OK;
+
+    public GateEvent(String operation) {
+        this.operation = operation;
+    }
+}
@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.monitoring;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+//Always-on flight recording with the bundled parkit-incident.jfc profile: the last maxAge of events is kept
+//on disk and dumped when the application exits, or on demand with jcmd <pid> JFR.dump
+public class IncidentRecording {
+
+    private static final Logger logger = LogManager.getLogger("IncidentRecording");
+
+    public static final String PROFILE = "/parkit-incident.jfc";
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofMinutes(15);
+
+    private IncidentRecording() {
+    }
+
+    public static Configuration loadProfile() throws Exception {
+        try (InputStream in = IncidentRecording.class.getResourceAsStream(PROFILE)) {
+            if(in == null){
+                throw new IllegalStateException("Recording profile not found: " + PROFILE);
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return Configuration.create(reader);
+            }
+        }
+    }
+
+    public static Recording start() {
+        Duration maxAge = Duration.ofMinutes(Long.getLong("parkit.jfr.maxAgeMinutes", DEFAULT_MAX_AGE.toMinutes()));
+        Path destination = Paths.get(System.getProperty("parkit.jfr.file", "parkit-incident.jfr"));
+        return start(maxAge, destination);
+    }
+
+    //null when the recording could not be started, the application runs without it
+    public static Recording start(Duration maxAge, Path destination) {
+        try {
+            Recording recording = new Recording(loadProfile());
+            recording.setName("parkit-incident");
+            recording.setToDisk(true);
+            recording.setMaxAge(maxAge);
+            recording.setDestination(destination);
+            recording.setDumpOnExit(true);
+            recording.start();
+            logger.info("Flight recording started, dumped to " + destination + " on exit");
+            return recording;
+        } catch (Exception e) {
+            logger.error("Unable to start the flight recording", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.parkit.parkingsystem.monitoring;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+//Name of the DBConstants field holding a query, so recordings show GET_TICKET rather than the SQL text
+public class QueryNames {
+
+    private static final Map<String, String> NAMES = new HashMap<>();
+
+    static {
+        for(Field field : DBConstants.class.getFields()){
+            if(Modifier.isStatic(field.getModifiers()) && field.getType() == String.class){
+                try {
+                    NAMES.putIfAbsent((String) field.get(null), field.getName());
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private QueryNames() {
+    }
+
+    public static String of(String sql) {
+        return NAMES.getOrDefault(sql, "UNKNOWN");
+    }
+}
@@ -0,0 +1,30 @@
+package com.parkit.parkingsystem.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.parkit.parkingsystem.Startup")
+@Label("Time To First Vehicle")
+@Description("From the JVM start to the first vehicle let in, once per run")
+@Category({"Parking System", "Gate"})
+@StackTrace(false)
+public class StartupEvent extends Event {
+
+    @Label("Gate Open")
+    @Description("From the JVM start to the gate accepting vehicles")
+    @Timespan(Timespan.MILLISECONDS)
+    public long gateOpenMillis;
+
+    @Label("First Vehicle")
+    @Description("From the JVM start to the first ticket saved")
+    @Timespan(Timespan.MILLISECONDS)
+    public long firstVehicleMillis;
+
+    @Label("Warmed Up")
+    public boolean warmedUp;
+}
@@ -0,0 +1,64 @@
+package com.parkit.parkingsystem.monitoring;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Time to first vehicle: from the JVM start to the gate opening, and to the first ticket saved after it.
+//Both are logged and recorded as a Startup flight recorder event, once per run
+public class StartupTimer {
+
+    private static final Logger logger = LogManager.getLogger("StartupTimer");
+
+    private static final StartupTimer INSTANCE = new StartupTimer(ManagementFactory.getRuntimeMXBean().getStartTime(), Clock.systemUTC());
+
+    private final long startMillis;
+    private final Clock clock;
+    private final AtomicBoolean firstVehicle = new AtomicBoolean();
+    private volatile long gateOpenMillis = -1;
+    private volatile long firstVehicleMillis = -1;
+    private volatile boolean warmedUp;
+
+    public StartupTimer(long startMillis, Clock clock) {
+        this.startMillis = startMillis;
+        this.clock = clock;
+    }
+
+    public static StartupTimer getInstance() {
+        return INSTANCE;
+    }
+
+    public void gateOpened(boolean warmedUp) {
+        this.warmedUp = warmedUp;
+        gateOpenMillis = clock.millis() - startMillis;
+        logger.info("Gate open " + gateOpenMillis + "ms after the JVM start" + (warmedUp ? ", warmed up" : ""));
+    }
+
+    //called on every entry, only the first one after the gate opened counts
+    public void vehicleEntered() {
+        if(gateOpenMillis < 0 || firstVehicle.get() || !firstVehicle.compareAndSet(false, true)){
+            return;
+        }
+        firstVehicleMillis = clock.millis() - startMillis;
+        logger.info("First vehicle in " + firstVehicleMillis + "ms after the JVM start");
+        StartupEvent event = new StartupEvent();
+        if(event.shouldCommit()){
+            event.gateOpenMillis = gateOpenMillis;
+            event.firstVehicleMillis = firstVehicleMillis;
+            event.warmedUp = warmedUp;
+            event.commit();
+        }
+    }
+
+    //-1 until it happened
+    public long getGateOpenMillis() {
+        return gateOpenMillis;
+    }
+
+    public long getFirstVehicleMillis() {
+        return firstVehicleMillis;
+    }
+}
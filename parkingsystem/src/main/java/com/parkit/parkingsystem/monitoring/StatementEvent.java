@@ -0,0 +1,58 @@
+package com.parkit.parkingsystem.monitoring;
+
+import com.parkit.parkingsystem.config.Deadline;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.parkit.parkingsystem.Statement")
+@Label("DAO Statement")
+@Description("Execution of one DAO statement and the reading of its results")
+@Category({"Parking System", "Database"})
+@StackTrace(false)
+public class StatementEvent extends Event {
+
+    @Label("Query")
+    @Description("Name of the DBConstants query")
+    public String query;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Success")
+    public boolean success = true;
+
+    //transient fields are not recorded
+    private final transient String sql;
+    private transient boolean started;
+
+    public StatementEvent(String sql, Deadline deadline) {
+        this.sql = sql;
+        this.operation = deadline.getOperationType().name();
+    }
+
+    //right before execution, so the connection time is left to ConnectionEvent
+    public void start() {
+        started = true;
+        begin();
+    }
+
+    public void fail() {
+        success = false;
+    }
+
+    //from a finally block: only statements which were started are recorded
+    public void finish() {
+        if(!started){
+            return;
+        }
+        end();
+        if(shouldCommit()){
+            query = QueryNames.of(sql);
+            commit();
+        }
+    }
+}
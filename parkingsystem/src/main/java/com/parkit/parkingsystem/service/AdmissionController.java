@@ -0,0 +1,215 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.OperationType;
+import com.parkit.parkingsystem.util.LatencyTracker;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Admission in front of ParkingService: per operation type, at most limit operations run at once and at most
+//queueSize more wait for their turn, anything beyond is rejected straight away.
+//The limit adapts to the DAO latency (additive increase, multiplicative decrease) so that a slow database
+//gets less concurrent work instead of more.
+public class AdmissionController {
+
+    private static final Logger logger = LogManager.getLogger("AdmissionController");
+
+    public static final int MIN_LIMIT = 1;
+    public static final int MAX_LIMIT = 64;
+    public static final int INITIAL_LIMIT = 8;
+    public static final int DEFAULT_QUEUE_SIZE = 32;
+    public static final long DEFAULT_QUEUE_TIMEOUT_MILLIS = 2000;
+    public static final long DEFAULT_TARGET_LATENCY_MILLIS = 250;
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private static final AdmissionController INSTANCE = new AdmissionController(LatencyTracker.getInstance(),
+            DEFAULT_QUEUE_SIZE, DEFAULT_QUEUE_TIMEOUT_MILLIS, DEFAULT_TARGET_LATENCY_MILLIS);
+
+    private final LatencyTracker latencyTracker;
+    private final int queueSize;
+    private final long queueTimeoutNanos;
+    private final double targetLatencyMillis;
+    private final Map<OperationType, Lane> lanes = new EnumMap<>(OperationType.class);
+
+    public AdmissionController(LatencyTracker latencyTracker, int queueSize, long queueTimeoutMillis, long targetLatencyMillis) {
+        this.latencyTracker = latencyTracker;
+        this.queueSize = queueSize;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        this.targetLatencyMillis = targetLatencyMillis;
+        for(OperationType operationType : OperationType.values()){
+            lanes.put(operationType, new Lane(operationType));
+        }
+    }
+
+    public static AdmissionController getInstance() {
+        return INSTANCE;
+    }
+
+    //waits in the bounded queue for at most the queue timeout
+    public Permit acquire(OperationType operationType) {
+        return lanes.get(operationType).acquire();
+    }
+
+    //never waits, rejects when the limit is reached: for callers that must not block, such as the async flows
+    public Permit tryAcquire(OperationType operationType) {
+        return lanes.get(operationType).tryAcquire();
+    }
+
+    public int getLimit(OperationType operationType) {
+        Lane lane = lanes.get(operationType);
+        lane.lock.lock();
+        try {
+            return (int) lane.limit;
+        } finally {
+            lane.lock.unlock();
+        }
+    }
+
+    public int getInFlight(OperationType operationType) {
+        Lane lane = lanes.get(operationType);
+        lane.lock.lock();
+        try {
+            return lane.inFlight;
+        } finally {
+            lane.lock.unlock();
+        }
+    }
+
+    public long getRejected(OperationType operationType) {
+        Lane lane = lanes.get(operationType);
+        lane.lock.lock();
+        try {
+            return lane.rejected;
+        } finally {
+            lane.lock.unlock();
+        }
+    }
+
+    public static final class Permit implements AutoCloseable {
+        private final Lane lane;
+        private boolean released;
+        private boolean overloaded;
+
+        private Permit(Lane lane) {
+            this.lane = lane;
+        }
+
+        //the operation ran out of time: the limit backs off whatever the average latency says
+        public void markOverloaded() {
+            overloaded = true;
+        }
+
+        @Override
+        public void close() {
+            if(!released){
+                released = true;
+                lane.release(overloaded);
+            }
+        }
+    }
+
+    private final class Lane {
+        private final OperationType operationType;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition available = lock.newCondition();
+
+        private double limit = INITIAL_LIMIT;
+        private int inFlight;
+        private int queued;
+        private long rejected;
+        private long lastBackoffNanos;
+
+        private Lane(OperationType operationType) {
+            this.operationType = operationType;
+            this.lastBackoffNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos((long) targetLatencyMillis);
+        }
+
+        private Permit acquire() {
+            lock.lock();
+            try {
+                if(queued == 0 && hasCapacity()){
+                    inFlight++;
+                    return new Permit(this);
+                }
+                if(queued >= queueSize){
+                    throw reject(operationType + " admission queue is full");
+                }
+                queued++;
+                try {
+                    long nanos = queueTimeoutNanos;
+                    while(!hasCapacity()){
+                        if(nanos <= 0){
+                            throw reject(operationType + " not admitted within " + TimeUnit.NANOSECONDS.toMillis(queueTimeoutNanos) + "ms");
+                        }
+                        nanos = available.awaitNanos(nanos);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejected++;
+                    throw new AdmissionRejectedException("Interrupted while waiting for " + operationType + " admission", e);
+                } finally {
+                    queued--;
+                }
+                inFlight++;
+                return new Permit(this);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Permit tryAcquire() {
+            lock.lock();
+            try {
+                if(queued == 0 && hasCapacity()){
+                    inFlight++;
+                    return new Permit(this);
+                }
+                throw reject(operationType + " is at its concurrency limit");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void release(boolean overloaded) {
+            lock.lock();
+            try {
+                boolean limitReached = !hasCapacity();
+                inFlight--;
+                adapt(overloaded, limitReached);
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void adapt(boolean overloaded, boolean limitReached) {
+            long now = System.nanoTime();
+            if(overloaded || latencyTracker.getAverageMillis(operationType) > targetLatencyMillis){
+                //back off at most once per target latency, the average needs that long to reflect the previous cut
+                if(now - lastBackoffNanos >= TimeUnit.MILLISECONDS.toNanos((long) targetLatencyMillis)){
+                    lastBackoffNanos = now;
+                    limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+                    logger.warn(operationType + " concurrency limit lowered to " + (int) limit);
+                }
+            } else if(limitReached){
+                //only grow a limit that is actually in use, about one step per limit completions
+                limit = Math.min(MAX_LIMIT, limit + 1 / limit);
+            }
+        }
+
+        private boolean hasCapacity() {
+            return inFlight < (int) limit;
+        }
+
+        private AdmissionRejectedException reject(String message) {
+            rejected++;
+            return new AdmissionRejectedException(message);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.ChangeLogEntry;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+//Local cache kept in line by ChangeLogPoller. Changes may be delivered again, including this instance's own
+//changes, so applying one must be idempotent.
+public interface ChangeLogListener {
+
+    void onSpotChange(ParkingSpot parkingSpot);
+
+    default void onTicketChange(ChangeLogEntry entry) {
+    }
+}
@@ -0,0 +1,182 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ChangeLogDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
+import com.parkit.parkingsystem.model.ChangeLogEntry;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+//Keeps the in-memory caches of this instance in line with the changes made by every instance sharing the
+//database: polls the change_log table for the changes after the last one applied and hands them to the
+//listeners, so no cache ever re-reads a whole table.
+//Sequences are allocated when a row is inserted but become visible at commit, so a change can show up
+//after higher ones: they are applied as they come and the applied sequence only moves past a gap once it
+//is filled, or after the gap timeout for a rolled back transaction which will never fill it.
+//The caches are stale when no poll succeeded within the max staleness, their users then fall back to the
+//database.
+//One poller serves every lot of the process: each change goes to the listeners of its lot only.
+public class ChangeLogPoller implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("ChangeLogPoller");
+
+    public static final long DEFAULT_POLL_MILLIS = 1000;
+    public static final long DEFAULT_MAX_STALENESS_MILLIS = 10000;
+    public static final int BATCH_SIZE = 500;
+
+    private static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final ChangeLogDAO changeLogDAO;
+    private final IntFunction<ParkingSpotCatalog> parkingSpotCatalogs;
+    private final Clock clock;
+    private final long pollMillis;
+    private final long maxStalenessMillis;
+    private final long gapTimeoutMillis;
+    private final Map<Integer, List<ChangeLogListener>> listeners = new ConcurrentHashMap<>();
+
+    //every change up to this sequence has been applied
+    private long appliedUpTo;
+    //changes applied beyond a gap
+    private final TreeSet<Long> appliedAbove = new TreeSet<>();
+    private long gapSince = -1;
+    private long lastPurge;
+    private volatile long lastPoll;
+    private ScheduledExecutorService scheduler;
+
+    //parkingSpotCatalogs gives the catalog of a lot, typically ParkingSpotCatalog::forLot
+    public ChangeLogPoller(ChangeLogDAO changeLogDAO, IntFunction<ParkingSpotCatalog> parkingSpotCatalogs, Clock clock,
+                           long pollMillis, long maxStalenessMillis) {
+        this.changeLogDAO = changeLogDAO;
+        this.parkingSpotCatalogs = parkingSpotCatalogs;
+        this.clock = clock;
+        this.pollMillis = pollMillis;
+        this.maxStalenessMillis = maxStalenessMillis;
+        //a gap is waited for at most half the staleness, what is behind it must still be applied in time
+        this.gapTimeoutMillis = maxStalenessMillis / 2;
+        this.lastPoll = clock.millis();
+        this.lastPurge = lastPoll;
+    }
+
+    //listener of the default lot
+    public void addListener(ChangeLogListener listener) {
+        addListener(DBConstants.DEFAULT_LOT_ID, listener);
+    }
+
+    public void addListener(int lotId, ChangeLogListener listener) {
+        listeners.computeIfAbsent(lotId, id -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    //the caches were loaded from the tables after reading fromSequence with ChangeLogDAO.getLastSequence
+    public synchronized void start(long fromSequence) {
+        appliedUpTo = fromSequence;
+        lastPoll = clock.millis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-log-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        logger.info("Polling changes after sequence " + fromSequence + " every " + pollMillis + "ms");
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (Exception e) {
+            logger.error("Error polling changes", e);
+        }
+    }
+
+    //applies every change visible now, false when the change log could not be read
+    public synchronized boolean poll() {
+        long now = clock.millis();
+        //pages go on from the last change read, not from the applied sequence: a gap held open by a pending
+        //transaction must not keep the changes behind it waiting for the gap timeout
+        long readUpTo = appliedUpTo;
+        List<ChangeLogEntry> entries;
+        do{
+            entries = changeLogDAO.getChangesSince(readUpTo, BATCH_SIZE);
+            if(entries == null){
+                return false;
+            }
+            for(ChangeLogEntry entry : entries){
+                if(appliedAbove.add(entry.getSequence())){
+                    apply(entry);
+                }
+                readUpTo = Math.max(readUpTo, entry.getSequence());
+            }
+            advance(now);
+            //a short batch is the end of the log
+        }while(entries.size() == BATCH_SIZE);
+        lastPoll = now;
+        if(now - lastPurge >= PURGE_INTERVAL_MILLIS){
+            lastPurge = now;
+            changeLogDAO.purgeChangesBefore(new Date(now - RETENTION_MILLIS));
+        }
+        return true;
+    }
+
+    private void advance(long now) {
+        while(appliedAbove.remove(appliedUpTo + 1)){
+            appliedUpTo++;
+        }
+        if(appliedAbove.isEmpty()){
+            gapSince = -1;
+        }else if(gapSince < 0){
+            gapSince = now;
+        }else if(now - gapSince >= gapTimeoutMillis){
+            long next = appliedAbove.first();
+            logger.warn("Changes " + (appliedUpTo + 1) + " to " + (next - 1) + " never showed up, skipping them");
+            appliedUpTo = next - 1;
+            gapSince = -1;
+            advance(now);
+        }
+    }
+
+    private void apply(ChangeLogEntry entry) {
+        for(ChangeLogListener listener : listeners.getOrDefault(entry.getLotId(), Collections.emptyList())){
+            try {
+                if(ChangeLogEntry.PARKING.equals(entry.getTableName())){
+                    ParkingType parkingType = parkingSpotCatalogs.apply(entry.getLotId()).getParkingType(entry.getParkingNumber());
+                    listener.onSpotChange(new ParkingSpot(entry.getParkingNumber(), parkingType, entry.isAvailable()));
+                }else if(ChangeLogEntry.TICKET.equals(entry.getTableName())){
+                    listener.onTicketChange(entry);
+                }
+            } catch (Exception e) {
+                logger.error("Error applying change " + entry.getSequence(), e);
+            }
+        }
+    }
+
+    public synchronized long getAppliedSequence() {
+        return appliedUpTo;
+    }
+
+    public boolean isStale() {
+        return clock.millis() - lastPoll > maxStalenessMillis;
+    }
+
+    @Override
+    public synchronized void close() {
+        if(scheduler != null){
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
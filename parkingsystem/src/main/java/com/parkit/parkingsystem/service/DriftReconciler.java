@@ -0,0 +1,152 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.DriftDAO;
+import com.parkit.parkingsystem.monitoring.DriftEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Finds the spots whose availability disagrees with the open tickets: gates update parking and ticket in
+//separate calls, so a crash or a timeout between the two leaves a spot taken with no ticket, or free with one.
+//Only the spots found in the change log since the last run are checked, a window at a time, so a run costs
+//the same whatever the size of the history. Changes younger than the grace period are left for the next run,
+//they may belong to a gate still at work.
+//Drift is counted and logged, and repaired when enabled: a spot with no open ticket is set free and a spot
+//with one is set taken.
+public class DriftReconciler implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("DriftReconciler");
+
+    public static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    public static final long DEFAULT_GRACE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    public static final int WINDOW_SIZE = 5000;
+    public static final int MAX_WINDOWS_PER_RUN = 10;
+
+    private final DriftDAO driftDAO;
+    private final Clock clock;
+    private final long intervalMillis;
+    private final long graceMillis;
+    private final boolean repair;
+
+    //every change up to this sequence has been checked
+    private long reconciledUpTo;
+    private final AtomicLong takenWithoutTicket = new AtomicLong();
+    private final AtomicLong freeWithTicket = new AtomicLong();
+    private final AtomicLong repaired = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+
+    public DriftReconciler(DriftDAO driftDAO, Clock clock, long intervalMillis, long graceMillis, boolean repair) {
+        this.driftDAO = driftDAO;
+        this.clock = clock;
+        this.intervalMillis = intervalMillis;
+        this.graceMillis = graceMillis;
+        this.repair = repair;
+    }
+
+    //fromSequence is typically ChangeLogDAO.getLastSequence at startup: older drift is not looked for
+    public synchronized void start(long fromSequence) {
+        reconciledUpTo = fromSequence;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "drift-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcileQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Reconciling changes after sequence " + fromSequence + " every " + intervalMillis + "ms" + (repair ? ", with repair" : ""));
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("Error reconciling spots", e);
+        }
+    }
+
+    //checks the changes older than the grace period, at most MAX_WINDOWS_PER_RUN windows of them,
+    //false when the database could not be read
+    public synchronized boolean reconcile() {
+        Date cutoff = new Date(clock.millis() - graceMillis);
+        for(int window = 0; window < MAX_WINDOWS_PER_RUN; window++){
+            long to = driftDAO.getLastChangeBefore(reconciledUpTo, WINDOW_SIZE, cutoff);
+            if(to < 0){
+                return false;
+            }
+            if(to == reconciledUpTo){
+                return true;
+            }
+            if(!reconcile(reconciledUpTo, to)){
+                return false;
+            }
+            reconciledUpTo = to;
+        }
+        return true;
+    }
+
+    private boolean reconcile(long from, long to) {
+        DriftEvent event = new DriftEvent();
+        event.begin();
+        List<Integer> taken = driftDAO.getTakenSpotsWithoutTicket(from, to);
+        List<Integer> free = driftDAO.getFreeSpotsWithTicket(from, to);
+        if(taken == null || free == null){
+            return false;
+        }
+        takenWithoutTicket.addAndGet(taken.size());
+        freeWithTicket.addAndGet(free.size());
+        if(!taken.isEmpty()){
+            logger.warn("Spots taken without an open ticket: " + taken);
+        }
+        if(!free.isEmpty()){
+            logger.warn("Spots free with an open ticket: " + free);
+        }
+        int fixed = 0;
+        if(repair){
+            //a failed repair is not retried: those spots are reported again with their next change
+            fixed += Math.max(0, taken.isEmpty() ? 0 : driftDAO.freeSpotsWithoutTicket(taken));
+            fixed += Math.max(0, free.isEmpty() ? 0 : driftDAO.takeSpotsWithTicket(free));
+            repaired.addAndGet(fixed);
+        }
+        event.end();
+        if(event.shouldCommit()){
+            event.fromSequence = from;
+            event.toSequence = to;
+            event.takenWithoutTicket = taken.size();
+            event.freeWithTicket = free.size();
+            event.repaired = fixed;
+            event.commit();
+        }
+        return true;
+    }
+
+    public synchronized long getReconciledSequence() {
+        return reconciledUpTo;
+    }
+
+    //totals since startup
+    public long getTakenWithoutTicket() {
+        return takenWithoutTicket.get();
+    }
+
+    public long getFreeWithTicket() {
+        return freeWithTicket.get();
+    }
+
+    public long getRepaired() {
+        return repaired.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        if(scheduler != null){
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -2,15 +2,30 @@ package com.parkit.parkingsystem.service;
 
 import com.parkit.parkingsystem.constants.Fare;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.monitoring.FareCalculationEvent;
 
 public class FareCalculatorService {
 
     public double freeDuration = 0.5;
     public double discountRate = 0.95;
+    public final double carRatePerHour;
+    public final double bikeRatePerHour;
 
     private long hourInMillis = 60 * 60 * 1000;
 
+    public FareCalculatorService(){
+        this(Fare.CAR_RATE_PER_HOUR, Fare.BIKE_RATE_PER_HOUR);
+    }
+
+    //the rates cannot change under a service already shared by the gates and the settlement job
+    public FareCalculatorService(double carRatePerHour, double bikeRatePerHour){
+        this.carRatePerHour = carRatePerHour;
+        this.bikeRatePerHour = bikeRatePerHour;
+    }
+
     public void calculateFare(Ticket ticket, boolean discount){
+        FareCalculationEvent event = new FareCalculationEvent();
+        event.begin();
         if( (ticket.getInTime() == null)){
             throw new IllegalArgumentException("In time provided is incorrect: NULL");
         }
@@ -29,11 +44,11 @@ public class FareCalculatorService {
         } else {
             switch (ticket.getParkingSpot().getParkingType()){
                 case CAR: {
-                    ticket.setPrice(duration * Fare.CAR_RATE_PER_HOUR);
+                    ticket.setPrice(duration * carRatePerHour);
                     break;
                 }
                 case BIKE: {
-                    ticket.setPrice(duration * Fare.BIKE_RATE_PER_HOUR);
+                    ticket.setPrice(duration * bikeRatePerHour);
                     break;
                 }
                 default: throw new IllegalArgumentException("Unkown Parking Type");
@@ -43,6 +58,13 @@ public class FareCalculatorService {
             ticket.setPrice(discountRate * ticket.getPrice());
         }
 
+        event.end();
+        if(event.shouldCommit()){
+            event.parkingType = ticket.getParkingSpot().getParkingType().name();
+            event.discount = discount;
+            event.price = ticket.getPrice();
+            event.commit();
+        }
     }
 
     public void calculateFare(Ticket ticket){
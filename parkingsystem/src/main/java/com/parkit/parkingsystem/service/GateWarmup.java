@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.Deadline;
+import com.parkit.parkingsystem.constants.OperationType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+//Runs the code paths of an entry and an exit before the gate opens instead of on the first vehicle: class
+//loading and JIT of the DAOs and the fare calculation, JDBC driver registration, the read queries of an
+//entry and an exit, and the database executor threads.
+//Connections are not kept: there is no pool and every DAO call opens its own, so the first vehicle still
+//pays for connecting (TCP, TLS and authentication). Opening one to the primary and one to the replica here
+//only checks both answer before the gate opens.
+//Nothing is written. Failures are logged and ignored, the gate then opens cold.
+public class GateWarmup {
+
+    private static final Logger logger = LogManager.getLogger("GateWarmup");
+
+    //not a valid plate, so no ticket is ever found for it
+    public static final String WARMUP_VEHICLE_REG_NUMBER = "#WARMUP";
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketDAO ticketDAO;
+    private final FareCalculatorService fareCalculatorService;
+
+    public GateWarmup(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, FareCalculatorService fareCalculatorService) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketDAO = ticketDAO;
+        this.fareCalculatorService = fareCalculatorService;
+    }
+
+    //time taken, in milliseconds
+    public long run() {
+        long start = System.nanoTime();
+        connect(ticketDAO.dataBaseConfig, true);
+        connect(ticketDAO.dataBaseConfig, false);
+        try {
+            for(ParkingType parkingType : new ParkingType[]{ParkingType.CAR, ParkingType.BIKE}){
+                parkingSpotDAO.getNextAvailableSlot(parkingType);
+                price(parkingType);
+            }
+            ticketDAO.getNbTicket(WARMUP_VEHICLE_REG_NUMBER);
+            ticketDAO.getTicket(WARMUP_VEHICLE_REG_NUMBER);
+            ticketDAO.getTicketAsync(WARMUP_VEHICLE_REG_NUMBER).get(1, TimeUnit.MINUTES);
+        } catch (Exception e) {
+            logger.warn("Warm-up incomplete", e);
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Gate warmed up in " + elapsed + "ms");
+        return elapsed;
+    }
+
+    //opened and closed again, see the class comment
+    private void connect(DataBaseConfig dataBaseConfig, boolean primary) {
+        Deadline deadline = Deadline.start(OperationType.ENTRY);
+        Connection con = null;
+        try {
+            con = primary ? dataBaseConfig.getConnection(deadline) : dataBaseConfig.getReplicaConnection(deadline);
+        } catch (Exception e) {
+            logger.warn("Unable to warm up the " + (primary ? "primary" : "replica") + " connection", e);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+            deadline.close();
+        }
+    }
+
+    private void price(ParkingType parkingType) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(0, parkingType, false));
+        ticket.setVehicleRegNumber(WARMUP_VEHICLE_REG_NUMBER);
+        ticket.setOutTime(new Date());
+        ticket.setInTime(new Date(ticket.getOutTime().getTime() - TimeUnit.HOURS.toMillis(1)));
+        fareCalculatorService.calculateFare(ticket, true);
+    }
+}
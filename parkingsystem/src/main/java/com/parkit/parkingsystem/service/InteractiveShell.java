@@ -1,11 +1,15 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.dao.ChangeLogDAO;
+import com.parkit.parkingsystem.monitoring.StartupTimer;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Clock;
+import java.util.Arrays;
+
 public class InteractiveShell {
 
     private static final Logger logger = LogManager.getLogger("InteractiveShell");
@@ -16,9 +20,23 @@ public class InteractiveShell {
 
         boolean continueApp = true;
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
-        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
-        TicketDAO ticketDAO = new TicketDAO();
-        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        //this console is the gate of one lot, the process may host more
+        int lotId = Integer.getInteger("parkit.lot.id", DBConstants.DEFAULT_LOT_ID);
+        int[] lotIds = ParkingLotRegistry.parseLotIds(System.getProperty("parkit.lots", String.valueOf(lotId)));
+        if(Arrays.stream(lotIds).noneMatch(id -> id == lotId)){
+            lotIds = Arrays.copyOf(lotIds, lotIds.length + 1);
+            lotIds[lotIds.length - 1] = lotId;
+        }
+        ParkingLotRegistry parkingLotRegistry = new ParkingLotRegistry(new ChangeLogDAO(), Clock.systemUTC());
+        parkingLotRegistry.open(lotIds, id -> inputReaderUtil);
+        ParkingLot parkingLot = parkingLotRegistry.get(lotId);
+        ParkingService parkingService = parkingLot.getParkingService();
+        boolean fastStart = Boolean.getBoolean("parkit.fastStart");
+        if(fastStart){
+            //the caches loaded above already registered the driver, what is left is the gate's own code paths
+            new GateWarmup(parkingLot.getParkingSpotDAO(), parkingLot.getTicketDAO(), new FareCalculatorService()).run();
+        }
+        StartupTimer.getInstance().gateOpened(fastStart);
 
         while(continueApp){
             loadMenu();
@@ -41,6 +59,10 @@ public class InteractiveShell {
                     continueApp = false;
                     break;
                 }
+                case 4: {
+                    parkingService.processExitingVehicleByTicketId();
+                    break;
+                }
                 default: System.out.println("Unsupported option. Please enter a number corresponding to the provided menu");
             }
         }
@@ -51,6 +73,7 @@ public class InteractiveShell {
         System.out.println("1 New Vehicle Entering - Allocate Parking Space");
         System.out.println("2 Vehicle Exiting - Generate Ticket Price");
         System.out.println("3 Shutdown System");
+        System.out.println("4 Vehicle Exiting With Ticket Number - Generate Ticket Price");
     }
 
 }
@@ -0,0 +1,136 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DeadlineExceededException;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//Live occupied/free counts per ParkingType, kept in memory from every claim and release so that a full lot is
+//refused before any query and display boards never read the parking table.
+//A per spot state makes claim and release idempotent: a spot is only counted once whatever the retries.
+//The counts are a fast path, the parking table stays the authority on which spot is free.
+public class OccupancyCounters {
+
+    private static final Logger logger = LogManager.getLogger("OccupancyCounters");
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+    private static final int FREE = 0;
+    private static final int OCCUPIED = 1;
+
+    private final ParkingSpotCatalog parkingSpotCatalog;
+
+    private volatile State state;
+
+    //replaced as a whole on load, so a reload never mixes old and new counts
+    private static final class State {
+        private final AtomicIntegerArray spotStates;
+        private final LongAdder[] occupied = new LongAdder[PARKING_TYPES.length];
+        private final int[] capacities = new int[PARKING_TYPES.length];
+
+        private State(int maxParkingNumber) {
+            spotStates = new AtomicIntegerArray(maxParkingNumber + 1);
+            for(int i = 0; i < occupied.length; i++){
+                occupied[i] = new LongAdder();
+            }
+        }
+    }
+
+    public OccupancyCounters(ParkingSpotCatalog parkingSpotCatalog) {
+        this.parkingSpotCatalog = parkingSpotCatalog;
+    }
+
+    public boolean load(ParkingSpotDAO parkingSpotDAO) {
+        int[] occupiedParkingNumbers;
+        try{
+            occupiedParkingNumbers = parkingSpotDAO.getOccupiedParkingNumbers();
+        }catch(DeadlineExceededException ex){
+            logger.error("Occupied spots not read in time, the counters are left out", ex);
+            return false;
+        }
+        if(occupiedParkingNumbers == null){
+            return false;
+        }
+        load(occupiedParkingNumbers);
+        return true;
+    }
+
+    public void load(int[] occupiedParkingNumbers) {
+        State loaded = new State(parkingSpotCatalog.getMaxParkingNumber());
+        for(ParkingType parkingType : PARKING_TYPES){
+            loaded.capacities[parkingType.ordinal()] = parkingSpotCatalog.getCapacity(parkingType);
+        }
+        for(int parkingNumber : occupiedParkingNumbers){
+            if(parkingNumber < 0 || parkingNumber >= loaded.spotStates.length()){
+                continue;
+            }
+            ParkingType parkingType = parkingSpotCatalog.getParkingType(parkingNumber);
+            if(parkingType != ParkingType.UNKNOWN && loaded.spotStates.compareAndSet(parkingNumber, FREE, OCCUPIED)){
+                loaded.occupied[parkingType.ordinal()].increment();
+            }
+        }
+        state = loaded;
+        logger.info("Loaded occupancy counters, " + occupiedParkingNumbers.length + " spots occupied");
+    }
+
+    public boolean isLoaded() {
+        return state != null;
+    }
+
+    //true when the spot was free and is now counted as occupied
+    public boolean claim(ParkingSpot parkingSpot) {
+        return update(parkingSpot, FREE, OCCUPIED, 1);
+    }
+
+    //true when the spot was occupied and is now counted as free
+    public boolean release(ParkingSpot parkingSpot) {
+        return update(parkingSpot, OCCUPIED, FREE, -1);
+    }
+
+    private boolean update(ParkingSpot parkingSpot, int expected, int next, int delta) {
+        State current = state;
+        int parkingNumber = parkingSpot.getId();
+        if(current == null || parkingSpot.getParkingType() == ParkingType.UNKNOWN){
+            return false;
+        }
+        if(parkingNumber < 0 || parkingNumber >= current.spotStates.length()){
+            logger.warn("Spot number " + parkingNumber + " is not in the occupancy counters, they need a reload");
+            return false;
+        }
+        if(!current.spotStates.compareAndSet(parkingNumber, expected, next)){
+            return false;
+        }
+        current.occupied[parkingSpot.getParkingType().ordinal()].add(delta);
+        return true;
+    }
+
+    //never full before the counters are loaded: the query then decides
+    public boolean isFull(ParkingType parkingType) {
+        State current = state;
+        return current != null && getOccupied(current, parkingType) >= current.capacities[parkingType.ordinal()];
+    }
+
+    public int getOccupied(ParkingType parkingType) {
+        State current = state;
+        return (current == null) ? 0 : getOccupied(current, parkingType);
+    }
+
+    public int getFree(ParkingType parkingType) {
+        State current = state;
+        return (current == null) ? 0 : Math.max(0, current.capacities[parkingType.ordinal()] - getOccupied(current, parkingType));
+    }
+
+    public int getCapacity(ParkingType parkingType) {
+        State current = state;
+        return (current == null) ? 0 : current.capacities[parkingType.ordinal()];
+    }
+
+    private static int getOccupied(State current, ParkingType parkingType) {
+        return (int) current.occupied[parkingType.ordinal()].sum();
+    }
+}
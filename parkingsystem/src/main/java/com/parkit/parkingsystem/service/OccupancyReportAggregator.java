@@ -0,0 +1,110 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ReportGranularity;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Map;
+
+public class OccupancyReportAggregator implements TicketHistoryDAO.TicketEventHandler {
+
+    public static final String HEADER = "period_start,parking_type,entries,exits,revenue,average_stay_minutes,peak_occupancy";
+
+    private static final DateTimeFormatter PERIOD_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final double minuteInMillis = 60 * 1000;
+
+    private final ReportGranularity granularity;
+    private final Writer writer;
+    private final long end;
+
+    //one slot per ParkingType ordinal, reset at each period boundary
+    private final long[] entries = new long[ParkingType.values().length];
+    private final long[] exits = new long[ParkingType.values().length];
+    private final long[] stayMillis = new long[ParkingType.values().length];
+    private final double[] revenue = new double[ParkingType.values().length];
+    private final int[] occupancy = new int[ParkingType.values().length];
+    private final int[] peakOccupancy = new int[ParkingType.values().length];
+
+    private ZonedDateTime periodStart;
+    private long periodEnd;
+
+    public OccupancyReportAggregator(long start, long end, ReportGranularity granularity, ZoneId zone,
+                                     Map<ParkingType, Integer> initialOccupancy, Writer writer) {
+        this.granularity = granularity;
+        this.writer = writer;
+        this.end = end;
+        for(Map.Entry<ParkingType, Integer> entry : initialOccupancy.entrySet()){
+            occupancy[entry.getKey().ordinal()] = entry.getValue();
+            peakOccupancy[entry.getKey().ordinal()] = entry.getValue();
+        }
+        periodStart = truncate(Instant.ofEpochMilli(start).atZone(zone));
+        periodEnd = nextPeriod(periodStart).toInstant().toEpochMilli();
+    }
+
+    public void writeHeader() throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+    }
+
+    @Override
+    public void onEvent(long eventTime, int delta, ParkingType parkingType, double price, long inTime) throws IOException {
+        while(eventTime >= periodEnd){
+            closePeriod();
+        }
+        int type = parkingType.ordinal();
+        occupancy[type] += delta;
+        if(delta > 0){
+            entries[type]++;
+            peakOccupancy[type] = Math.max(peakOccupancy[type], occupancy[type]);
+        } else {
+            exits[type]++;
+            revenue[type] += price;
+            stayMillis[type] += eventTime - inTime;
+        }
+    }
+
+    public void finish() throws IOException {
+        while(periodStart.toInstant().toEpochMilli() < end){
+            closePeriod();
+        }
+        writer.flush();
+    }
+
+    private void closePeriod() throws IOException {
+        String period = PERIOD_FORMAT.format(periodStart);
+        for(ParkingType parkingType : ParkingType.values()){
+            if(parkingType == ParkingType.UNKNOWN){
+                continue;
+            }
+            int type = parkingType.ordinal();
+            double averageStay = (exits[type] == 0) ? 0 : stayMillis[type] / (exits[type] * minuteInMillis);
+            writer.write(period + "," + parkingType + "," + entries[type] + "," + exits[type] + ","
+                    + String.format(Locale.ROOT, "%.2f", revenue[type]) + "," + String.format(Locale.ROOT, "%.1f", averageStay) + "," + peakOccupancy[type]);
+            writer.write('\n');
+            entries[type] = 0;
+            exits[type] = 0;
+            stayMillis[type] = 0;
+            revenue[type] = 0;
+            //vehicles still parked carry over to the next period
+            peakOccupancy[type] = occupancy[type];
+        }
+        periodStart = nextPeriod(periodStart);
+        periodEnd = nextPeriod(periodStart).toInstant().toEpochMilli();
+    }
+
+    private ZonedDateTime truncate(ZonedDateTime time) {
+        return time.truncatedTo(granularity == ReportGranularity.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+    }
+
+    private ZonedDateTime nextPeriod(ZonedDateTime time) {
+        return granularity == ReportGranularity.HOUR ? time.plusHours(1) : time.plusDays(1);
+    }
+}
@@ -0,0 +1,208 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+//Arrivals, exits and occupancy per ParkingType for the last 24 hours at minute resolution, and for the last
+//30 days at hour resolution, fed by ParkingService on every entry and exit.
+//Buckets are primitive arrays used as rings indexed by minute (or hour) since the epoch. Every query reads
+//one bucket or one running total, so it costs the same whatever the traffic.
+//Events reported late are counted in the current minute.
+public class OccupancyTimeSeries {
+
+    public static final int MINUTES = 24 * 60;
+    public static final int HOURS = 30 * 24;
+
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int TYPES = ParkingType.values().length;
+    private static final long NO_BUCKET = Long.MIN_VALUE;
+
+    //bucket arrays are indexed by type ordinal * ring size + slot
+    private final int[] minuteArrivals = new int[TYPES * MINUTES];
+    private final int[] minuteExits = new int[TYPES * MINUTES];
+    private final int[] minutePeaks = new int[TYPES * MINUTES];
+    private final int[] minuteOccupancies = new int[TYPES * MINUTES];
+    private final long[] minuteIds = new long[MINUTES];
+
+    private final int[] hourArrivals = new int[TYPES * HOURS];
+    private final int[] hourExits = new int[TYPES * HOURS];
+    private final int[] hourPeaks = new int[TYPES * HOURS];
+    private final int[] hourOccupancies = new int[TYPES * HOURS];
+    private final long[] hourIds = new long[HOURS];
+
+    private final int[] occupancy = new int[TYPES];
+    //totals of the minute ring, kept up to date as buckets are added and evicted
+    private final long[] arrivalsLastDay = new long[TYPES];
+    private final long[] exitsLastDay = new long[TYPES];
+
+    private long currentMinute = NO_BUCKET;
+
+    public OccupancyTimeSeries() {
+        Arrays.fill(minuteIds, NO_BUCKET);
+        Arrays.fill(hourIds, NO_BUCKET);
+    }
+
+    //vehicles already parked when the series starts, typically from OccupancyCounters
+    public synchronized void setOccupancy(ParkingType parkingType, int vehicles, long time) {
+        advance(time);
+        int type = parkingType.ordinal();
+        occupancy[type] = vehicles;
+        int slot = minuteSlot(currentMinute);
+        minuteOccupancies[type * MINUTES + slot] = vehicles;
+        minutePeaks[type * MINUTES + slot] = Math.max(minutePeaks[type * MINUTES + slot], vehicles);
+        updateCurrentHour(type, currentMinute, 0, 0);
+    }
+
+    public synchronized void recordEntry(ParkingType parkingType, long time) {
+        record(parkingType.ordinal(), time, 1);
+    }
+
+    public synchronized void recordExit(ParkingType parkingType, long time) {
+        record(parkingType.ordinal(), time, -1);
+    }
+
+    private void record(int type, long time, int delta) {
+        advance(time);
+        occupancy[type] = Math.max(0, occupancy[type] + delta);
+        int index = type * MINUTES + minuteSlot(currentMinute);
+        if(delta > 0){
+            minuteArrivals[index]++;
+            arrivalsLastDay[type]++;
+        }else{
+            minuteExits[index]++;
+            exitsLastDay[type]++;
+        }
+        minuteOccupancies[index] = occupancy[type];
+        minutePeaks[index] = Math.max(minutePeaks[index], occupancy[type]);
+        updateCurrentHour(type, currentMinute, delta > 0 ? 1 : 0, delta < 0 ? 1 : 0);
+    }
+
+    public synchronized int getOccupancy(ParkingType parkingType) {
+        return occupancy[parkingType.ordinal()];
+    }
+
+    public synchronized long getArrivalsLastDay(ParkingType parkingType, long now) {
+        advance(now);
+        return arrivalsLastDay[parkingType.ordinal()];
+    }
+
+    public synchronized long getExitsLastDay(ParkingType parkingType, long now) {
+        advance(now);
+        return exitsLastDay[parkingType.ordinal()];
+    }
+
+    //per minute values are 0 for minutes older than 24 hours
+    public synchronized int getArrivalsInMinute(ParkingType parkingType, long time) {
+        return minuteValue(minuteArrivals, parkingType, time);
+    }
+
+    public synchronized int getExitsInMinute(ParkingType parkingType, long time) {
+        return minuteValue(minuteExits, parkingType, time);
+    }
+
+    public synchronized int getPeakOccupancyInMinute(ParkingType parkingType, long time) {
+        return minuteValue(minutePeaks, parkingType, time);
+    }
+
+    //occupancy at the end of the minute, the current one for the minute in progress
+    public synchronized int getOccupancyAtMinute(ParkingType parkingType, long time) {
+        return minuteValue(minuteOccupancies, parkingType, time);
+    }
+
+    //per hour values are 0 for hours older than 30 days
+    public synchronized int getArrivalsInHour(ParkingType parkingType, long time) {
+        return hourValue(hourArrivals, parkingType, time);
+    }
+
+    public synchronized int getExitsInHour(ParkingType parkingType, long time) {
+        return hourValue(hourExits, parkingType, time);
+    }
+
+    public synchronized int getPeakOccupancyInHour(ParkingType parkingType, long time) {
+        return hourValue(hourPeaks, parkingType, time);
+    }
+
+    public synchronized int getOccupancyAtHour(ParkingType parkingType, long time) {
+        return hourValue(hourOccupancies, parkingType, time);
+    }
+
+    private int minuteValue(int[] buckets, ParkingType parkingType, long time) {
+        long minute = Math.floorDiv(time, MINUTE_MILLIS);
+        int slot = minuteSlot(minute);
+        return (minuteIds[slot] == minute) ? buckets[parkingType.ordinal() * MINUTES + slot] : 0;
+    }
+
+    private int hourValue(int[] buckets, ParkingType parkingType, long time) {
+        long hour = Math.floorDiv(time, MINUTE_MILLIS * MINUTES_PER_HOUR);
+        int slot = hourSlot(hour);
+        return (hourIds[slot] == hour) ? buckets[parkingType.ordinal() * HOURS + slot] : 0;
+    }
+
+    //opens the buckets of every minute up to time, evicting the ones which fell out of the window
+    private void advance(long time) {
+        long minute = Math.floorDiv(time, MINUTE_MILLIS);
+        if(currentMinute == NO_BUCKET){
+            openMinute(minute);
+            currentMinute = minute;
+            return;
+        }
+        if(minute <= currentMinute){
+            return;
+        }
+        //after a gap longer than the ring, only the last MINUTES minutes need to be opened
+        long next = Math.max(currentMinute + 1, minute - MINUTES + 1);
+        for(long m = next; m <= minute; m++){
+            openMinute(m);
+        }
+        currentMinute = minute;
+    }
+
+    private void openMinute(long minute) {
+        int slot = minuteSlot(minute);
+        boolean evict = minuteIds[slot] != NO_BUCKET;
+        minuteIds[slot] = minute;
+        for(int type = 0; type < TYPES; type++){
+            int index = type * MINUTES + slot;
+            if(evict){
+                arrivalsLastDay[type] -= minuteArrivals[index];
+                exitsLastDay[type] -= minuteExits[index];
+            }
+            minuteArrivals[index] = 0;
+            minuteExits[index] = 0;
+            minuteOccupancies[index] = occupancy[type];
+            minutePeaks[index] = occupancy[type];
+            updateCurrentHour(type, minute, 0, 0);
+        }
+    }
+
+    //downsampling is incremental: the bucket of the current hour is updated along with the minute one
+    private void updateCurrentHour(int type, long minute, int arrivals, int exits) {
+        long hour = Math.floorDiv(minute, MINUTES_PER_HOUR);
+        int slot = hourSlot(hour);
+        if(hourIds[slot] != hour){
+            hourIds[slot] = hour;
+            for(int t = 0; t < TYPES; t++){
+                hourArrivals[t * HOURS + slot] = 0;
+                hourExits[t * HOURS + slot] = 0;
+                hourPeaks[t * HOURS + slot] = occupancy[t];
+                hourOccupancies[t * HOURS + slot] = occupancy[t];
+            }
+        }
+        int index = type * HOURS + slot;
+        hourArrivals[index] += arrivals;
+        hourExits[index] += exits;
+        hourOccupancies[index] = occupancy[type];
+        hourPeaks[index] = Math.max(hourPeaks[index], occupancy[type]);
+    }
+
+    private static int minuteSlot(long minute) {
+        return (int) Math.floorMod(minute, (long) MINUTES);
+    }
+
+    private static int hourSlot(long hour) {
+        return (int) Math.floorMod(hour, (long) HOURS);
+    }
+}
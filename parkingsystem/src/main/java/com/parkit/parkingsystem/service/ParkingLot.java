@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.DriftDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.dao.SettlementDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.event.ParkingEventBus;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+import java.time.Clock;
+
+//One lot of a process hosting several: its DAOs bound to the lot id, its spot catalog, caches, event bus
+//and ParkingService, none of them shared with another lot, so gates of different lots never wait on each
+//other's locks. Lots only share what protects the database: the connection bulkheads, the admission
+//controller and the change log poller.
+public class ParkingLot implements AutoCloseable {
+
+    private final int lotId;
+    private final Clock clock;
+    private final ParkingSpotCatalog parkingSpotCatalog;
+    private final ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+    private final TicketDAO ticketDAO = new TicketDAO();
+    private final ReservationDAO reservationDAO = new ReservationDAO();
+    private final ParkingEventBus eventBus;
+    private final OccupancyCounters occupancyCounters;
+    private final SpotAllocator spotAllocator;
+    private final ReservationService reservationService;
+    private final OccupancyTimeSeries occupancyTimeSeries = new OccupancyTimeSeries();
+    private final ParkingService parkingService;
+    private DriftReconciler driftReconciler;
+
+    public ParkingLot(int lotId, InputReaderUtil inputReaderUtil, Clock clock) {
+        this.lotId = lotId;
+        this.clock = clock;
+        parkingSpotCatalog = ParkingSpotCatalog.forLot(lotId);
+        parkingSpotDAO.lotId = lotId;
+        ticketDAO.lotId = lotId;
+        ticketDAO.parkingSpotCatalog = parkingSpotCatalog;
+        reservationDAO.lotId = lotId;
+        //the default lot keeps publishing on the process wide bus; the other lots start with no subscriber,
+        //boards and billing of a lot subscribe through getEventBus
+        eventBus = (lotId == DBConstants.DEFAULT_LOT_ID) ? ParkingEventBus.getInstance() : new ParkingEventBus(ParkingEventBus.DEFAULT_CAPACITY);
+        occupancyCounters = new OccupancyCounters(parkingSpotCatalog);
+        spotAllocator = new SpotAllocator(parkingSpotCatalog);
+        reservationService = new ReservationService(reservationDAO, parkingSpotCatalog, clock);
+        parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, clock);
+        parkingService.setEventBus(eventBus);
+    }
+
+    //caches which fail to load are left out, the gates then ask the database
+    public void load(SpotAllocationPolicy allocationPolicy) {
+        if(occupancyCounters.load(parkingSpotDAO)){
+            parkingService.setOccupancyCounters(occupancyCounters);
+        }
+        if(spotAllocator.load(parkingSpotDAO)){
+            parkingService.setSpotAllocator(spotAllocator, allocationPolicy);
+        }
+        if(reservationService.load()){
+            parkingService.setReservationService(reservationService);
+        }
+        for(ParkingType parkingType : ParkingType.values()){
+            occupancyTimeSeries.setOccupancy(parkingType, occupancyCounters.getOccupied(parkingType), clock.millis());
+        }
+        parkingService.setOccupancyTimeSeries(occupancyTimeSeries);
+    }
+
+    //keeps the counters and the allocator in line with the changes made by the other instances
+    public void follow(ChangeLogPoller changeLogPoller) {
+        changeLogPoller.addListener(lotId, parkingSpot -> {
+            if(parkingSpot.isAvailable()){
+                occupancyCounters.release(parkingSpot);
+                spotAllocator.release(parkingSpot);
+            }else{
+                occupancyCounters.claim(parkingSpot);
+                spotAllocator.claim(parkingSpot);
+            }
+        });
+        parkingService.setChangeLogPoller(changeLogPoller);
+    }
+
+    public void startDriftReconciler(long fromSequence, long intervalMillis, long graceMillis, boolean repair) {
+        DriftDAO driftDAO = new DriftDAO();
+        driftDAO.lotId = lotId;
+        driftReconciler = new DriftReconciler(driftDAO, clock, intervalMillis, graceMillis, repair);
+        driftReconciler.start(fromSequence);
+    }
+
+    public TicketHistoryDAO newTicketHistoryDAO() {
+        TicketHistoryDAO ticketHistoryDAO = new TicketHistoryDAO();
+        ticketHistoryDAO.lotId = lotId;
+        ticketHistoryDAO.parkingSpotCatalog = parkingSpotCatalog;
+        return ticketHistoryDAO;
+    }
+
+    public SettlementDAO newSettlementDAO() {
+        SettlementDAO settlementDAO = new SettlementDAO();
+        settlementDAO.lotId = lotId;
+        settlementDAO.parkingSpotCatalog = parkingSpotCatalog;
+        return settlementDAO;
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    public ParkingService getParkingService() {
+        return parkingService;
+    }
+
+    public ParkingSpotDAO getParkingSpotDAO() {
+        return parkingSpotDAO;
+    }
+
+    public TicketDAO getTicketDAO() {
+        return ticketDAO;
+    }
+
+    public OccupancyCounters getOccupancyCounters() {
+        return occupancyCounters;
+    }
+
+    public SpotAllocator getSpotAllocator() {
+        return spotAllocator;
+    }
+
+    public ParkingEventBus getEventBus() {
+        return eventBus;
+    }
+
+    public DriftReconciler getDriftReconciler() {
+        return driftReconciler;
+    }
+
+    @Override
+    public void close() {
+        if(driftReconciler != null){
+            driftReconciler.close();
+        }
+        if(eventBus != ParkingEventBus.getInstance()){
+            eventBus.close();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.ChangeLogDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+//The lots hosted by this process. They are opened together at startup: the change log position is read
+//once before any cache loads, then a single poller keeps every lot's caches coherent.
+//Settings come from the parkit.allocation.*, parkit.coherency.* and parkit.reconcile.* system properties.
+public class ParkingLotRegistry implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("ParkingLotRegistry");
+
+    private final ChangeLogDAO changeLogDAO;
+    private final Clock clock;
+    private final Map<Integer, ParkingLot> lots = new ConcurrentHashMap<>();
+    private ChangeLogPoller changeLogPoller;
+
+    public ParkingLotRegistry(ChangeLogDAO changeLogDAO, Clock clock) {
+        this.changeLogDAO = changeLogDAO;
+        this.clock = clock;
+    }
+
+    //lot ids from a comma separated list such as the parkit.lots property
+    public static int[] parseLotIds(String lotIds) {
+        return Arrays.stream(lotIds.split(",")).map(String::trim).filter(id -> !id.isEmpty()).mapToInt(Integer::parseInt).distinct().toArray();
+    }
+
+    public synchronized void open(int[] lotIds, IntFunction<InputReaderUtil> inputReaderUtils) {
+        //not the poller: it is missing when the change log cannot be read
+        if(!lots.isEmpty()){
+            throw new IllegalStateException("Lots already opened");
+        }
+        //read before the caches are loaded, so no change made while they load is missed
+        long lastChange = changeLogDAO.getLastSequence();
+        SpotAllocationPolicy allocationPolicy = SpotAllocationPolicy.named(
+                System.getProperty("parkit.allocation.policy", "lowest"), Integer.getInteger("parkit.allocation.entrance", 1));
+        for(int lotId : lotIds){
+            ParkingLot lot = new ParkingLot(lotId, inputReaderUtils.apply(lotId), clock);
+            lot.load(allocationPolicy);
+            lots.put(lotId, lot);
+        }
+        if(lastChange < 0){
+            logger.warn("Change log unavailable, the caches of " + lots.size() + " lots will not follow other instances");
+            return;
+        }
+        changeLogPoller = new ChangeLogPoller(changeLogDAO, ParkingSpotCatalog::forLot, clock,
+                Long.getLong("parkit.coherency.pollMillis", ChangeLogPoller.DEFAULT_POLL_MILLIS),
+                Long.getLong("parkit.coherency.maxStalenessMillis", ChangeLogPoller.DEFAULT_MAX_STALENESS_MILLIS));
+        for(ParkingLot lot : lots.values()){
+            lot.follow(changeLogPoller);
+            lot.startDriftReconciler(lastChange,
+                    Long.getLong("parkit.reconcile.intervalMillis", DriftReconciler.DEFAULT_INTERVAL_MILLIS),
+                    Long.getLong("parkit.reconcile.graceMillis", DriftReconciler.DEFAULT_GRACE_MILLIS),
+                    Boolean.getBoolean("parkit.reconcile.repair"));
+        }
+        changeLogPoller.start(lastChange);
+    }
+
+    //null for a lot this process does not host
+    public ParkingLot get(int lotId) {
+        return lots.get(lotId);
+    }
+
+    public Collection<ParkingLot> getLots() {
+        return Collections.unmodifiableCollection(lots.values());
+    }
+
+    @Override
+    public synchronized void close() {
+        if(changeLogPoller != null){
+            changeLogPoller.close();
+        }
+        for(ParkingLot lot : lots.values()){
+            lot.close();
+        }
+    }
+}
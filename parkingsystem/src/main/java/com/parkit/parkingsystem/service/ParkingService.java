@@ -1,82 +1,364 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.config.DeadlineExceededException;
+import com.parkit.parkingsystem.constants.OperationType;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.event.ParkingEventBus;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.monitoring.GateEvent;
+import com.parkit.parkingsystem.monitoring.StartupTimer;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.TicketIdGenerator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.PrintStream;
+import java.time.Clock;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
-    private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private FareCalculatorService fareCalculatorService = new FareCalculatorService();
 
     private InputReaderUtil inputReaderUtil;
     private ParkingSpotDAO parkingSpotDAO;
     private  TicketDAO ticketDAO;
+    private final Clock clock;
+    private TicketIdGenerator ticketIdGenerator = TicketIdGenerator.getInstance();
+    private AdmissionController admissionController = AdmissionController.getInstance();
+    private OccupancyCounters occupancyCounters;
+    private ParkingEventBus eventBus = ParkingEventBus.getInstance();
+    private OccupancyTimeSeries occupancyTimeSeries;
+    private SpotAllocator spotAllocator;
+    private SpotAllocationPolicy allocationPolicy;
+    private ReservationService reservationService;
+    private ChangeLogPoller changeLogPoller;
+    private StartupTimer startupTimer = StartupTimer.getInstance();
+    private PrintStream console = System.out;
 
     public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, Clock.systemUTC());
+    }
+
+    //every entry and exit time is read from clock, so a simulation can run on virtual time
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, Clock clock){
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        this.clock = clock;
+    }
+
+    public void setFareCalculatorService(FareCalculatorService fareCalculatorService){
+        this.fareCalculatorService = fareCalculatorService;
+    }
+
+    public void setAdmissionController(AdmissionController admissionController){
+        this.admissionController = admissionController;
+    }
+
+    public void setOccupancyCounters(OccupancyCounters occupancyCounters){
+        this.occupancyCounters = occupancyCounters;
+    }
+
+    public void setEventBus(ParkingEventBus eventBus){
+        this.eventBus = eventBus;
+    }
+
+    public void setOccupancyTimeSeries(OccupancyTimeSeries occupancyTimeSeries){
+        this.occupancyTimeSeries = occupancyTimeSeries;
+    }
+
+    //spots are chosen by the policy instead of GET_NEXT_PARKING_SPOT while the allocator is loaded
+    public void setSpotAllocator(SpotAllocator spotAllocator, SpotAllocationPolicy allocationPolicy){
+        this.spotAllocator = spotAllocator;
+        this.allocationPolicy = allocationPolicy;
+    }
+
+    public void setReservationService(ReservationService reservationService){
+        this.reservationService = reservationService;
+    }
+
+    //while the poller is late, the counters and the allocator may miss other instances' changes: the database decides
+    public void setChangeLogPoller(ChangeLogPoller changeLogPoller){
+        this.changeLogPoller = changeLogPoller;
+    }
+
+    public void setStartupTimer(StartupTimer startupTimer){
+        this.startupTimer = startupTimer;
+    }
+
+    //where the messages for the driver go
+    public void setConsole(PrintStream console){
+        this.console = console;
     }
 
     public void processIncomingVehicle() throws Exception{
+        GateEvent gateEvent = new GateEvent("ENTRY");
+        gateEvent.begin();
+        AdmissionController.Permit permit = null;
         try{
-            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
+            ParkingType parkingType = readVehicleType();
+            checkNotFull(parkingType);
+            String vehicleRegNumber = getVehichleRegNumber();
+            //the permit covers the database work only, never a driver typing at the console
+            permit = admissionController.acquire(OperationType.ENTRY);
+            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable(parkingType);
             if(parkingSpot !=null && parkingSpot.getId() > 0){
-                String vehicleRegNumber = getVehichleRegNumber();
-                if(ticketDAO.getNbTicket(vehicleRegNumber)>0){
-                    System.out.println("Heureux de vous revoir ! En tant qu’utilisateur régulier de notre parking, vous allez obtenir une remise de 5%");
-                }
+                Reservation reservation = checkReservation(parkingSpot.getParkingType(), vehicleRegNumber);
+                boolean recurringUser = isRecurringUser(ticketDAO.getNbTicket(vehicleRegNumber));
                 parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);//allot this parking space and mark it's availability as false
-
-                Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                //ticket.setId(ticketID);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
-                System.out.println("Generated Ticket and saved in DB");
-                System.out.println("Please park your vehicle in spot number:"+parkingSpot.getId());
-                System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
+                if(parkingSpotDAO.updateParking(parkingSpot)){//allot this parking space and mark it's availability as false
+                    claimSpot(parkingSpot);
+                }
+
+                Ticket ticket = createTicket(parkingSpot, vehicleRegNumber, recurringUser);
+                if(ticketDAO.saveTicket(ticket)){
+                    vehicleEntered(ticket);
+                    checkIn(reservation);
+                }
+                printEntry(ticket);
             }
+        }catch(AdmissionRejectedException e){
+            gateEvent.outcome = GateEvent.REJECTED;
+            logger.error("Incoming vehicle rejected, the system is overloaded",e);
+            printBusy();
+            throw e;
+        }catch(DeadlineExceededException e){
+            gateEvent.outcome = GateEvent.TIMEOUT;
+            //fail fast at the gate rather than queue behind a slow database
+            logger.error("Unable to process incoming vehicle in time",e);
+            permit.markOverloaded();
+            printBusy();
+            throw e;
         }catch(Exception e){
+            gateEvent.outcome = GateEvent.FAILED;
             logger.error("Unable to process incoming vehicle",e);
             throw e;
+        }finally{
+            if(permit != null){
+                permit.close();
+            }
+            gateEvent.commit();
+        }
+    }
+
+    //same flow as processIncomingVehicle, but the spot lookup and the history count run concurrently;
+    //the ticket is only inserted once the spot is taken, and the spot given back if the insert fails
+    public CompletableFuture<Ticket> processIncomingVehicleAsync(){
+        ParkingType parkingType;
+        String vehicleRegNumber;
+        Reservation reservation;
+        AdmissionController.Permit permit;
+        try{
+            parkingType = getVehichleType();
+            vehicleRegNumber = getVehichleRegNumber();
+            checkNotFull(parkingType);
+            reservation = checkReservation(parkingType, vehicleRegNumber);
+            //no queueing here, the caller must not block
+            permit = admissionController.tryAcquire(OperationType.ENTRY);
+        }catch(AdmissionRejectedException e){
+            logger.error("Incoming vehicle rejected, the system is overloaded",e);
+            printBusy();
+            return CompletableFuture.failedFuture(e);
+        }catch(Exception e){
+            logger.error("Unable to process incoming vehicle",e);
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Integer> parkingNumber = isAllocatorLoaded()
+                ? CompletableFuture.completedFuture(spotAllocator.choose(parkingType, allocationPolicy))
+                : parkingSpotDAO.getNextAvailableSlotAsync(parkingType);
+        CompletableFuture<Integer> nbTicket = ticketDAO.getNbTicketAsync(vehicleRegNumber);
+        return parkingNumber.thenCombine(nbTicket, (number, nb) -> {
+            if(number <= 0){
+                throw new CompletionException(new Exception("Error fetching parking number from DB. Parking slots might be full"));
+            }
+            return createTicket(newParkingSpot(number, parkingType, false), vehicleRegNumber, isRecurringUser(nb));
+        }).thenCompose(ticket -> {
+            ParkingSpot parkingSpot = ticket.getParkingSpot();
+            return parkingSpotDAO.updateParkingAsync(parkingSpot).thenCompose(updated -> {
+                if(!updated){
+                    throw new CompletionException(new Exception("Unable to update parking spot information"));
+                }
+                claimSpot(parkingSpot);
+                return ticketDAO.saveTicketAsync(ticket);
+            }).thenCompose(saved -> {
+                if(saved){
+                    vehicleEntered(ticket);
+                    checkIn(reservation);
+                    return CompletableFuture.completedFuture(ticket);
+                }
+                //the spot is given back, taken without a ticket no exit would ever free it
+                console.println("Unable to save ticket information. Error occurred");
+                parkingSpot.setAvailable(true);
+                return parkingSpotDAO.updateParkingAsync(parkingSpot).thenApply(freed -> {
+                    if(freed){
+                        releaseSpot(parkingSpot);
+                    }
+                    throw new CompletionException(new Exception("Unable to save ticket information"));
+                });
+            });
+        }).whenComplete((ticket, e) -> {
+            try{
+                if(e != null){
+                    logger.error("Unable to process incoming vehicle",e);
+                    if(e.getCause() instanceof DeadlineExceededException){
+                        permit.markOverloaded();
+                        printBusy();
+                    }
+                }else{
+                    printEntry(ticket);
+                }
+            }finally{
+                permit.close();
+            }
+        });
+    }
+
+    //the discount is decided once at entry and stored on the ticket, exit pricing only reads it back
+    private boolean isRecurringUser(int nbTicket){
+        if(nbTicket > 0){
+            console.println("Heureux de vous revoir ! En tant qu’utilisateur régulier de notre parking, vous allez obtenir une remise de 5%");
+            return true;
         }
+        return false;
+    }
+
+    private Ticket createTicket(ParkingSpot parkingSpot, String vehicleRegNumber, boolean discount){
+        Ticket ticket = new Ticket();
+        //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+        ticket.setId(ticketIdGenerator.nextId());
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(0);
+        ticket.setInTime(new Date(clock.millis()));
+        ticket.setOutTime(null);
+        ticket.setDiscount(discount);
+        return ticket;
+    }
+
+    private void printEntry(Ticket ticket){
+        console.println("Generated Ticket and saved in DB");
+        console.println("Your ticket number is:"+ticket.getId());
+        console.println("Please park your vehicle in spot number:"+ticket.getParkingSpot().getId());
+        if(ticket.getParkingSpot().getZone() != null){
+            console.println("The spot is in zone "+ticket.getParkingSpot().getZone()+", level "+ticket.getParkingSpot().getLevel());
+        }
+        console.println("Recorded in-time for vehicle number:"+ticket.getVehicleRegNumber()+" is:"+ticket.getInTime());
+    }
+
+    //answered from the live counters, before any query
+    private void checkNotFull(ParkingType parkingType) throws Exception {
+        if(occupancyCounters != null && areCachesFresh() && occupancyCounters.isFull(parkingType)){
+            console.println("Sorry, no " + parkingType + " spot is available right now");
+            throw new Exception("Parking slots are full for " + parkingType);
+        }
+    }
+
+    //a vehicle with a reservation running now is let in, others only while some free spot is not held for one
+    private Reservation checkReservation(ParkingType parkingType, String vehicleRegNumber) throws Exception {
+        if(reservationService == null){
+            return null;
+        }
+        Reservation reservation = reservationService.findActive(parkingType, vehicleRegNumber);
+        if(reservation == null && occupancyCounters != null && occupancyCounters.isLoaded() && areCachesFresh()
+                && occupancyCounters.getFree(parkingType) <= reservationService.getHeld(parkingType)){
+            console.println("Sorry, the remaining " + parkingType + " spots are reserved");
+            throw new Exception("Free " + parkingType + " spots are all reserved");
+        }
+        return reservation;
+    }
+
+    private void checkIn(Reservation reservation){
+        if(reservation != null && !reservationService.checkIn(reservation)){
+            logger.error("Unable to record the use of reservation " + reservation.getId());
+        }
+    }
+
+    private void vehicleEntered(Ticket ticket){
+        if(occupancyTimeSeries != null){
+            occupancyTimeSeries.recordEntry(ticket.getParkingSpot().getParkingType(), ticket.getInTime().getTime());
+        }
+        eventBus.publishEntry(ticket);
+        startupTimer.vehicleEntered();
+    }
+
+    private void vehicleExited(Ticket ticket){
+        if(occupancyTimeSeries != null){
+            occupancyTimeSeries.recordExit(ticket.getParkingSpot().getParkingType(), ticket.getOutTime().getTime());
+        }
+        eventBus.publishExit(ticket);
+    }
+
+    private boolean isAllocatorLoaded(){
+        return spotAllocator != null && spotAllocator.isLoaded() && areCachesFresh();
+    }
+
+    private boolean areCachesFresh(){
+        return changeLogPoller == null || !changeLogPoller.isStale();
+    }
+
+    private ParkingSpot newParkingSpot(int parkingNumber, ParkingType parkingType, boolean isAvailable){
+        ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, isAvailable);
+        if(isAllocatorLoaded()){
+            parkingSpot.setZone(spotAllocator.getZone(parkingNumber));
+            parkingSpot.setLevel(spotAllocator.getLevel(parkingNumber));
+        }
+        return parkingSpot;
+    }
+
+    private void claimSpot(ParkingSpot parkingSpot){
+        if(occupancyCounters != null){
+            occupancyCounters.claim(parkingSpot);
+        }
+        if(spotAllocator != null){
+            spotAllocator.claim(parkingSpot);
+        }
+        eventBus.publishSpotChange(parkingSpot, clock.millis());
+    }
+
+    private void releaseSpot(ParkingSpot parkingSpot){
+        if(occupancyCounters != null){
+            occupancyCounters.release(parkingSpot);
+        }
+        if(spotAllocator != null){
+            spotAllocator.release(parkingSpot);
+        }
+        eventBus.publishSpotChange(parkingSpot, clock.millis());
+    }
+
+    private void printBusy(){
+        console.println("The system is busy, please try again in a moment");
     }
 
     private String getVehichleRegNumber() throws Exception {
-        System.out.println("Please type the vehicle registration number and press enter key");
+        console.println("Please type the vehicle registration number and press enter key");
         return inputReaderUtil.readVehicleRegistrationNumber();
     }
 
     public ParkingSpot getNextParkingNumberIfAvailable() throws IllegalArgumentException, Exception {
+        return getNextParkingNumberIfAvailable(readVehicleType());
+    }
+
+    private ParkingSpot getNextParkingNumberIfAvailable(ParkingType parkingType) throws Exception {
         int parkingNumber=0;
         ParkingSpot parkingSpot = null;
         try{
-            ParkingType parkingType = getVehichleType();
-            parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
+            checkNotFull(parkingType);
+            parkingNumber = isAllocatorLoaded() ? spotAllocator.choose(parkingType, allocationPolicy)
+                    : parkingSpotDAO.getNextAvailableSlot(parkingType);
             if(parkingNumber > 0){
-                parkingSpot = new ParkingSpot(parkingNumber,parkingType, true);
+                parkingSpot = newParkingSpot(parkingNumber,parkingType, true);
             }else{
                 throw new Exception("Error fetching parking number from DB. Parking slots might be full");
             }
-        }catch(IllegalArgumentException ie){
-            logger.error("Error parsing user input for type of vehicle", ie);
-            throw ie;
         }catch(Exception e){
             logger.error("Error fetching next available parking slot", e);
             throw e;
@@ -84,10 +366,19 @@ public class ParkingService {
         return parkingSpot;
     }
 
+    private ParkingType readVehicleType(){
+        try{
+            return getVehichleType();
+        }catch(IllegalArgumentException ie){
+            logger.error("Error parsing user input for type of vehicle", ie);
+            throw ie;
+        }
+    }
+
     private ParkingType getVehichleType(){
-        System.out.println("Please select vehicle type from menu");
-        System.out.println("1 CAR");
-        System.out.println("2 BIKE");
+        console.println("Please select vehicle type from menu");
+        console.println("1 CAR");
+        console.println("2 BIKE");
         int input = inputReaderUtil.readSelection();
         switch(input){
             case 1: {
@@ -97,34 +388,146 @@ public class ParkingService {
                 return ParkingType.BIKE;
             }
             default: {
-                System.out.println("Incorrect input provided");
+                console.println("Incorrect input provided");
                 throw new IllegalArgumentException("Entered input is invalid");
             }
         }
     }
 
     public void processExitingVehicle() {
+        GateEvent gateEvent = new GateEvent("EXIT");
+        gateEvent.begin();
+        AdmissionController.Permit permit = null;
         try{
             String vehicleRegNumber = getVehichleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            Date outTime = new Date();
-            ticket.setOutTime(outTime);
-            if(ticketDAO.getNbTicket(vehicleRegNumber)>1){
-                fareCalculatorService.calculateFare(ticket, true);
-            } else {
-                fareCalculatorService.calculateFare(ticket);
+            permit = admissionController.acquire(OperationType.EXIT);
+            exitVehicle(ticketDAO.getTicket(vehicleRegNumber));
+        }catch(AdmissionRejectedException e){
+            gateEvent.outcome = GateEvent.REJECTED;
+            logger.error("Exiting vehicle rejected, the system is overloaded",e);
+            printBusy();
+        }catch(DeadlineExceededException e){
+            gateEvent.outcome = GateEvent.TIMEOUT;
+            logger.error("Unable to process exiting vehicle in time",e);
+            permit.markOverloaded();
+            printBusy();
+        }catch(Exception e){
+            gateEvent.outcome = GateEvent.FAILED;
+            logger.error("Unable to process exiting vehicle",e);
+        }finally{
+            if(permit != null){
+                permit.close();
             }
-            if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
-                System.out.println("Please pay the parking fare:" + ticket.getPrice());
-                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
-            }else{
-                System.out.println("Unable to update ticket information. Error occurred");
+            gateEvent.commit();
+        }
+    }
+
+    //exit with the ticket number scanned at the gate: a single primary key lookup whatever the vehicle history
+    public void processExitingVehicleByTicketId() {
+        GateEvent gateEvent = new GateEvent("EXIT_BY_TICKET");
+        gateEvent.begin();
+        AdmissionController.Permit permit = null;
+        try{
+            console.println("Please scan or type the ticket number and press enter key");
+            long ticketId = inputReaderUtil.readTicketId();
+            permit = admissionController.acquire(OperationType.EXIT);
+            Ticket ticket = ticketDAO.getTicket(ticketId);
+            if(ticket == null || ticket.getOutTime() != null){
+                console.println("No open ticket found for ticket number:" + ticketId);
+                return;
+            }
+            exitVehicle(ticket);
+        }catch(AdmissionRejectedException e){
+            gateEvent.outcome = GateEvent.REJECTED;
+            logger.error("Exiting vehicle rejected, the system is overloaded",e);
+            printBusy();
+        }catch(DeadlineExceededException e){
+            gateEvent.outcome = GateEvent.TIMEOUT;
+            logger.error("Unable to process exiting vehicle in time",e);
+            permit.markOverloaded();
+            printBusy();
+        }catch(Exception e){
+            gateEvent.outcome = GateEvent.FAILED;
+            logger.error("Unable to process exiting vehicle",e);
+        }finally{
+            if(permit != null){
+                permit.close();
+            }
+            gateEvent.commit();
+        }
+    }
+
+    private void exitVehicle(Ticket ticket){
+        calculateExitFare(ticket);
+        if(ticketDAO.updateTicket(ticket)) {
+            vehicleExited(ticket);
+            ParkingSpot parkingSpot = ticket.getParkingSpot();
+            parkingSpot.setAvailable(true);
+            if(parkingSpotDAO.updateParking(parkingSpot)){
+                releaseSpot(parkingSpot);
             }
+            printExit(ticket);
+        }else{
+            console.println("Unable to update ticket information. Error occurred");
+        }
+    }
+
+    //same flow as processExitingVehicle, on the database executor
+    public CompletableFuture<Ticket> processExitingVehicleAsync() {
+        String vehicleRegNumber;
+        AdmissionController.Permit permit;
+        try{
+            vehicleRegNumber = getVehichleRegNumber();
+            permit = admissionController.tryAcquire(OperationType.EXIT);
+        }catch(AdmissionRejectedException e){
+            logger.error("Exiting vehicle rejected, the system is overloaded",e);
+            printBusy();
+            return CompletableFuture.failedFuture(e);
         }catch(Exception e){
             logger.error("Unable to process exiting vehicle",e);
+            return CompletableFuture.failedFuture(e);
         }
+        return ticketDAO.getTicketAsync(vehicleRegNumber).thenApply(ticket -> {
+            calculateExitFare(ticket);
+            return ticket;
+        }).thenCompose(ticket -> ticketDAO.updateTicketAsync(ticket).thenCompose(updated -> {
+            if(!updated){
+                console.println("Unable to update ticket information. Error occurred");
+                throw new CompletionException(new Exception("Unable to update ticket information"));
+            }
+            vehicleExited(ticket);
+            ParkingSpot parkingSpot = ticket.getParkingSpot();
+            parkingSpot.setAvailable(true);
+            return parkingSpotDAO.updateParkingAsync(parkingSpot).thenApply(freed -> {
+                if(freed){
+                    releaseSpot(parkingSpot);
+                }
+                return ticket;
+            });
+        })).whenComplete((ticket, e) -> {
+            try{
+                if(e != null){
+                    logger.error("Unable to process exiting vehicle",e);
+                    if(e.getCause() instanceof DeadlineExceededException){
+                        permit.markOverloaded();
+                        printBusy();
+                    }
+                }else{
+                    printExit(ticket);
+                }
+            }finally{
+                permit.close();
+            }
+        });
+    }
+
+    private void calculateExitFare(Ticket ticket){
+        ticket.setOutTime(new Date(clock.millis()));
+        fareCalculatorService.calculateFare(ticket, ticket.isDiscount());
+    }
+
+    private void printExit(Ticket ticket){
+        console.println("Please pay the parking fare:" + ticket.getPrice());
+        console.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + ticket.getOutTime());
     }
 }
@@ -0,0 +1,53 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ReportGranularity;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+
+public class ReportService {
+
+    private static final Logger logger = LogManager.getLogger("ReportService");
+
+    private TicketHistoryDAO ticketHistoryDAO;
+    private ZoneId zone;
+
+    public ReportService(TicketHistoryDAO ticketHistoryDAO){
+        this(ticketHistoryDAO, ZoneId.systemDefault());
+    }
+
+    public ReportService(TicketHistoryDAO ticketHistoryDAO, ZoneId zone){
+        this.ticketHistoryDAO = ticketHistoryDAO;
+        this.zone = zone;
+    }
+
+    public boolean writeOccupancyReport(Date from, Date to, ReportGranularity granularity, Path output) throws Exception {
+        if(from == null || to == null || !from.before(to)){
+            throw new IllegalArgumentException("Report period is incorrect: " + from + " - " + to);
+        }
+        Map<ParkingType, Integer> initialOccupancy = ticketHistoryDAO.getOccupancyAt(from);
+        if(initialOccupancy == null){
+            return false;
+        }
+        try(BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)){
+            OccupancyReportAggregator aggregator = new OccupancyReportAggregator(from.getTime(), to.getTime(), granularity, zone, initialOccupancy, writer);
+            aggregator.writeHeader();
+            if(!ticketHistoryDAO.streamTicketEvents(from, to, aggregator)){
+                logger.error("Occupancy report for " + from + " - " + to + " is incomplete");
+                return false;
+            }
+            aggregator.finish();
+        }
+        logger.info("Occupancy report written to " + output);
+        return true;
+    }
+}
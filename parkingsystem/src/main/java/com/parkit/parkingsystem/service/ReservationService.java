@@ -0,0 +1,273 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ReservationStatus;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.util.IntervalCapacityIndex;
+import com.parkit.parkingsystem.util.PlateCodec;
+import com.parkit.parkingsystem.util.PlateMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+//Advance bookings per ParkingType, persisted in the reservation table.
+//Two IntervalCapacityIndex per type, in 15 minute buckets:
+// - booked: every reservation until its end, a booking is accepted while it stays within the type capacity;
+// - held: reservations not checked in yet, walk-ins are refused when the free spots are all held for them.
+//Bookings of a type are checked and counted under the lock of that type, the insert runs outside it and its
+//buckets are given back if it fails. The indexes only know the bookings of this instance: the database is the
+//authority, the insert checks the type again there against the bookings of every instance.
+public class ReservationService {
+
+    private static final Logger logger = LogManager.getLogger("ReservationService");
+
+    public static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    public static final long DEFAULT_HORIZON_MILLIS = TimeUnit.DAYS.toMillis(90);
+
+    private final ReservationDAO reservationDAO;
+    private final ParkingSpotCatalog parkingSpotCatalog;
+    private final Clock clock;
+    private final long horizonMillis;
+    private final Map<ParkingType, Lane> lanes = new EnumMap<>(ParkingType.class);
+
+    //a reservation with the exact range it was counted over, so it is taken out of the same buckets
+    private static final class Booking {
+        private final Reservation reservation;
+        private final long from;
+        private final long to;
+
+        private Booking(Reservation reservation, long from, long to) {
+            this.reservation = reservation;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static final class Lane {
+        private final IntervalCapacityIndex booked;
+        private final IntervalCapacityIndex held;
+        private final PriorityQueue<Booking> byEndTime = new PriorityQueue<>(Comparator.comparingLong(booking -> booking.to));
+        private final PlateMap<List<Booking>> byVehicle = new PlateMap<>();
+
+        //a live booking lasts at most the horizon and is dropped once ended, so the live buckets lie
+        //between now minus the horizon and now plus the horizon
+        private Lane(long horizonMillis) {
+            int buckets = (int) (2 * horizonMillis / BUCKET_MILLIS) + 2;
+            booked = new IntervalCapacityIndex(BUCKET_MILLIS, buckets);
+            held = new IntervalCapacityIndex(BUCKET_MILLIS, buckets);
+        }
+    }
+
+    public ReservationService(ReservationDAO reservationDAO, ParkingSpotCatalog parkingSpotCatalog, Clock clock) {
+        this(reservationDAO, parkingSpotCatalog, clock, DEFAULT_HORIZON_MILLIS);
+    }
+
+    public ReservationService(ReservationDAO reservationDAO, ParkingSpotCatalog parkingSpotCatalog, Clock clock, long horizonMillis) {
+        this.reservationDAO = reservationDAO;
+        this.parkingSpotCatalog = parkingSpotCatalog;
+        this.clock = clock;
+        this.horizonMillis = horizonMillis;
+        for(ParkingType parkingType : ParkingType.values()){
+            lanes.put(parkingType, new Lane(horizonMillis));
+        }
+    }
+
+    //reservations still running, from the reservation table
+    public boolean load() {
+        long now = clock.millis();
+        List<Reservation> reservations = reservationDAO.getReservationsEndingAfter(new Date(now));
+        if(reservations == null){
+            return false;
+        }
+        for(Reservation reservation : reservations){
+            Lane lane = lanes.get(reservation.getParkingType());
+            //only the part within the horizon either side of now is counted
+            long to = Math.min(reservation.getEndTime().getTime(), now + horizonMillis);
+            long from = Math.max(reservation.getStartTime().getTime(), to - horizonMillis);
+            synchronized (lane) {
+                lane.booked.add(from, to, 1);
+                if(reservation.getStatus() == ReservationStatus.BOOKED){
+                    lane.held.add(from, to, 1);
+                }
+                track(lane, new Booking(reservation, from, to));
+            }
+        }
+        logger.info("Loaded " + reservations.size() + " reservations");
+        return true;
+    }
+
+    public boolean canBook(ParkingType parkingType, int spots, Date startTime, Date endTime) {
+        long now = clock.millis();
+        long from = checkInterval(startTime, endTime, now);
+        Lane lane = lanes.get(parkingType);
+        synchronized (lane) {
+            expire(lane, now);
+            return lane.booked.max(from, endTime.getTime()) + spots <= parkingSpotCatalog.getCapacity(parkingType);
+        }
+    }
+
+    //null when the type is fully booked over the interval or the reservation could not be saved
+    public Reservation book(ParkingType parkingType, String vehicleRegNumber, Date startTime, Date endTime) {
+        long now = clock.millis();
+        long from = checkInterval(startTime, endTime, now);
+        long to = endTime.getTime();
+        Lane lane = lanes.get(parkingType);
+        int capacity = parkingSpotCatalog.getCapacity(parkingType);
+        synchronized (lane) {
+            expire(lane, now);
+            if(lane.booked.max(from, to) + 1 > capacity){
+                logger.info("No " + parkingType + " spot left to book between " + startTime + " and " + endTime);
+                return null;
+            }
+            lane.booked.add(from, to, 1);
+            lane.held.add(from, to, 1);
+        }
+
+        Reservation reservation = new Reservation();
+        reservation.setParkingType(parkingType);
+        //stored as the gates read it back
+        reservation.setVehicleRegNumber(PlateCodec.normalize(vehicleRegNumber));
+        reservation.setStartTime(new Date(from));
+        reservation.setEndTime(endTime);
+        reservation.setStatus(ReservationStatus.BOOKED);
+        boolean saved = false;
+        try {
+            saved = reservationDAO.saveReservation(reservation, capacity);
+        } finally {
+            synchronized (lane) {
+                if(saved){
+                    track(lane, new Booking(reservation, from, to));
+                }else{
+                    lane.booked.add(from, to, -1);
+                    lane.held.add(from, to, -1);
+                }
+            }
+        }
+        return saved ? reservation : null;
+    }
+
+    public boolean cancel(Reservation reservation) {
+        Lane lane = lanes.get(reservation.getParkingType());
+        Booking booking;
+        synchronized (lane) {
+            booking = find(lane, reservation);
+            if(booking == null || reservation.getStatus() != ReservationStatus.BOOKED){
+                return false;
+            }
+            lane.byEndTime.remove(booking);
+            untrack(lane, booking);
+            reservation.setStatus(ReservationStatus.CANCELLED);
+        }
+        if(reservationDAO.updateReservationStatus(reservation)){
+            return true;
+        }
+        //still booked in the database, so it is counted again
+        synchronized (lane) {
+            reservation.setStatus(ReservationStatus.BOOKED);
+            lane.booked.add(booking.from, booking.to, 1);
+            lane.held.add(booking.from, booking.to, 1);
+            track(lane, booking);
+        }
+        return false;
+    }
+
+    //the booked reservation of that vehicle covering now, null if there is none
+    public Reservation findActive(ParkingType parkingType, String vehicleRegNumber) {
+        long now = clock.millis();
+        Lane lane = lanes.get(parkingType);
+        synchronized (lane) {
+            expire(lane, now);
+            List<Booking> bookings = lane.byVehicle.get(vehicleRegNumber);
+            if(bookings != null){
+                for(Booking booking : bookings){
+                    if(booking.reservation.getStatus() == ReservationStatus.BOOKED && booking.from <= now){
+                        return booking.reservation;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    //the vehicle is in: its spot is no longer held, it stays booked until the reservation ends
+    public boolean checkIn(Reservation reservation) {
+        Lane lane = lanes.get(reservation.getParkingType());
+        synchronized (lane) {
+            Booking booking = find(lane, reservation);
+            if(booking == null || reservation.getStatus() != ReservationStatus.BOOKED){
+                return false;
+            }
+            lane.held.add(booking.from, booking.to, -1);
+            reservation.setStatus(ReservationStatus.USED);
+        }
+        return reservationDAO.updateReservationStatus(reservation);
+    }
+
+    //spots of the type reserved for now by vehicles which have not arrived yet
+    public int getHeld(ParkingType parkingType) {
+        long now = clock.millis();
+        Lane lane = lanes.get(parkingType);
+        synchronized (lane) {
+            expire(lane, now);
+            return Math.max(0, lane.held.get(now));
+        }
+    }
+
+    private long checkInterval(Date startTime, Date endTime, long now) {
+        if(startTime == null || endTime == null || !endTime.after(startTime) || endTime.getTime() <= now){
+            throw new IllegalArgumentException("Reservation interval is incorrect: " + startTime + " to " + endTime);
+        }
+        if(endTime.getTime() - now > horizonMillis){
+            throw new IllegalArgumentException("Reservations can only be made up to " + TimeUnit.MILLISECONDS.toDays(horizonMillis) + " days ahead");
+        }
+        //the part already past cannot be booked any more
+        return Math.max(startTime.getTime(), now);
+    }
+
+    private void track(Lane lane, Booking booking) {
+        lane.byEndTime.add(booking);
+        lane.byVehicle.computeIfAbsent(booking.reservation.getVehicleRegNumber(), v -> new ArrayList<>()).add(booking);
+    }
+
+    private Booking find(Lane lane, Reservation reservation) {
+        List<Booking> bookings = lane.byVehicle.get(reservation.getVehicleRegNumber());
+        if(bookings != null){
+            for(Booking booking : bookings){
+                if(booking.reservation == reservation){
+                    return booking;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void untrack(Lane lane, Booking booking) {
+        lane.booked.add(booking.from, booking.to, -1);
+        if(booking.reservation.getStatus() == ReservationStatus.BOOKED){
+            lane.held.add(booking.from, booking.to, -1);
+        }
+        List<Booking> bookings = lane.byVehicle.get(booking.reservation.getVehicleRegNumber());
+        bookings.remove(booking);
+        if(bookings.isEmpty()){
+            lane.byVehicle.remove(booking.reservation.getVehicleRegNumber());
+        }
+    }
+
+    //ended bookings leave the indexes before their buckets come round again
+    private void expire(Lane lane, long now) {
+        while(!lane.byEndTime.isEmpty() && lane.byEndTime.peek().to <= now){
+            untrack(lane, lane.byEndTime.poll());
+        }
+    }
+}
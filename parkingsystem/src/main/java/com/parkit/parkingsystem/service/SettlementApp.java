@@ -0,0 +1,30 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
+import com.parkit.parkingsystem.dao.SettlementDAO;
+import com.parkit.parkingsystem.model.SettlementCheckpoint;
+
+import java.util.Date;
+
+//Settlement from the command line, at shift end or after a tariff change:
+//SettlementApp <jobId> [<carRatePerHour> <bikeRatePerHour>]
+//Running it again with the same job id resumes an interrupted run. It settles the lot given by parkit.lot.id
+public class SettlementApp {
+
+    public static void main(String[] args) {
+        if(args.length != 1 && args.length != 3){
+            System.out.println("Usage: SettlementApp <jobId> [<carRatePerHour> <bikeRatePerHour>]");
+            return;
+        }
+        FareCalculatorService fareCalculatorService = (args.length == 3)
+                ? new FareCalculatorService(Double.parseDouble(args[1]), Double.parseDouble(args[2]))
+                : new FareCalculatorService();
+        SettlementDAO settlementDAO = new SettlementDAO();
+        settlementDAO.lotId = Integer.getInteger("parkit.lot.id", DBConstants.DEFAULT_LOT_ID);
+        settlementDAO.parkingSpotCatalog = ParkingSpotCatalog.forLot(settlementDAO.lotId);
+        SettlementCheckpoint checkpoint = new SettlementJob(settlementDAO, fareCalculatorService).run(args[0], new Date());
+        System.out.println((checkpoint.isFinished() ? "Settled " : "Interrupted after ")
+                + checkpoint.getSettled() + " tickets as of " + checkpoint.getAsOf());
+    }
+}
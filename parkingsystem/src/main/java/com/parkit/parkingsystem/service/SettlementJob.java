@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.SettlementDAO;
+import com.parkit.parkingsystem.model.SettlementCheckpoint;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Date;
+import java.util.List;
+
+//Prices every open ticket as if it left at asOf, at shift end or when the tariffs change, so the takings
+//and the liabilities of the lot are known without waiting for the exits.
+//Open tickets are read by id in chunks, priced in memory and written back as one batch per chunk, in the
+//same transaction as the checkpoint. A job stopped by a crash is run again with the same id and resumes
+//after the last committed chunk, with the asOf it started with.
+//Tickets stay open: the exit prices them again on their real out time.
+public class SettlementJob {
+
+    private static final Logger logger = LogManager.getLogger("SettlementJob");
+
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private final SettlementDAO settlementDAO;
+    private final FareCalculatorService fareCalculatorService;
+    private final int chunkSize;
+
+    public SettlementJob(SettlementDAO settlementDAO, FareCalculatorService fareCalculatorService) {
+        this(settlementDAO, fareCalculatorService, DEFAULT_CHUNK_SIZE);
+    }
+
+    public SettlementJob(SettlementDAO settlementDAO, FareCalculatorService fareCalculatorService, int chunkSize) {
+        if(chunkSize <= 0){
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.settlementDAO = settlementDAO;
+        this.fareCalculatorService = fareCalculatorService;
+        this.chunkSize = chunkSize;
+    }
+
+    //the checkpoint reached, finished unless a chunk could not be read or written
+    public SettlementCheckpoint run(String jobId, Date asOf) {
+        SettlementCheckpoint checkpoint = settlementDAO.getCheckpoint(jobId);
+        if(checkpoint == null){
+            checkpoint = new SettlementCheckpoint();
+            checkpoint.setJobId(jobId);
+            checkpoint.setAsOf(asOf);
+        }else if(checkpoint.isFinished()){
+            logger.info("Settlement " + jobId + " already finished, " + checkpoint.getSettled() + " tickets settled");
+            return checkpoint;
+        }else{
+            logger.info("Resuming settlement " + jobId + " after ticket " + checkpoint.getLastTicketId());
+        }
+
+        while(!checkpoint.isFinished()){
+            List<Ticket> tickets = settlementDAO.getOpenTicketsAfter(checkpoint.getLastTicketId(), chunkSize);
+            if(tickets == null){
+                logger.error("Settlement " + jobId + " stopped after ticket " + checkpoint.getLastTicketId());
+                return checkpoint;
+            }
+            for(Ticket ticket : tickets){
+                price(ticket, checkpoint.getAsOf());
+            }
+            SettlementCheckpoint next = new SettlementCheckpoint();
+            next.setJobId(jobId);
+            next.setAsOf(checkpoint.getAsOf());
+            next.setLastTicketId(tickets.isEmpty() ? checkpoint.getLastTicketId() : tickets.get(tickets.size() - 1).getId());
+            next.setSettled(checkpoint.getSettled() + tickets.size());
+            //a short chunk is the last one, no need to read an empty one to find out
+            next.setFinished(tickets.size() < chunkSize);
+            if(!settlementDAO.settleChunk(tickets, next)){
+                logger.error("Settlement " + jobId + " stopped after ticket " + checkpoint.getLastTicketId());
+                return checkpoint;
+            }
+            checkpoint = next;
+        }
+        logger.info("Settlement " + jobId + " finished, " + checkpoint.getSettled() + " tickets settled");
+        return checkpoint;
+    }
+
+    private void price(Ticket ticket, Date asOf) {
+        //a ticket opened after asOf owes nothing yet
+        if(ticket.getInTime().after(asOf)){
+            ticket.setPrice(0);
+            return;
+        }
+        ticket.setOutTime(asOf);
+        fareCalculatorService.calculateFare(ticket, ticket.isDiscount());
+        ticket.setOutTime(null);
+    }
+}
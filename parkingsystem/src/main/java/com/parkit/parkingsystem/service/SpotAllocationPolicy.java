@@ -0,0 +1,37 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+//Chooses which free spot of a type a vehicle is sent to, 0 when there is none
+public interface SpotAllocationPolicy {
+
+    int choose(SpotAllocator spotAllocator, ParkingType parkingType);
+
+    //same choice as GET_NEXT_PARKING_SPOT
+    static SpotAllocationPolicy lowestNumber() {
+        return SpotAllocator::getLowestFree;
+    }
+
+    //entrance given as the number of the spot next to it
+    static SpotAllocationPolicy nearestTo(int entrance) {
+        return (spotAllocator, parkingType) -> spotAllocator.getNearestFree(parkingType, entrance);
+    }
+
+    //spreads vehicles over the zones, sending each one to the zone with the largest share of free spots
+    static SpotAllocationPolicy leastLoadedZone() {
+        return (spotAllocator, parkingType) -> {
+            String zone = spotAllocator.getLeastLoadedZone(parkingType);
+            return (zone == null) ? 0 : spotAllocator.getLowestFree(parkingType, zone);
+        };
+    }
+
+    //lowest, nearest or leastLoadedZone, as set in the parkit.allocation.policy system property
+    static SpotAllocationPolicy named(String name, int entrance) {
+        switch(name){
+            case "lowest": return lowestNumber();
+            case "nearest": return nearestTo(entrance);
+            case "leastLoadedZone": return leastLoadedZone();
+            default: throw new IllegalArgumentException("Unknown allocation policy: " + name);
+        }
+    }
+}
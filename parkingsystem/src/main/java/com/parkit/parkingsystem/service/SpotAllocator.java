@@ -0,0 +1,276 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DeadlineExceededException;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.util.FreeSpotTree;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//In-memory index of the free spots per ParkingType and per zone, for lots too large to send every vehicle to
+//the lowest free number. Each group of spots is a FreeSpotTree over its spot numbers in ascending order, so the
+//nearest free spot to an entrance and the free count of a zone are answered in O(log spots).
+//Spots are numbered along the aisles, level after level: the gap between two numbers stands for the distance.
+//Like OccupancyCounters it mirrors the parking table, which stays the authority: a chosen spot only becomes
+//occupied once the table is updated and ParkingService claims it.
+public class SpotAllocator {
+
+    private static final Logger logger = LogManager.getLogger("SpotAllocator");
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private final ParkingSpotCatalog parkingSpotCatalog;
+
+    private Layout layout;
+
+    private static final class Group {
+        private final String zone;
+        //spot numbers in ascending order, a spot's position in the tree is its index here
+        private final int[] numbers;
+        private final FreeSpotTree tree;
+
+        private Group(String zone, int[] numbers) {
+            this.zone = zone;
+            this.numbers = numbers;
+            this.tree = new FreeSpotTree(numbers.length);
+        }
+
+        private int lowest() {
+            int position = tree.firstFreeFrom(0);
+            return (position < 0) ? 0 : numbers[position];
+        }
+
+        //ties go to the lower number
+        private int nearest(int parkingNumber) {
+            int index = Arrays.binarySearch(numbers, parkingNumber);
+            int insertion = (index >= 0) ? index : -index - 1;
+            int before = tree.lastFreeUpTo(insertion - 1);
+            int after = tree.firstFreeFrom(insertion);
+            if(before < 0){
+                return (after < 0) ? 0 : numbers[after];
+            }
+            if(after < 0 || parkingNumber - numbers[before] <= numbers[after] - parkingNumber){
+                return numbers[before];
+            }
+            return numbers[after];
+        }
+    }
+
+    //built on load from the catalog, only the free flags change afterwards
+    private static final class Layout {
+        private final Group[] typeGroups = new Group[PARKING_TYPES.length];
+        private final List<Map<String, Group>> zoneGroups = new ArrayList<>();
+        private final byte[] types;
+        private final int[] typePositions;
+        private final int[] zonePositions;
+        private final Group[] spotZones;
+        private final int[] levels;
+
+        private Layout(int maxParkingNumber) {
+            types = new byte[maxParkingNumber + 1];
+            typePositions = new int[maxParkingNumber + 1];
+            zonePositions = new int[maxParkingNumber + 1];
+            spotZones = new Group[maxParkingNumber + 1];
+            levels = new int[maxParkingNumber + 1];
+            Arrays.fill(typePositions, -1);
+        }
+
+        private boolean contains(int parkingNumber) {
+            return parkingNumber >= 0 && parkingNumber < typePositions.length && typePositions[parkingNumber] >= 0;
+        }
+    }
+
+    public SpotAllocator(ParkingSpotCatalog parkingSpotCatalog) {
+        this.parkingSpotCatalog = parkingSpotCatalog;
+    }
+
+    public boolean load(ParkingSpotDAO parkingSpotDAO) {
+        int[] occupiedParkingNumbers;
+        try{
+            occupiedParkingNumbers = parkingSpotDAO.getOccupiedParkingNumbers();
+        }catch(DeadlineExceededException ex){
+            logger.error("Occupied spots not read in time, the allocator are left out", ex);
+            return false;
+        }
+        if(occupiedParkingNumbers == null){
+            return false;
+        }
+        load(occupiedParkingNumbers);
+        return true;
+    }
+
+    public void load(int[] occupiedParkingNumbers) {
+        int maxParkingNumber = parkingSpotCatalog.getMaxParkingNumber();
+        Layout loaded = new Layout(maxParkingNumber);
+        List<List<Integer>> typeNumbers = new ArrayList<>();
+        List<Map<String, List<Integer>>> zoneNumbers = new ArrayList<>();
+        for(int type = 0; type < PARKING_TYPES.length; type++){
+            typeNumbers.add(new ArrayList<>());
+            zoneNumbers.add(new LinkedHashMap<>());
+        }
+        for(int parkingNumber = 0; parkingNumber <= maxParkingNumber; parkingNumber++){
+            ParkingType parkingType = parkingSpotCatalog.getParkingType(parkingNumber);
+            if(parkingType == ParkingType.UNKNOWN){
+                continue;
+            }
+            String zone = parkingSpotCatalog.getZone(parkingNumber);
+            List<Integer> inZone = zoneNumbers.get(parkingType.ordinal()).computeIfAbsent(zone, z -> new ArrayList<>());
+            loaded.types[parkingNumber] = (byte) parkingType.ordinal();
+            loaded.typePositions[parkingNumber] = typeNumbers.get(parkingType.ordinal()).size();
+            loaded.zonePositions[parkingNumber] = inZone.size();
+            loaded.levels[parkingNumber] = parkingSpotCatalog.getLevel(parkingNumber);
+            typeNumbers.get(parkingType.ordinal()).add(parkingNumber);
+            inZone.add(parkingNumber);
+        }
+        for(int type = 0; type < PARKING_TYPES.length; type++){
+            loaded.typeGroups[type] = new Group(null, toArray(typeNumbers.get(type)));
+            Map<String, Group> zones = new LinkedHashMap<>();
+            for(Map.Entry<String, List<Integer>> entry : zoneNumbers.get(type).entrySet()){
+                Group group = new Group(entry.getKey(), toArray(entry.getValue()));
+                zones.put(entry.getKey(), group);
+                for(int parkingNumber : group.numbers){
+                    loaded.spotZones[parkingNumber] = group;
+                }
+            }
+            loaded.zoneGroups.add(zones);
+        }
+        for(int parkingNumber = 0; parkingNumber <= maxParkingNumber; parkingNumber++){
+            if(loaded.contains(parkingNumber)){
+                setFree(loaded, parkingNumber, true);
+            }
+        }
+        for(int parkingNumber : occupiedParkingNumbers){
+            if(loaded.contains(parkingNumber)){
+                setFree(loaded, parkingNumber, false);
+            }
+        }
+        synchronized (this) {
+            layout = loaded;
+        }
+        logger.info("Loaded spot allocator, " + (maxParkingNumber + 1) + " spot numbers");
+    }
+
+    public synchronized boolean isLoaded() {
+        return layout != null;
+    }
+
+    //0 when no spot is free or the allocator is not loaded
+    public synchronized int choose(ParkingType parkingType, SpotAllocationPolicy policy) {
+        return (layout == null) ? 0 : policy.choose(this, parkingType);
+    }
+
+    public synchronized void claim(ParkingSpot parkingSpot) {
+        update(parkingSpot.getId(), false);
+    }
+
+    public synchronized void release(ParkingSpot parkingSpot) {
+        update(parkingSpot.getId(), true);
+    }
+
+    private void update(int parkingNumber, boolean isFree) {
+        if(layout == null){
+            return;
+        }
+        if(!layout.contains(parkingNumber)){
+            logger.warn("Spot number " + parkingNumber + " is not in the spot allocator, it needs a reload");
+            return;
+        }
+        setFree(layout, parkingNumber, isFree);
+    }
+
+    public synchronized int getLowestFree(ParkingType parkingType) {
+        Group group = typeGroup(parkingType);
+        return (group == null) ? 0 : group.lowest();
+    }
+
+    public synchronized int getLowestFree(ParkingType parkingType, String zone) {
+        Group group = zoneGroup(parkingType, zone);
+        return (group == null) ? 0 : group.lowest();
+    }
+
+    public synchronized int getNearestFree(ParkingType parkingType, int entrance) {
+        Group group = typeGroup(parkingType);
+        return (group == null) ? 0 : group.nearest(entrance);
+    }
+
+    public synchronized int getNearestFree(ParkingType parkingType, String zone, int entrance) {
+        Group group = zoneGroup(parkingType, zone);
+        return (group == null) ? 0 : group.nearest(entrance);
+    }
+
+    public synchronized int getFreeCount(ParkingType parkingType) {
+        Group group = typeGroup(parkingType);
+        return (group == null) ? 0 : group.tree.freeCount();
+    }
+
+    public synchronized int getFreeCount(ParkingType parkingType, String zone) {
+        Group group = zoneGroup(parkingType, zone);
+        return (group == null) ? 0 : group.tree.freeCount();
+    }
+
+    public synchronized int getCapacity(ParkingType parkingType, String zone) {
+        Group group = zoneGroup(parkingType, zone);
+        return (group == null) ? 0 : group.tree.size();
+    }
+
+    public synchronized List<String> getZones(ParkingType parkingType) {
+        return (layout == null) ? new ArrayList<>() : new ArrayList<>(layout.zoneGroups.get(parkingType.ordinal()).keySet());
+    }
+
+    //zone with the largest share of free spots, null when none has any: a scan of the zones of the type,
+    //a few per site
+    public synchronized String getLeastLoadedZone(ParkingType parkingType) {
+        if(layout == null){
+            return null;
+        }
+        Group best = null;
+        for(Group group : layout.zoneGroups.get(parkingType.ordinal()).values()){
+            int free = group.tree.freeCount();
+            if(free == 0){
+                continue;
+            }
+            //free / size > bestFree / bestSize without the division
+            if(best == null || (long) free * best.tree.size() > (long) best.tree.freeCount() * group.tree.size()){
+                best = group;
+            }
+        }
+        return (best == null) ? null : best.zone;
+    }
+
+    public synchronized String getZone(int parkingNumber) {
+        return (layout != null && layout.contains(parkingNumber)) ? layout.spotZones[parkingNumber].zone : null;
+    }
+
+    public synchronized int getLevel(int parkingNumber) {
+        return (layout != null && layout.contains(parkingNumber)) ? layout.levels[parkingNumber] : 0;
+    }
+
+    private Group typeGroup(ParkingType parkingType) {
+        return (layout == null || parkingType == ParkingType.UNKNOWN) ? null : layout.typeGroups[parkingType.ordinal()];
+    }
+
+    private Group zoneGroup(ParkingType parkingType, String zone) {
+        return (layout == null || parkingType == ParkingType.UNKNOWN) ? null : layout.zoneGroups.get(parkingType.ordinal()).get(zone);
+    }
+
+    private static void setFree(Layout current, int parkingNumber, boolean isFree) {
+        current.typeGroups[current.types[parkingNumber]].tree.setFree(current.typePositions[parkingNumber], isFree);
+        current.spotZones[parkingNumber].tree.setFree(current.zonePositions[parkingNumber], isFree);
+    }
+
+    private static int[] toArray(List<Integer> numbers) {
+        int[] array = new int[numbers.size()];
+        for(int i = 0; i < array.length; i++){
+            array[i] = numbers.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ExportFormat;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.util.TicketRecordEncoder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+public class TicketExportService {
+
+    private static final Logger logger = LogManager.getLogger("TicketExportService");
+
+    public static final int EXPORT_FETCH_SIZE = 10000;
+    public static final int BUFFER_SIZE = 1 << 20;
+
+    private TicketHistoryDAO ticketHistoryDAO;
+
+    //one direct buffer per service, reused for every export so memory stays constant
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.BIG_ENDIAN);
+
+    public TicketExportService(TicketHistoryDAO ticketHistoryDAO){
+        this.ticketHistoryDAO = ticketHistoryDAO;
+    }
+
+    public synchronized long exportTickets(Date from, Date to, ExportFormat format, boolean compress, Path output) throws IOException {
+        if(from == null || to == null || !from.before(to)){
+            throw new IllegalArgumentException("Export period is incorrect: " + from + " - " + to);
+        }
+        buffer.clear();
+        try(FileChannel fileChannel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            WritableByteChannel channel = compress ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fileChannel), BUFFER_SIZE)) : fileChannel){
+            if(format == ExportFormat.CSV){
+                buffer.put(TicketRecordEncoder.CSV_HEADER.getBytes(StandardCharsets.US_ASCII));
+            } else {
+                buffer.put(TicketRecordEncoder.BINARY_MAGIC);
+            }
+            RecordWriter recordWriter = new RecordWriter(format, channel);
+            if(!ticketHistoryDAO.streamTickets(from, to, EXPORT_FETCH_SIZE, recordWriter)){
+                throw new IOException("Unable to read tickets for " + from + " - " + to);
+            }
+            flush(channel);
+            logger.info("Exported " + recordWriter.count + " tickets to " + output);
+            return recordWriter.count;
+        }
+    }
+
+    private void flush(WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private class RecordWriter implements TicketHistoryDAO.TicketRowHandler {
+
+        private final ExportFormat format;
+        private final WritableByteChannel channel;
+        private long count;
+
+        private RecordWriter(ExportFormat format, WritableByteChannel channel) {
+            this.format = format;
+            this.channel = channel;
+        }
+
+        @Override
+        public void onTicket(long id, int parkingNumber, String vehicleRegNumber, ParkingType parkingType, double price, long inTime, Timestamp outTime) throws IOException {
+            if(buffer.remaining() < TicketRecordEncoder.maxRecordSize(vehicleRegNumber)){
+                flush(channel);
+            }
+            long out = (outTime == null) ? TicketRecordEncoder.NO_OUT_TIME : outTime.getTime();
+            if(format == ExportFormat.CSV){
+                TicketRecordEncoder.putCsv(buffer, id, parkingNumber, parkingType, vehicleRegNumber, price, inTime, out);
+            } else {
+                TicketRecordEncoder.putBinary(buffer, id, parkingNumber, parkingType, vehicleRegNumber, price, inTime, out);
+            }
+            count++;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.util.PlateMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+//Column oriented copy of the ticket history: one primitive array per attribute instead of one Ticket object per row
+public class TicketHistoryStore implements TicketHistoryDAO.TicketRowHandler {
+
+    private static final Logger logger = LogManager.getLogger("TicketHistoryStore");
+
+    public static final long NO_OUT_TIME = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+    private static final long hourInMillis = 60 * 60 * 1000;
+
+    private int size;
+    private long[] inTimes = new long[INITIAL_CAPACITY];
+    private long[] outTimes = new long[INITIAL_CAPACITY];
+    private int[] parkingNumbers = new int[INITIAL_CAPACITY];
+    private byte[] parkingTypes = new byte[INITIAL_CAPACITY];
+    private int[] plateIds = new int[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+
+    //plates are dictionary encoded: each distinct registration number is stored once
+    private final PlateMap<Integer> plateDictionary = new PlateMap<>();
+    private final List<String> plates = new ArrayList<>();
+
+    public static TicketHistoryStore load(TicketHistoryDAO ticketHistoryDAO, Date from, Date to) {
+        TicketHistoryStore store = new TicketHistoryStore();
+        if(!ticketHistoryDAO.streamTickets(from, to, store)){
+            return null;
+        }
+        store.trimToSize();
+        logger.info("Loaded " + store.size() + " tickets for " + store.plates.size() + " vehicles");
+        return store;
+    }
+
+    @Override
+    public void onTicket(long id, int parkingNumber, String vehicleRegNumber, ParkingType parkingType, double price, long inTime, Timestamp outTime) {
+        add(parkingNumber, vehicleRegNumber, parkingType, price, inTime, (outTime == null) ? NO_OUT_TIME : outTime.getTime());
+    }
+
+    public void add(int parkingNumber, String vehicleRegNumber, ParkingType parkingType, double price, long inTime, long outTime) {
+        if(size == inTimes.length){
+            //a store loaded empty is trimmed to no capacity at all, doubling alone would keep it there
+            grow(Math.max(INITIAL_CAPACITY, size * 2));
+        }
+        Integer plateId = plateDictionary.get(vehicleRegNumber);
+        if(plateId == null){
+            plateId = plates.size();
+            plateDictionary.put(vehicleRegNumber, plateId);
+            plates.add(vehicleRegNumber);
+        }
+        inTimes[size] = inTime;
+        outTimes[size] = outTime;
+        parkingNumbers[size] = parkingNumber;
+        parkingTypes[size] = (byte) parkingType.ordinal();
+        plateIds[size] = plateId;
+        prices[size] = price;
+        size++;
+    }
+
+    public void trimToSize() {
+        grow(size);
+    }
+
+    private void grow(int capacity) {
+        inTimes = Arrays.copyOf(inTimes, capacity);
+        outTimes = Arrays.copyOf(outTimes, capacity);
+        parkingNumbers = Arrays.copyOf(parkingNumbers, capacity);
+        parkingTypes = Arrays.copyOf(parkingTypes, capacity);
+        plateIds = Arrays.copyOf(plateIds, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getNbVehicles() {
+        return plates.size();
+    }
+
+    public long getInTime(int row) {
+        return inTimes[row];
+    }
+
+    public long getOutTime(int row) {
+        return outTimes[row];
+    }
+
+    public int getParkingNumber(int row) {
+        return parkingNumbers[row];
+    }
+
+    public ParkingType getParkingType(int row) {
+        return PARKING_TYPES[parkingTypes[row]];
+    }
+
+    public String getVehicleRegNumber(int row) {
+        return plates.get(plateIds[row]);
+    }
+
+    public double getPrice(int row) {
+        return prices[row];
+    }
+
+    //filters
+
+    public IntPredicate all() {
+        return row -> true;
+    }
+
+    public IntPredicate ofType(ParkingType parkingType) {
+        byte type = (byte) parkingType.ordinal();
+        return row -> parkingTypes[row] == type;
+    }
+
+    public IntPredicate closed() {
+        return row -> outTimes[row] != NO_OUT_TIME;
+    }
+
+    public IntPredicate exitedBetween(long from, long to) {
+        return row -> outTimes[row] != NO_OUT_TIME && outTimes[row] >= from && outTimes[row] < to;
+    }
+
+    public IntPredicate vehicle(String vehicleRegNumber) {
+        Integer plateId = plateDictionary.get(vehicleRegNumber);
+        if(plateId == null){
+            return row -> false;
+        }
+        int id = plateId;
+        return row -> plateIds[row] == id;
+    }
+
+    //parallel scan operators
+
+    public IntStream scan(IntPredicate filter) {
+        return IntStream.range(0, size).parallel().filter(filter);
+    }
+
+    public long count(IntPredicate filter) {
+        return scan(filter).count();
+    }
+
+    public double revenue(IntPredicate filter) {
+        return scan(filter.and(closed())).mapToDouble(row -> prices[row]).sum();
+    }
+
+    public double averageStayMinutes(IntPredicate filter) {
+        return scan(filter.and(closed())).mapToLong(row -> outTimes[row] - inTimes[row]).average().orElse(0) / (60 * 1000);
+    }
+
+    //revenue grouped by the hour of day of the exit
+    public double[] revenueByHour(IntPredicate filter, ZoneId zone) {
+        ZoneRules rules = zone.getRules();
+        return scan(filter.and(closed())).collect(() -> new double[24], (revenueByHour, row) -> {
+            long localTime = outTimes[row] + rules.getOffset(Instant.ofEpochMilli(outTimes[row])).getTotalSeconds() * 1000L;
+            revenueByHour[(int) (Math.floorMod(localTime, 24 * hourInMillis) / hourInMillis)] += prices[row];
+        }, (left, right) -> {
+            for(int hour = 0; hour < 24; hour++){
+                left[hour] += right[hour];
+            }
+        });
+    }
+
+    public int[] visitsPerVehicle(IntPredicate filter) {
+        int nbPlates = plates.size();
+        return scan(filter).collect(() -> new int[nbPlates], (visits, row) -> visits[plateIds[row]]++, (left, right) -> {
+            for(int plate = 0; plate < nbPlates; plate++){
+                left[plate] += right[plate];
+            }
+        });
+    }
+
+    //share of the vehicles matching the filter that came back at least once
+    public double repeatVisitRate(IntPredicate filter) {
+        int vehicles = 0;
+        int repeatVehicles = 0;
+        for(int visits : visitsPerVehicle(filter)){
+            if(visits > 0){
+                vehicles++;
+            }
+            if(visits > 1){
+                repeatVehicles++;
+            }
+        }
+        return (vehicles == 0) ? 0 : (double) repeatVehicles / vehicles;
+    }
+}
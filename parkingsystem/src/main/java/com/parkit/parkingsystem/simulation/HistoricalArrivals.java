@@ -0,0 +1,31 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+//Visits replayed from the closed tickets of a past period, with their real arrival times and stays
+public class HistoricalArrivals {
+
+    private HistoricalArrivals() {
+    }
+
+    //null when the history could not be read
+    public static List<Visit> load(TicketHistoryDAO ticketHistoryDAO, Date from, Date to) {
+        List<Visit> visits = new ArrayList<>();
+        boolean loaded = ticketHistoryDAO.streamTickets(from, to, (id, parkingNumber, vehicleRegNumber, parkingType, price, inTime, outTime) -> {
+            if(outTime != null && parkingType != ParkingType.UNKNOWN){
+                visits.add(new Visit(inTime, parkingType, vehicleRegNumber, outTime.getTime() - inTime));
+            }
+        });
+        if(!loaded){
+            return null;
+        }
+        visits.sort(Comparator.comparingLong(Visit::getArrivalTime));
+        return visits;
+    }
+}
@@ -0,0 +1,58 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+//Parking table held in memory: car spots are numbered first from 1, then bike spots.
+//Allocation keeps the rule of the real query, the lowest free spot number of the type.
+public class InMemoryParkingSpotDAO extends ParkingSpotDAO {
+
+    private final Map<ParkingType, BitSet> freeSpots = new EnumMap<>(ParkingType.class);
+    private final ParkingType[] parkingTypes;
+
+    public InMemoryParkingSpotDAO(int carSpots, int bikeSpots) {
+        parkingTypes = new ParkingType[carSpots + bikeSpots + 1];
+        freeSpots.put(ParkingType.CAR, new BitSet());
+        freeSpots.put(ParkingType.BIKE, new BitSet());
+        for(int parkingNumber = 1; parkingNumber < parkingTypes.length; parkingNumber++){
+            ParkingType parkingType = (parkingNumber <= carSpots) ? ParkingType.CAR : ParkingType.BIKE;
+            parkingTypes[parkingNumber] = parkingType;
+            freeSpots.get(parkingType).set(parkingNumber);
+        }
+    }
+
+    @Override
+    public synchronized int getNextAvailableSlot(ParkingType parkingType) {
+        BitSet free = freeSpots.get(parkingType);
+        if(free == null){
+            return -1;
+        }
+        int parkingNumber = free.nextSetBit(1);
+        return (parkingNumber < 0) ? 0 : parkingNumber;
+    }
+
+    @Override
+    public synchronized boolean updateParking(ParkingSpot parkingSpot) {
+        int parkingNumber = parkingSpot.getId();
+        if(parkingNumber <= 0 || parkingNumber >= parkingTypes.length){
+            return false;
+        }
+        freeSpots.get(parkingTypes[parkingNumber]).set(parkingNumber, parkingSpot.isAvailable());
+        return true;
+    }
+
+    @Override
+    public synchronized int[] getOccupiedParkingNumbers() {
+        BitSet occupied = new BitSet(parkingTypes.length);
+        occupied.set(1, parkingTypes.length);
+        for(BitSet free : freeSpots.values()){
+            occupied.andNot(free);
+        }
+        return occupied.stream().toArray();
+    }
+}
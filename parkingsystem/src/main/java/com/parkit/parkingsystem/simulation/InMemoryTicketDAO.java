@@ -0,0 +1,69 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.PlateMap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Ticket table held in memory. Only what the gates read is kept: the last ticket and the visit count of each
+//vehicle, and the open tickets by id, so memory follows the number of vehicles rather than months of history.
+//Vehicles are keyed by plate code, a simulated year of visitors costs a long and one small object each.
+public class InMemoryTicketDAO extends TicketDAO {
+
+    private final PlateMap<Vehicle> vehicles = new PlateMap<>();
+    private final Map<Long, Ticket> openTickets = new HashMap<>();
+
+    private static final class Vehicle {
+        private Ticket lastTicket;
+        private int ticketCount;
+    }
+
+    @Override
+    public synchronized boolean saveTicket(Ticket ticket) {
+        Vehicle vehicle = vehicles.computeIfAbsent(ticket.getVehicleRegNumber(), v -> new Vehicle());
+        vehicle.lastTicket = ticket;
+        vehicle.ticketCount++;
+        if(ticket.getOutTime() == null){
+            openTickets.put(ticket.getId(), ticket);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean saveTickets(List<Ticket> tickets) {
+        tickets.forEach(this::saveTicket);
+        return true;
+    }
+
+    @Override
+    public synchronized Ticket getTicket(String vehicleRegNumber) {
+        Vehicle vehicle = vehicles.get(vehicleRegNumber);
+        return (vehicle != null) ? vehicle.lastTicket : null;
+    }
+
+    @Override
+    public synchronized Ticket getTicket(long ticketId) {
+        return openTickets.get(ticketId);
+    }
+
+    @Override
+    public synchronized boolean updateTicket(Ticket ticket) {
+        if(ticket.getOutTime() != null){
+            openTickets.remove(ticket.getId());
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized int getNbTicket(String vehicleRegNumber) {
+        Vehicle vehicle = vehicles.get(vehicleRegNumber);
+        return (vehicle != null) ? vehicle.ticketCount : 0;
+    }
+
+    public synchronized int getOpenTicketCount() {
+        return openTickets.size();
+    }
+}
@@ -0,0 +1,26 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+//Answers the gate prompts with the vehicle the simulation is currently processing
+public class ScriptedInputReaderUtil extends InputReaderUtil {
+
+    private int selection;
+    private String vehicleRegNumber;
+
+    public void setVehicle(ParkingType parkingType, String vehicleRegNumber) {
+        this.selection = (parkingType == ParkingType.BIKE) ? 2 : 1;
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    @Override
+    public int readSelection() {
+        return selection;
+    }
+
+    @Override
+    public String readVehicleRegistrationNumber() {
+        return vehicleRegNumber;
+    }
+}
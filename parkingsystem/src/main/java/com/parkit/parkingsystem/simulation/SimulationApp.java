@@ -0,0 +1,38 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.util.concurrent.TimeUnit;
+
+//Capacity planning from the command line, one run per lot layout on the same synthetic traffic:
+//SimulationApp <days> <arrivalsPerHour> <meanStayMinutes> <carSpots>x<bikeSpots>...
+public class SimulationApp {
+
+    private static final double BIKE_SHARE = 0.2;
+    private static final int REGULAR_VEHICLES = 500;
+    private static final double REGULAR_SHARE = 0.3;
+    private static final long SEED = 42;
+
+    public static void main(String[] args) {
+        if(args.length < 4){
+            System.out.println("Usage: SimulationApp <days> <arrivalsPerHour> <meanStayMinutes> <carSpots>x<bikeSpots>...");
+            return;
+        }
+        int days = Integer.parseInt(args[0]);
+        double arrivalsPerHour = Double.parseDouble(args[1]);
+        double meanStayMinutes = Double.parseDouble(args[2]);
+        //the simulated gates would log every entry and exit, this process only prints the reports
+        Configurator.setRootLevel(Level.OFF);
+        long start = System.currentTimeMillis();
+        long end = start + TimeUnit.DAYS.toMillis(days);
+        for(int i = 3; i < args.length; i++){
+            String[] layout = args[i].split("x");
+            SimulationEngine simulationEngine = new SimulationEngine(Integer.parseInt(layout[0]), Integer.parseInt(layout[1]), new FareCalculatorService());
+            SimulationReport report = simulationEngine.run(new SyntheticArrivals(start, end, SyntheticArrivals.flatRate(arrivalsPerHour),
+                    meanStayMinutes, BIKE_SHARE, REGULAR_VEHICLES, REGULAR_SHARE, SEED));
+            System.out.print(report);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.event.ParkingEventBus;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.monitoring.StartupTimer;
+import com.parkit.parkingsystem.service.AdmissionController;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.LatencyTracker;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+//Discrete event simulation of a lot: arrivals are replayed in time order through the real ParkingService
+//and FareCalculatorService, on a virtual clock and in memory DAOs, and departures are scheduled from each
+//visit's stay. Time jumps from one event to the next, so months of traffic take seconds.
+//The simulated gates print to nowhere, the logging configuration is left to the caller.
+public class SimulationEngine {
+
+    private final int carSpots;
+    private final int bikeSpots;
+    private final FareCalculatorService fareCalculatorService;
+
+    private static final class Departure implements Comparable<Departure> {
+        private final long time;
+        private final long order;
+        private final ParkingType parkingType;
+        private final String vehicleRegNumber;
+
+        private Departure(long time, long order, ParkingType parkingType, String vehicleRegNumber) {
+            this.time = time;
+            this.order = order;
+            this.parkingType = parkingType;
+            this.vehicleRegNumber = vehicleRegNumber;
+        }
+
+        @Override
+        public int compareTo(Departure other) {
+            int byTime = Long.compare(time, other.time);
+            return (byTime != 0) ? byTime : Long.compare(order, other.order);
+        }
+    }
+
+    public SimulationEngine(int carSpots, int bikeSpots, FareCalculatorService fareCalculatorService) {
+        this.carSpots = carSpots;
+        this.bikeSpots = bikeSpots;
+        this.fareCalculatorService = fareCalculatorService;
+    }
+
+    public SimulationReport run(Iterator<Visit> arrivals) {
+        long wallStart = System.currentTimeMillis();
+        SimulationReport report = new SimulationReport();
+        report.setCapacity(ParkingType.CAR, carSpots);
+        report.setCapacity(ParkingType.BIKE, bikeSpots);
+        if(!arrivals.hasNext()){
+            return report;
+        }
+
+        Visit nextArrival = arrivals.next();
+        long start = nextArrival.getArrivalTime();
+        VirtualClock clock = new VirtualClock(start);
+        ScriptedInputReaderUtil inputReaderUtil = new ScriptedInputReaderUtil();
+        InMemoryTicketDAO ticketDAO = new InMemoryTicketDAO();
+        ParkingService parkingService = new ParkingService(inputReaderUtil, new InMemoryParkingSpotDAO(carSpots, bikeSpots), ticketDAO, clock);
+        parkingService.setFareCalculatorService(fareCalculatorService);
+        parkingService.setConsole(new PrintStream(OutputStream.nullOutputStream()));
+        //private instances: the simulated traffic must not reach the live gates' limits or subscribers
+        parkingService.setAdmissionController(new AdmissionController(new LatencyTracker(), 0, 0, AdmissionController.DEFAULT_TARGET_LATENCY_MILLIS));
+        parkingService.setEventBus(new ParkingEventBus(1024));
+        parkingService.setStartupTimer(new StartupTimer(start, clock));
+
+        PriorityQueue<Departure> departures = new PriorityQueue<>();
+        Set<String> parked = new HashSet<>();
+        int[] occupied = new int[ParkingType.values().length];
+        long now = start;
+        long order = 0;
+        while(nextArrival != null || !departures.isEmpty()){
+            //departures first on a tie, the spot they free can be used by the arrival
+            boolean departure = !departures.isEmpty() && (nextArrival == null || departures.peek().time <= nextArrival.getArrivalTime());
+            long time = departure ? departures.peek().time : nextArrival.getArrivalTime();
+            advance(report, occupied, now, time);
+            now = time;
+            clock.setMillis(now);
+
+            if(departure){
+                Departure leaving = departures.poll();
+                inputReaderUtil.setVehicle(leaving.parkingType, leaving.vehicleRegNumber);
+                parkingService.processExitingVehicle();
+                Ticket ticket = ticketDAO.getTicket(leaving.vehicleRegNumber);
+                report.revenue(leaving.parkingType, ticket.getPrice());
+                parked.remove(leaving.vehicleRegNumber);
+                occupied[leaving.parkingType.ordinal()]--;
+            }else{
+                Visit visit = nextArrival;
+                nextArrival = arrivals.hasNext() ? arrivals.next() : null;
+                //a vehicle cannot be in twice: a regular drawn while still parked comes as a one-off visitor
+                String vehicleRegNumber = parked.contains(visit.getVehicleRegNumber())
+                        ? visit.getVehicleRegNumber() + "-" + order : visit.getVehicleRegNumber();
+                report.arrival(visit.getParkingType());
+                inputReaderUtil.setVehicle(visit.getParkingType(), vehicleRegNumber);
+                try {
+                    parkingService.processIncomingVehicle();
+                    parked.add(vehicleRegNumber);
+                    occupied[visit.getParkingType().ordinal()]++;
+                    departures.add(new Departure(now + visit.getStayMillis(), order++, visit.getParkingType(), vehicleRegNumber));
+                } catch (Exception e) {
+                    report.rejection(visit.getParkingType());
+                }
+            }
+        }
+        report.setDurations(now - start, System.currentTimeMillis() - wallStart);
+        return report;
+    }
+
+    private static void advance(SimulationReport report, int[] occupied, long from, long to) {
+        for(ParkingType parkingType : ParkingType.values()){
+            report.occupancy(parkingType, occupied[parkingType.ordinal()], to - from);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+public class SimulationReport {
+
+    private static final ParkingType[] PARKING_TYPES = {ParkingType.CAR, ParkingType.BIKE};
+
+    private final int[] capacities = new int[ParkingType.values().length];
+    private final long[] arrivals = new long[ParkingType.values().length];
+    private final long[] rejections = new long[ParkingType.values().length];
+    private final double[] revenues = new double[ParkingType.values().length];
+    private final double[] occupancyMillis = new double[ParkingType.values().length];
+    private final int[] peakOccupancies = new int[ParkingType.values().length];
+    private long simulatedMillis;
+    private long wallMillis;
+
+    void setCapacity(ParkingType parkingType, int capacity) {
+        capacities[parkingType.ordinal()] = capacity;
+    }
+
+    void arrival(ParkingType parkingType) {
+        arrivals[parkingType.ordinal()]++;
+    }
+
+    void rejection(ParkingType parkingType) {
+        rejections[parkingType.ordinal()]++;
+    }
+
+    void revenue(ParkingType parkingType, double price) {
+        revenues[parkingType.ordinal()] += price;
+    }
+
+    void occupancy(ParkingType parkingType, int occupied, long durationMillis) {
+        occupancyMillis[parkingType.ordinal()] += (double) occupied * durationMillis;
+        peakOccupancies[parkingType.ordinal()] = Math.max(peakOccupancies[parkingType.ordinal()], occupied);
+    }
+
+    void setDurations(long simulatedMillis, long wallMillis) {
+        this.simulatedMillis = simulatedMillis;
+        this.wallMillis = wallMillis;
+    }
+
+    public int getCapacity(ParkingType parkingType) {
+        return capacities[parkingType.ordinal()];
+    }
+
+    public long getArrivals(ParkingType parkingType) {
+        return arrivals[parkingType.ordinal()];
+    }
+
+    public long getRejections(ParkingType parkingType) {
+        return rejections[parkingType.ordinal()];
+    }
+
+    public double getRejectionRate(ParkingType parkingType) {
+        long arrived = getArrivals(parkingType);
+        return (arrived == 0) ? 0 : (double) getRejections(parkingType) / arrived;
+    }
+
+    public double getRevenue(ParkingType parkingType) {
+        return revenues[parkingType.ordinal()];
+    }
+
+    public double getTotalRevenue() {
+        double total = 0;
+        for(double revenue : revenues){
+            total += revenue;
+        }
+        return total;
+    }
+
+    //time weighted over the simulated period
+    public double getAverageOccupancy(ParkingType parkingType) {
+        return (simulatedMillis == 0) ? 0 : occupancyMillis[parkingType.ordinal()] / simulatedMillis;
+    }
+
+    public int getPeakOccupancy(ParkingType parkingType) {
+        return peakOccupancies[parkingType.ordinal()];
+    }
+
+    public long getSimulatedMillis() {
+        return simulatedMillis;
+    }
+
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Simulated %.1f days in %d ms, revenue %.2f%n",
+                simulatedMillis / (double) TimeUnit.DAYS.toMillis(1), wallMillis, getTotalRevenue()));
+        for(ParkingType parkingType : PARKING_TYPES){
+            report.append(String.format(Locale.ROOT,
+                    "%s: %d spots, %d arrivals, %d rejected (%.1f%%), average occupancy %.1f, peak %d, revenue %.2f%n",
+                    parkingType, getCapacity(parkingType), getArrivals(parkingType), getRejections(parkingType),
+                    100 * getRejectionRate(parkingType), getAverageOccupancy(parkingType), getPeakOccupancy(parkingType),
+                    getRevenue(parkingType)));
+        }
+        return report.toString();
+    }
+}
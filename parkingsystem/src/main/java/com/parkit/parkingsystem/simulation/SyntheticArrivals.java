@@ -0,0 +1,99 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//Poisson arrivals with a rate per hour of the day (UTC) and exponential stays, generated lazily in time order.
+//A share of the arrivals comes from a fixed population of regular vehicles, the others are one-off visitors.
+public class SyntheticArrivals implements Iterator<Visit> {
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long MIN_STAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final long end;
+    private final double[] arrivalsPerHourOfDay;
+    private final double meanStayMillis;
+    private final double bikeShare;
+    private final int regularVehicles;
+    private final double regularShare;
+    private final Random random;
+
+    private long time;
+    private long visitors;
+    private Visit next;
+
+    public SyntheticArrivals(long start, long end, double[] arrivalsPerHourOfDay, double meanStayMinutes,
+                             double bikeShare, int regularVehicles, double regularShare, long seed) {
+        if(arrivalsPerHourOfDay.length != 24){
+            throw new IllegalArgumentException("One arrival rate per hour of the day is expected");
+        }
+        this.time = start;
+        this.end = end;
+        this.arrivalsPerHourOfDay = arrivalsPerHourOfDay.clone();
+        this.meanStayMillis = meanStayMinutes * TimeUnit.MINUTES.toMillis(1);
+        this.bikeShare = bikeShare;
+        this.regularVehicles = regularVehicles;
+        this.regularShare = regularShare;
+        this.random = new Random(seed);
+        this.next = generate();
+    }
+
+    //the same rate all day long
+    public static double[] flatRate(double arrivalsPerHour) {
+        double[] rates = new double[24];
+        Arrays.fill(rates, arrivalsPerHour);
+        return rates;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public Visit next() {
+        if(next == null){
+            throw new NoSuchElementException();
+        }
+        Visit visit = next;
+        next = generate();
+        return visit;
+    }
+
+    private Visit generate() {
+        //the rate is constant within an hour: draw a gap at that rate and, when it crosses into the next hour,
+        //start again from the hour boundary at the new rate (exponential gaps are memoryless)
+        while(time < end){
+            long hourEnd = (Math.floorDiv(time, HOUR_MILLIS) + 1) * HOUR_MILLIS;
+            double rate = arrivalsPerHourOfDay[(int) Math.floorMod(Math.floorDiv(time, HOUR_MILLIS), 24L)];
+            if(rate <= 0){
+                time = hourEnd;
+                continue;
+            }
+            long arrival = time + (long) (exponential(HOUR_MILLIS / rate));
+            if(arrival >= hourEnd){
+                time = hourEnd;
+                continue;
+            }
+            time = arrival;
+            if(arrival >= end){
+                break;
+            }
+            ParkingType parkingType = (random.nextDouble() < bikeShare) ? ParkingType.BIKE : ParkingType.CAR;
+            String vehicleRegNumber = (regularVehicles > 0 && random.nextDouble() < regularShare)
+                    ? "REG" + random.nextInt(regularVehicles) : "VIS" + (++visitors);
+            long stay = Math.max(MIN_STAY_MILLIS, (long) exponential(meanStayMillis));
+            return new Visit(arrival, parkingType, vehicleRegNumber, stay);
+        }
+        return null;
+    }
+
+    private double exponential(double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+}
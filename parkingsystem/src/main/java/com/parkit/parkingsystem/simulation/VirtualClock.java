@@ -0,0 +1,49 @@
+package com.parkit.parkingsystem.simulation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+//Clock which only moves when the simulation moves it
+public class VirtualClock extends Clock {
+
+    private final ZoneId zone;
+    private long millis;
+
+    public VirtualClock(long millis) {
+        this(millis, ZoneOffset.UTC);
+    }
+
+    public VirtualClock(long millis, ZoneId zone) {
+        this.millis = millis;
+        this.zone = zone;
+    }
+
+    public void setMillis(long millis) {
+        if(millis < this.millis){
+            throw new IllegalArgumentException("Virtual time cannot go backwards: " + millis + " < " + this.millis);
+        }
+        this.millis = millis;
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new VirtualClock(millis, zone);
+    }
+}
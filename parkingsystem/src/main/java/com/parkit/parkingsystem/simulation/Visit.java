@@ -0,0 +1,33 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+public class Visit {
+    private final long arrivalTime;
+    private final ParkingType parkingType;
+    private final String vehicleRegNumber;
+    private final long stayMillis;
+
+    public Visit(long arrivalTime, ParkingType parkingType, String vehicleRegNumber, long stayMillis) {
+        this.arrivalTime = arrivalTime;
+        this.parkingType = parkingType;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.stayMillis = stayMillis;
+    }
+
+    public long getArrivalTime() {
+        return arrivalTime;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public long getStayMillis() {
+        return stayMillis;
+    }
+}
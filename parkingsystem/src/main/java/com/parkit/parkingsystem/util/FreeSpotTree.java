@@ -0,0 +1,87 @@
+package com.parkit.parkingsystem.util;
+
+//Segment tree over the positions 0 to size - 1 of a group of spots, each node holding the number of free
+//positions below it. Updates, the free count and the nearest free position on either side of a given one
+//are all O(log size).
+public class FreeSpotTree {
+
+    private final int size;
+    private final int leaves;
+    private final int[] free;
+
+    //every position starts occupied
+    public FreeSpotTree(int size) {
+        this.size = size;
+        int capacity = 1;
+        while(capacity < size){
+            capacity <<= 1;
+        }
+        this.leaves = capacity;
+        this.free = new int[2 * capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int freeCount() {
+        return free[1];
+    }
+
+    public boolean isFree(int position) {
+        return free[leaves + position] == 1;
+    }
+
+    public void setFree(int position, boolean isFree) {
+        int node = leaves + position;
+        int value = isFree ? 1 : 0;
+        if(free[node] == value){
+            return;
+        }
+        free[node] = value;
+        for(node >>= 1; node > 0; node >>= 1){
+            free[node] = free[2 * node] + free[2 * node + 1];
+        }
+    }
+
+    //lowest free position greater than or equal to from, -1 if there is none
+    public int firstFreeFrom(int from) {
+        if(from >= size || free[1] == 0){
+            return -1;
+        }
+        return firstFree(1, 0, leaves - 1, Math.max(0, from));
+    }
+
+    //highest free position lower than or equal to to, -1 if there is none
+    public int lastFreeUpTo(int to) {
+        if(to < 0 || free[1] == 0){
+            return -1;
+        }
+        return lastFree(1, 0, leaves - 1, Math.min(size - 1, to));
+    }
+
+    //only subtrees overlapping the bound and holding a free position are visited, two per level at most
+    private int firstFree(int node, int low, int high, int from) {
+        if(high < from || free[node] == 0){
+            return -1;
+        }
+        if(low == high){
+            return low;
+        }
+        int middle = (low + high) >>> 1;
+        int left = firstFree(2 * node, low, middle, from);
+        return (left != -1) ? left : firstFree(2 * node + 1, middle + 1, high, from);
+    }
+
+    private int lastFree(int node, int low, int high, int to) {
+        if(low > to || free[node] == 0){
+            return -1;
+        }
+        if(low == high){
+            return low;
+        }
+        int middle = (low + high) >>> 1;
+        int right = lastFree(2 * node + 1, middle + 1, high, to);
+        return (right != -1) ? right : lastFree(2 * node, low, middle, to);
+    }
+}
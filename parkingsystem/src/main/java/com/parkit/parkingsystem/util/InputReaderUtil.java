@@ -7,9 +7,19 @@ import java.util.Scanner;
 
 public class InputReaderUtil {
 
-    private static Scanner scan = new Scanner(System.in);
+    private static final Scanner CONSOLE = new Scanner(System.in);
     private static final Logger logger = LogManager.getLogger("InputReaderUtil");
 
+    private final Scanner scan;
+
+    public InputReaderUtil() {
+        this(CONSOLE);
+    }
+
+    public InputReaderUtil(Scanner scan) {
+        this.scan = scan;
+    }
+
     public int readSelection() {
             System.out.println("-----InputReaderUtil.readSelection");
         try {
@@ -28,7 +38,12 @@ public class InputReaderUtil {
             if(vehicleRegNumber == null || vehicleRegNumber.trim().length()==0) {
                 throw new IllegalArgumentException("Invalid input provided");
             }
-            return vehicleRegNumber;
+            //canonical plates are what the tickets hold and what the in memory lookups can pack
+            String canonical = PlateCodec.normalize(vehicleRegNumber);
+            if(canonical.isEmpty() || canonical.length() > PlateCodec.MAX_LENGTH) {
+                throw new IllegalArgumentException("Invalid input provided");
+            }
+            return canonical;
         }catch(Exception e){
             logger.error("Error while reading user input from Shell", e);
             System.out.println("Error reading input. Please enter a valid string for vehicle registration number");
@@ -36,5 +51,18 @@ public class InputReaderUtil {
         }
     }
 
+    public long readTicketId() throws Exception {
+        try {
+            long ticketId = Long.parseLong(scan.nextLine().trim());
+            if(ticketId <= 0) {
+                throw new IllegalArgumentException("Invalid input provided");
+            }
+            return ticketId;
+        }catch(Exception e){
+            logger.error("Error while reading user input from Shell", e);
+            System.out.println("Error reading input. Please enter a valid ticket number");
+            throw e;
+        }
+    }
 
 }
@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem.util;
+
+//Number of intervals covering each time bucket, for a rolling window of buckets. Adding or removing an
+//interval and the maximum over a time range are O(log buckets), with a segment tree doing range adds and
+//range maximums over a ring of buckets.
+//Intervals are rounded out to whole buckets. Every interval added must have been removed before its buckets
+//come round again, so callers keep the intervals they hold within the window.
+public class IntervalCapacityIndex {
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final int leaves;
+    //maximum of each subtree, including the pending adds of the node itself
+    private final int[] max;
+    //adds applied to a whole subtree, not pushed down to its children
+    private final int[] pending;
+
+    public IntervalCapacityIndex(long bucketMillis, int buckets) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = buckets;
+        int capacity = 1;
+        while(capacity < buckets){
+            capacity <<= 1;
+        }
+        this.leaves = capacity;
+        this.max = new int[2 * capacity];
+        this.pending = new int[2 * capacity];
+    }
+
+    //longest time range an interval or a query may cover
+    public long getWindowMillis() {
+        return bucketMillis * buckets;
+    }
+
+    //adds delta over [from, to), from before to
+    public void add(long from, long to, int delta) {
+        long first = Math.floorDiv(from, bucketMillis);
+        long last = Math.floorDiv(to - 1, bucketMillis);
+        checkRange(first, last);
+        int firstSlot = slot(first);
+        int lastSlot = slot(last);
+        if(firstSlot <= lastSlot){
+            add(1, 0, leaves - 1, firstSlot, lastSlot, delta);
+        }else{
+            add(1, 0, leaves - 1, firstSlot, buckets - 1, delta);
+            add(1, 0, leaves - 1, 0, lastSlot, delta);
+        }
+    }
+
+    //highest count of any bucket over [from, to)
+    public int max(long from, long to) {
+        long first = Math.floorDiv(from, bucketMillis);
+        long last = Math.floorDiv(to - 1, bucketMillis);
+        checkRange(first, last);
+        int firstSlot = slot(first);
+        int lastSlot = slot(last);
+        if(firstSlot <= lastSlot){
+            return max(1, 0, leaves - 1, firstSlot, lastSlot);
+        }
+        return Math.max(max(1, 0, leaves - 1, firstSlot, buckets - 1), max(1, 0, leaves - 1, 0, lastSlot));
+    }
+
+    public int get(long time) {
+        return max(time, time + 1);
+    }
+
+    private void add(int node, int low, int high, int from, int to, int delta) {
+        if(to < low || high < from){
+            return;
+        }
+        if(from <= low && high <= to){
+            max[node] += delta;
+            pending[node] += delta;
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        add(2 * node, low, middle, from, to, delta);
+        add(2 * node + 1, middle + 1, high, from, to, delta);
+        max[node] = Math.max(max[2 * node], max[2 * node + 1]) + pending[node];
+    }
+
+    private int max(int node, int low, int high, int from, int to) {
+        if(to < low || high < from){
+            return Integer.MIN_VALUE;
+        }
+        if(from <= low && high <= to){
+            return max[node];
+        }
+        int middle = (low + high) >>> 1;
+        return Math.max(max(2 * node, low, middle, from, to), max(2 * node + 1, middle + 1, high, from, to)) + pending[node];
+    }
+
+    private void checkRange(long first, long last) {
+        if(last < first || last - first >= buckets){
+            throw new IllegalArgumentException("Time range of " + (last - first + 1) + " buckets does not fit in " + buckets + " buckets");
+        }
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) buckets);
+    }
+}
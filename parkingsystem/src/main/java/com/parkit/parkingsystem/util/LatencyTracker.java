@@ -0,0 +1,47 @@
+package com.parkit.parkingsystem.util;
+
+import com.parkit.parkingsystem.constants.OperationType;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Exponentially weighted moving average of the DAO latency per operation type, fed by every Deadline
+public class LatencyTracker {
+
+    private static final LatencyTracker INSTANCE = new LatencyTracker();
+
+    //weight of the newest sample
+    private static final double ALPHA = 0.2;
+    private static final long NO_SAMPLE = Double.doubleToLongBits(Double.NaN);
+
+    //averages in milliseconds, stored as double bits indexed by OperationType ordinal
+    private final AtomicLongArray averages = new AtomicLongArray(OperationType.values().length);
+
+    public LatencyTracker() {
+        for(int i = 0; i < averages.length(); i++){
+            averages.set(i, NO_SAMPLE);
+        }
+    }
+
+    public static LatencyTracker getInstance() {
+        return INSTANCE;
+    }
+
+    public void record(OperationType operationType, long latencyNanos) {
+        double sample = latencyNanos / 1_000_000.0;
+        int index = operationType.ordinal();
+        while(true){
+            long current = averages.get(index);
+            double average = Double.longBitsToDouble(current);
+            double next = Double.isNaN(average) ? sample : average + ALPHA * (sample - average);
+            if(averages.compareAndSet(index, current, Double.doubleToLongBits(next))){
+                return;
+            }
+        }
+    }
+
+    //0 until a first sample is recorded
+    public double getAverageMillis(OperationType operationType) {
+        double average = Double.longBitsToDouble(averages.get(operationType.ordinal()));
+        return Double.isNaN(average) ? 0 : average;
+    }
+}
@@ -0,0 +1,169 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+//Map from long keys to objects with open addressing: keys and values sit in two parallel arrays probed
+//linearly, so there is no entry object and no boxed key per mapping, and a lookup reads one or two
+//adjacent slots. Key 0 marks an empty slot and cannot be mapped, PlateCodec never produces it.
+//Not thread safe.
+public class LongObjectHashMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final long EMPTY = 0;
+    //Fibonacci hashing spreads the structured bits of plate codes over the whole table
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int shift;
+    private int size;
+
+    public LongObjectHashMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return key != EMPTY && keys[find(key)] == key;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if(key == EMPTY){
+            return null;
+        }
+        int slot = find(key);
+        return (keys[slot] == key) ? (V) values[slot] : null;
+    }
+
+    //the previous value, null if there was none
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        checkKey(key);
+        int slot = find(key);
+        if(keys[slot] == key){
+            V previous = (V) values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        insert(slot, key, value);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<V> mappingFunction) {
+        checkKey(key);
+        int slot = find(key);
+        if(keys[slot] == key){
+            return (V) values[slot];
+        }
+        V value = mappingFunction.apply(key);
+        if(value != null){
+            insert(slot, key, value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if(key == EMPTY){
+            return null;
+        }
+        int slot = find(key);
+        if(keys[slot] != key){
+            return null;
+        }
+        V previous = (V) values[slot];
+        //the entries after it in the run are shifted back, so no tombstone is left to slow later probes
+        int hole = slot;
+        for(int next = (slot + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask){
+            int home = home(keys[next]);
+            //an entry may fill the hole only if its home slot is not between the hole and itself
+            if(((next - home) & mask) >= ((next - hole) & mask)){
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = null;
+        size--;
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void insert(int slot, long key, V value) {
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        //at most half full, probe runs stay short
+        if(size > keys.length / 2){
+            resize(keys.length * 2);
+        }
+    }
+
+    //the slot holding the key, or the empty slot ending its probe run
+    private int find(long key) {
+        int slot = home(key);
+        while(keys[slot] != EMPTY && keys[slot] != key){
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(long key) {
+        return (int) ((key * HASH_MULTIPLIER) >>> shift);
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for(int i = 0; i < oldKeys.length; i++){
+            if(oldKeys[i] != EMPTY){
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while(capacity / 2 < expectedSize){
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static void checkKey(long key) {
+        if(key == EMPTY){
+            throw new IllegalArgumentException("Key 0 cannot be mapped");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.Locale;
+
+//Registration numbers packed into a long, so in memory lookups by plate hash and compare a primitive
+//instead of a String. A canonical plate is at most 10 digits or upper case letters: each takes 6 bits,
+//first character in the highest used bits, which fits the 60 bits of the widest plate in one long.
+//No character encodes as 0, so 0 is never the code of a plate and stands for one that cannot be packed.
+public final class PlateCodec {
+
+    public static final int MAX_LENGTH = 10;
+    public static final long NOT_ENCODABLE = 0;
+
+    private static final int BITS_PER_CHAR = 6;
+    private static final long CHAR_MASK = (1 << BITS_PER_CHAR) - 1;
+    private static final int DIGITS = 10;
+    private static final int LETTERS = 26;
+
+    private PlateCodec() {
+    }
+
+    //the form plates are stored and looked up in: upper case, without the spaces and dashes people type in
+    //between groups, so that "ab-123-cd" and "AB 123 CD" are the same vehicle
+    public static String normalize(String vehicleRegNumber) {
+        StringBuilder canonical = new StringBuilder(vehicleRegNumber.length());
+        for(int i = 0; i < vehicleRegNumber.length(); i++){
+            char c = vehicleRegNumber.charAt(i);
+            if(c != '-' && !Character.isWhitespace(c)){
+                canonical.append(c);
+            }
+        }
+        return canonical.toString().toUpperCase(Locale.ROOT);
+    }
+
+    //NOT_ENCODABLE for a plate which is empty, too long or not canonical; it allocates nothing
+    public static long encode(CharSequence vehicleRegNumber) {
+        int length = vehicleRegNumber.length();
+        if(length == 0 || length > MAX_LENGTH){
+            return NOT_ENCODABLE;
+        }
+        long code = 0;
+        for(int i = 0; i < length; i++){
+            int symbol = symbol(vehicleRegNumber.charAt(i));
+            if(symbol == 0){
+                return NOT_ENCODABLE;
+            }
+            code = (code << BITS_PER_CHAR) | symbol;
+        }
+        return code;
+    }
+
+    public static String decode(long code) {
+        if(code <= 0){
+            throw new IllegalArgumentException("Not a plate code: " + code);
+        }
+        char[] chars = new char[MAX_LENGTH];
+        int start = MAX_LENGTH;
+        for(long rest = code; rest != 0; rest >>>= BITS_PER_CHAR){
+            chars[--start] = character((int) (rest & CHAR_MASK));
+        }
+        return new String(chars, start, MAX_LENGTH - start);
+    }
+
+    private static int symbol(char c) {
+        if(c >= '0' && c <= '9'){
+            return c - '0' + 1;
+        }
+        if(c >= 'A' && c <= 'Z'){
+            return c - 'A' + DIGITS + 1;
+        }
+        return 0;
+    }
+
+    private static char character(int symbol) {
+        if(symbol >= 1 && symbol <= DIGITS){
+            return (char) ('0' + symbol - 1);
+        }
+        if(symbol > DIGITS && symbol <= DIGITS + LETTERS){
+            return (char) ('A' + symbol - DIGITS - 1);
+        }
+        throw new IllegalArgumentException("Not a plate symbol: " + symbol);
+    }
+}
@@ -0,0 +1,48 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+//Map keyed by registration number. Canonical plates are looked up by their PlateCodec code, without
+//hashing or allocating a String; the few that cannot be packed (legacy rows, foreign characters) fall back
+//to a regular map. Not thread safe.
+public class PlateMap<V> {
+
+    private final LongObjectHashMap<V> encoded;
+    private final Map<String, V> others = new HashMap<>();
+
+    public PlateMap() {
+        encoded = new LongObjectHashMap<>();
+    }
+
+    public PlateMap(int expectedSize) {
+        encoded = new LongObjectHashMap<>(expectedSize);
+    }
+
+    public V get(String vehicleRegNumber) {
+        long code = PlateCodec.encode(vehicleRegNumber);
+        return (code != PlateCodec.NOT_ENCODABLE) ? encoded.get(code) : others.get(vehicleRegNumber);
+    }
+
+    public V put(String vehicleRegNumber, V value) {
+        long code = PlateCodec.encode(vehicleRegNumber);
+        return (code != PlateCodec.NOT_ENCODABLE) ? encoded.put(code, value) : others.put(vehicleRegNumber, value);
+    }
+
+    public V computeIfAbsent(String vehicleRegNumber, Function<String, V> mappingFunction) {
+        long code = PlateCodec.encode(vehicleRegNumber);
+        return (code != PlateCodec.NOT_ENCODABLE)
+                ? encoded.computeIfAbsent(code, c -> mappingFunction.apply(vehicleRegNumber))
+                : others.computeIfAbsent(vehicleRegNumber, mappingFunction);
+    }
+
+    public V remove(String vehicleRegNumber) {
+        long code = PlateCodec.encode(vehicleRegNumber);
+        return (code != PlateCodec.NOT_ENCODABLE) ? encoded.remove(code) : others.remove(vehicleRegNumber);
+    }
+
+    public int size() {
+        return encoded.size() + others.size();
+    }
+}
@@ -0,0 +1,87 @@
+package com.parkit.parkingsystem.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.function.LongSupplier;
+
+//Time ordered 64 bit ids: 41 bits of milliseconds since EPOCH, 10 bits of node id and a 12 bits sequence per millisecond.
+//Every App instance sharing a database must run with its own node id (-Dparkit.nodeId or PARKIT_NODE_ID).
+public class TicketIdGenerator {
+
+    private static final Logger logger = LogManager.getLogger("TicketIdGenerator");
+
+    //2023-01-01T00:00:00Z
+    public static final long EPOCH = 1672531200000L;
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final int MAX_SEQUENCE = (1 << SEQUENCE_BITS) - 1;
+
+    private static class Holder {
+        private static final TicketIdGenerator INSTANCE = new TicketIdGenerator(readNodeId(), System::currentTimeMillis);
+    }
+
+    private final long nodeId;
+    private final LongSupplier clock;
+
+    private long lastTimestamp = -1;
+    private int sequence;
+
+    public TicketIdGenerator(int nodeId, LongSupplier clock) {
+        if(nodeId < 0 || nodeId > MAX_NODE_ID){
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    public static TicketIdGenerator getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public synchronized long nextId() {
+        long timestamp = clock.getAsLong();
+        if(timestamp < lastTimestamp){
+            //the wall clock went backwards: keep issuing ids from the last timestamp rather than risking duplicates
+            timestamp = lastTimestamp;
+        }
+        if(timestamp == lastTimestamp){
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if(sequence == 0){
+                timestamp = waitNextMillis(lastTimestamp);
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = timestamp;
+        return ((timestamp - EPOCH) << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    public static long getTimestamp(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    public static int getNodeId(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+
+    private long waitNextMillis(long timestamp) {
+        long next = clock.getAsLong();
+        while(next <= timestamp){
+            Thread.onSpinWait();
+            next = clock.getAsLong();
+        }
+        return next;
+    }
+
+    private static int readNodeId() {
+        String nodeId = System.getProperty("parkit.nodeId", System.getenv("PARKIT_NODE_ID"));
+        if(nodeId == null){
+            logger.warn("No node id configured, using 0. Set parkit.nodeId when several instances share a database");
+            return 0;
+        }
+        return Integer.parseInt(nodeId.trim());
+    }
+}
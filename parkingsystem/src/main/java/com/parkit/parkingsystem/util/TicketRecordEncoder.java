@@ -0,0 +1,157 @@
+package com.parkit.parkingsystem.util;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+//Encodes ticket rows straight into a ByteBuffer without building intermediate Strings
+public class TicketRecordEncoder {
+
+    public static final byte[] BINARY_MAGIC = {'P', 'K', 'T', '1'};
+    public static final String CSV_HEADER = "id,parking_number,parking_type,vehicle_reg_number,price,in_time_utc,out_time_utc\n";
+    public static final long NO_OUT_TIME = -1;
+
+    //fixed part of the largest csv or binary record, the registration number comes on top of it
+    public static final int MAX_FIXED_RECORD_SIZE = 128;
+
+    private static final byte[][] PARKING_TYPE_NAMES = new byte[ParkingType.values().length][];
+    private static final long dayInMillis = 24 * 60 * 60 * 1000;
+
+    static {
+        for(ParkingType parkingType : ParkingType.values()){
+            PARKING_TYPE_NAMES[parkingType.ordinal()] = parkingType.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    public static int maxRecordSize(String vehicleRegNumber) {
+        return MAX_FIXED_RECORD_SIZE + 2 * vehicleRegNumber.length();
+    }
+
+    public static void putCsv(ByteBuffer buffer, long id, int parkingNumber, ParkingType parkingType, String vehicleRegNumber,
+                              double price, long inTime, long outTime) {
+        putDecimal(buffer, id);
+        buffer.put((byte) ',');
+        putDecimal(buffer, parkingNumber);
+        buffer.put((byte) ',');
+        buffer.put(PARKING_TYPE_NAMES[parkingType.ordinal()]);
+        buffer.put((byte) ',');
+        putCsvText(buffer, vehicleRegNumber);
+        buffer.put((byte) ',');
+        putPrice(buffer, price);
+        buffer.put((byte) ',');
+        putDateTime(buffer, inTime);
+        buffer.put((byte) ',');
+        if(outTime != NO_OUT_TIME){
+            putDateTime(buffer, outTime);
+        }
+        buffer.put((byte) '\n');
+    }
+
+    //[length:u16][id:i64][parking number:i32][type:u8][in time:i64][out time:i64][price:f64][plate length:u8][plate:ascii]
+    public static void putBinary(ByteBuffer buffer, long id, int parkingNumber, ParkingType parkingType, String vehicleRegNumber,
+                                 double price, long inTime, long outTime) {
+        int plateLength = Math.min(vehicleRegNumber.length(), 255);
+        int start = buffer.position();
+        buffer.putShort((short) 0);
+        buffer.putLong(id);
+        buffer.putInt(parkingNumber);
+        buffer.put((byte) parkingType.ordinal());
+        buffer.putLong(inTime);
+        buffer.putLong(outTime);
+        buffer.putDouble(price);
+        buffer.put((byte) plateLength);
+        for(int i = 0; i < plateLength; i++){
+            buffer.put(ascii(vehicleRegNumber.charAt(i)));
+        }
+        buffer.putShort(start, (short) (buffer.position() - start - 2));
+    }
+
+    public static void putDecimal(ByteBuffer buffer, long value) {
+        if(value < 0){
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for(long remaining = value; remaining >= 10; remaining /= 10){
+            digits++;
+        }
+        int end = buffer.position() + digits;
+        for(int index = end - 1; index >= buffer.position(); index--){
+            buffer.put(index, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    private static void putPadded(ByteBuffer buffer, int value, int width) {
+        for(int index = buffer.position() + width - 1; index >= buffer.position(); index--){
+            buffer.put(index, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(buffer.position() + width);
+    }
+
+    private static void putPrice(ByteBuffer buffer, double price) {
+        long cents = Math.round(price * 100);
+        if(cents < 0){
+            buffer.put((byte) '-');
+            cents = -cents;
+        }
+        putDecimal(buffer, cents / 100);
+        buffer.put((byte) '.');
+        putPadded(buffer, (int) (cents % 100), 2);
+    }
+
+    //yyyy-MM-dd HH:mm:ss in UTC, using the days to civil date conversion of the proleptic gregorian calendar
+    private static void putDateTime(ByteBuffer buffer, long epochMillis) {
+        long days = Math.floorDiv(epochMillis, dayInMillis);
+        int secondOfDay = (int) (Math.floorMod(epochMillis, dayInMillis) / 1000);
+        long shifted = days + 719468;
+        long era = Math.floorDiv(shifted, 146097);
+        long dayOfEra = shifted - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        putPadded(buffer, (int) year, 4);
+        buffer.put((byte) '-');
+        putPadded(buffer, month, 2);
+        buffer.put((byte) '-');
+        putPadded(buffer, day, 2);
+        buffer.put((byte) ' ');
+        putPadded(buffer, secondOfDay / 3600, 2);
+        buffer.put((byte) ':');
+        putPadded(buffer, (secondOfDay / 60) % 60, 2);
+        buffer.put((byte) ':');
+        putPadded(buffer, secondOfDay % 60, 2);
+    }
+
+    private static void putCsvText(ByteBuffer buffer, String text) {
+        boolean quoted = false;
+        for(int i = 0; i < text.length() && !quoted; i++){
+            char c = text.charAt(i);
+            quoted = (c == ',' || c == '"' || c == '\n' || c == '\r');
+        }
+        if(quoted){
+            buffer.put((byte) '"');
+        }
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if(c == '"'){
+                buffer.put((byte) '"');
+            }
+            buffer.put(ascii(c));
+        }
+        if(quoted){
+            buffer.put((byte) '"');
+        }
+    }
+
+    private static byte ascii(char c) {
+        return (c < 128) ? (byte) c : (byte) '?';
+    }
+}
@@ -0,0 +1,131 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.OperationType;
+import com.parkit.parkingsystem.service.AdmissionController;
+import com.parkit.parkingsystem.service.AdmissionRejectedException;
+import com.parkit.parkingsystem.util.LatencyTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionControllerTest {
+
+    private LatencyTracker latencyTracker;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        latencyTracker = new LatencyTracker();
+    }
+
+    private List<AdmissionController.Permit> fill(AdmissionController admissionController, OperationType operationType) {
+        List<AdmissionController.Permit> permits = new ArrayList<>();
+        int limit = admissionController.getLimit(operationType);
+        for(int i = 0; i < limit; i++){
+            permits.add(admissionController.tryAcquire(operationType));
+        }
+        return permits;
+    }
+
+    @Test
+    public void tryAcquireRejectsAboveLimit() {
+        //given an entry lane at its limit
+        AdmissionController admissionController = new AdmissionController(latencyTracker, 4, 1000, 250);
+        List<AdmissionController.Permit> permits = fill(admissionController, OperationType.ENTRY);
+
+        //when one more entry arrives, it is rejected without waiting
+        assertThrows(AdmissionRejectedException.class, () -> admissionController.tryAcquire(OperationType.ENTRY));
+
+        //then it is counted, and the other lanes are not affected
+        assertEquals(1, admissionController.getRejected(OperationType.ENTRY));
+        admissionController.tryAcquire(OperationType.EXIT).close();
+        permits.get(0).close();
+        admissionController.tryAcquire(OperationType.ENTRY).close();
+    }
+
+    @Test
+    public void acquireRejectsWhenQueueIsFull() {
+        //given an entry lane at its limit and no queue
+        AdmissionController admissionController = new AdmissionController(latencyTracker, 0, 1000, 250);
+        fill(admissionController, OperationType.ENTRY);
+
+        //then the next entry is rejected straight away
+        assertThrows(AdmissionRejectedException.class, () -> admissionController.acquire(OperationType.ENTRY));
+    }
+
+    @Test
+    public void acquireRejectsAfterQueueTimeout() {
+        //given an entry lane at its limit and a short queue timeout
+        AdmissionController admissionController = new AdmissionController(latencyTracker, 4, 20, 250);
+        fill(admissionController, OperationType.ENTRY);
+
+        //then a queued entry gives up after the timeout
+        assertThrows(AdmissionRejectedException.class, () -> admissionController.acquire(OperationType.ENTRY));
+        assertEquals(admissionController.getLimit(OperationType.ENTRY), admissionController.getInFlight(OperationType.ENTRY));
+    }
+
+    @Test
+    public void queuedAcquireIsAdmittedOnRelease() throws Exception {
+        //given an entry lane at its limit
+        AdmissionController admissionController = new AdmissionController(latencyTracker, 4, 5000, 250);
+        List<AdmissionController.Permit> permits = fill(admissionController, OperationType.ENTRY);
+
+        //when an entry waits and a running one completes
+        CompletableFuture<AdmissionController.Permit> queued = CompletableFuture.supplyAsync(() -> admissionController.acquire(OperationType.ENTRY));
+        Thread.sleep(20);
+        permits.get(0).close();
+
+        //then the waiting entry is admitted
+        queued.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    public void limitBacksOffWhenDataBaseIsSlow() {
+        //given DAO calls taking far longer than the target latency
+        AdmissionController admissionController = new AdmissionController(latencyTracker, 4, 1000, 250);
+        latencyTracker.record(OperationType.ENTRY, TimeUnit.SECONDS.toNanos(1));
+
+        //when an entry completes
+        admissionController.tryAcquire(OperationType.ENTRY).close();
+
+        //then fewer entries are admitted at once
+        assertTrue(admissionController.getLimit(OperationType.ENTRY) < AdmissionController.INITIAL_LIMIT);
+        assertEquals(AdmissionController.INITIAL_LIMIT, admissionController.getLimit(OperationType.EXIT));
+    }
+
+    @Test
+    public void limitBacksOffOnOverload() {
+        //given an entry which ran out of time
+        AdmissionController admissionController = new AdmissionController(latencyTracker, 4, 1000, 250);
+        AdmissionController.Permit permit = admissionController.tryAcquire(OperationType.ENTRY);
+        permit.markOverloaded();
+
+        //when it completes
+        permit.close();
+
+        //then the limit is lowered
+        assertTrue(admissionController.getLimit(OperationType.ENTRY) < AdmissionController.INITIAL_LIMIT);
+    }
+
+    @Test
+    public void limitGrowsWhenSaturatedAndFast() {
+        //given fast DAO calls
+        AdmissionController admissionController = new AdmissionController(latencyTracker, 4, 1000, 250);
+        latencyTracker.record(OperationType.ENTRY, TimeUnit.MILLISECONDS.toNanos(5));
+
+        //when the lane keeps running at its limit
+        for(int i = 0; i < 20; i++){
+            fill(admissionController, OperationType.ENTRY).forEach(AdmissionController.Permit::close);
+        }
+
+        //then the limit grows
+        assertTrue(admissionController.getLimit(OperationType.ENTRY) > AdmissionController.INITIAL_LIMIT);
+    }
+}
@@ -0,0 +1,188 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ChangeLogDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
+import com.parkit.parkingsystem.model.ChangeLogEntry;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.ChangeLogListener;
+import com.parkit.parkingsystem.service.ChangeLogPoller;
+import com.parkit.parkingsystem.simulation.VirtualClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ChangeLogPollerTest {
+
+    @Mock
+    private ChangeLogDAO changeLogDAO;
+    @Mock
+    private ParkingSpotCatalog parkingSpotCatalog;
+
+    private VirtualClock clock;
+    private ChangeLogPoller changeLogPoller;
+    private final List<String> applied = new ArrayList<>();
+
+    @BeforeEach
+    private void setUpPerTest() {
+        lenient().when(parkingSpotCatalog.getParkingType(anyInt())).thenReturn(ParkingType.CAR);
+        clock = new VirtualClock(1000000);
+        changeLogPoller = new ChangeLogPoller(changeLogDAO, lotId -> parkingSpotCatalog, clock, 1000, 10000);
+        changeLogPoller.addListener(new ChangeLogListener() {
+            @Override
+            public void onSpotChange(ParkingSpot parkingSpot) {
+                applied.add(parkingSpot.getParkingType() + " " + parkingSpot.getId() + (parkingSpot.isAvailable() ? " free" : " taken"));
+            }
+
+            @Override
+            public void onTicketChange(ChangeLogEntry entry) {
+                applied.add("ticket " + entry.getRowId());
+            }
+        });
+    }
+
+    private static ChangeLogEntry spotChange(long sequence, int parkingNumber, boolean available) {
+        ChangeLogEntry entry = new ChangeLogEntry();
+        entry.setSequence(sequence);
+        entry.setTableName(ChangeLogEntry.PARKING);
+        entry.setRowId(parkingNumber);
+        entry.setParkingNumber(parkingNumber);
+        entry.setAvailable(available);
+        return entry;
+    }
+
+    private static ChangeLogEntry ticketChange(long sequence, long ticketId) {
+        ChangeLogEntry entry = new ChangeLogEntry();
+        entry.setSequence(sequence);
+        entry.setTableName(ChangeLogEntry.TICKET);
+        entry.setRowId(ticketId);
+        entry.setParkingNumber(1);
+        return entry;
+    }
+
+    @Test
+    public void changesAreAppliedIncrementally() {
+        //given two changes after sequence 0
+        when(changeLogDAO.getChangesSince(eq(0L), anyInt())).thenReturn(Arrays.asList(spotChange(1, 3, false), ticketChange(2, 42)));
+        when(changeLogDAO.getChangesSince(eq(2L), anyInt())).thenReturn(Collections.singletonList(spotChange(3, 3, true)));
+
+        //when polled twice
+        assertTrue(changeLogPoller.poll());
+        assertTrue(changeLogPoller.poll());
+
+        //then each change is applied once, in order, and only the new ones are read the second time
+        assertEquals(Arrays.asList("CAR 3 taken", "ticket 42", "CAR 3 free"), applied);
+        assertEquals(3, changeLogPoller.getAppliedSequence());
+    }
+
+    @Test
+    public void changesOfAnotherLotReachOnlyItsListeners() {
+        //given a listener for lot 2 next to the default lot one
+        List<String> appliedToLot2 = new ArrayList<>();
+        changeLogPoller.addListener(2, parkingSpot -> appliedToLot2.add(parkingSpot.getId() + (parkingSpot.isAvailable() ? " free" : " taken")));
+        ChangeLogEntry lot2Change = spotChange(2, 5, false);
+        lot2Change.setLotId(2);
+        when(changeLogDAO.getChangesSince(eq(0L), anyInt())).thenReturn(Arrays.asList(spotChange(1, 3, false), lot2Change));
+
+        //when polled
+        changeLogPoller.poll();
+
+        //then each change goes to its own lot, and both move the shared sequence on
+        assertEquals(Collections.singletonList("CAR 3 taken"), applied);
+        assertEquals(Collections.singletonList("5 taken"), appliedToLot2);
+        assertEquals(2, changeLogPoller.getAppliedSequence());
+    }
+
+    @Test
+    public void gapIsWaitedForThenFilled() {
+        //given change 2 is not committed yet when 1 and 3 are read
+        when(changeLogDAO.getChangesSince(eq(0L), anyInt())).thenReturn(Arrays.asList(spotChange(1, 1, false), spotChange(3, 3, false)));
+        changeLogPoller.poll();
+        assertEquals(1, changeLogPoller.getAppliedSequence());
+
+        //when it commits
+        when(changeLogDAO.getChangesSince(eq(1L), anyInt())).thenReturn(Arrays.asList(spotChange(2, 2, false), spotChange(3, 3, false)));
+        changeLogPoller.poll();
+
+        //then it is applied, 3 is not applied again, and the applied sequence moves past both
+        assertEquals(Arrays.asList("CAR 1 taken", "CAR 3 taken", "CAR 2 taken"), applied);
+        assertEquals(3, changeLogPoller.getAppliedSequence());
+    }
+
+    @Test
+    public void changesBehindAGapAreReadPastTheFirstBatch() {
+        //given change 2 is not committed yet while more than a batch of changes after it are
+        List<ChangeLogEntry> visible = new ArrayList<>();
+        visible.add(spotChange(1, 1, false));
+        for(long sequence = 3; sequence <= ChangeLogPoller.BATCH_SIZE + 100; sequence++){
+            visible.add(ticketChange(sequence, sequence));
+        }
+        when(changeLogDAO.getChangesSince(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return visible.stream().filter(entry -> entry.getSequence() > after).limit(limit).collect(Collectors.toList());
+        });
+
+        //when polled once
+        assertTrue(changeLogPoller.poll());
+
+        //then every visible change is applied, only the applied sequence waits for the gap
+        assertEquals(visible.size(), applied.size());
+        assertEquals("ticket " + (ChangeLogPoller.BATCH_SIZE + 100), applied.get(applied.size() - 1));
+        assertEquals(1, changeLogPoller.getAppliedSequence());
+    }
+
+    @Test
+    public void gapOfRolledBackChangeIsSkippedAfterTimeout() {
+        //given change 2 was rolled back and will never show up
+        when(changeLogDAO.getChangesSince(eq(0L), anyInt())).thenReturn(Arrays.asList(spotChange(1, 1, false), spotChange(3, 3, false)));
+        when(changeLogDAO.getChangesSince(eq(1L), anyInt())).thenReturn(Collections.singletonList(spotChange(3, 3, false)));
+        changeLogPoller.poll();
+        changeLogPoller.poll();
+        assertEquals(1, changeLogPoller.getAppliedSequence());
+
+        //when the gap timeout goes by
+        clock.setMillis(clock.millis() + 5000);
+        changeLogPoller.poll();
+
+        //then the applied sequence moves on
+        assertEquals(3, changeLogPoller.getAppliedSequence());
+        assertEquals(Arrays.asList("CAR 1 taken", "CAR 3 taken"), applied);
+    }
+
+    @Test
+    public void cachesAreStaleWhenPollsFail() {
+        //given the change log cannot be read
+        when(changeLogDAO.getChangesSince(eq(0L), anyInt())).thenReturn(null);
+
+        //then the caches stay fresh for the max staleness only
+        assertFalse(changeLogPoller.poll());
+        clock.setMillis(clock.millis() + 10000);
+        assertFalse(changeLogPoller.isStale());
+        clock.setMillis(clock.millis() + 1);
+        assertTrue(changeLogPoller.isStale());
+
+        //when a poll succeeds again they are fresh
+        when(changeLogDAO.getChangesSince(eq(0L), anyInt())).thenReturn(Collections.emptyList());
+        assertTrue(changeLogPoller.poll());
+        assertFalse(changeLogPoller.isStale());
+    }
+}
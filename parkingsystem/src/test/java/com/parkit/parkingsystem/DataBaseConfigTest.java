@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DataBaseConfigTest {
+
+    private RoutingTestConfig dataBaseConfig;
+
+    //records which instance a connection was asked for instead of connecting
+    private static class RoutingTestConfig extends DataBaseConfig {
+        private String lastUrl;
+
+        @Override
+        protected String getPrimaryUrl(){
+            return "primary";
+        }
+
+        @Override
+        protected String getReplicaUrl(){
+            return "replica";
+        }
+
+        @Override
+        protected Connection openConnection(String url, long connectTimeoutMillis, long socketTimeoutMillis){
+            lastUrl = url;
+            return null;
+        }
+    }
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBaseConfig = new RoutingTestConfig();
+    }
+
+    @Test
+    public void replicaConnectionGoesToReplica() throws Exception {
+        //given a write was just made
+        dataBaseConfig.recordWrite("ABCDEF");
+
+        //when a replica connection is asked
+        dataBaseConfig.getReplicaConnection();
+
+        //then the replica is used
+        assertEquals("replica", dataBaseConfig.lastUrl);
+    }
+
+    @Test
+    public void readConnectionReadsYourWrites() throws Exception {
+        //given a write was just made
+        dataBaseConfig.recordWrite("ABCDEF");
+
+        //when a read connection is asked within the read your writes window
+        dataBaseConfig.getReadConnection("ABCDEF");
+
+        //then the primary is used
+        assertEquals("primary", dataBaseConfig.lastUrl);
+    }
+
+    @Test
+    public void readConnectionGoesToReplicaAfterWindow() throws Exception {
+        //given a write was made before the read your writes window
+        dataBaseConfig.recordWrite("ABCDEF");
+        dataBaseConfig.readYourWritesWindowMillis = 0;
+
+        //when a read connection is asked
+        dataBaseConfig.getReadConnection("ABCDEF");
+
+        //then the replica is used
+        assertEquals("replica", dataBaseConfig.lastUrl);
+    }
+
+    @Test
+    public void readConnectionOfAnotherPlateGoesToReplica() throws Exception {
+        //given a write was just made for one plate
+        dataBaseConfig.recordWrite("ABCDEF");
+
+        //when a read connection is asked for another plate within the read your writes window
+        dataBaseConfig.getReadConnection("GHIJKL");
+
+        //then the replica is used
+        assertEquals("replica", dataBaseConfig.lastUrl);
+    }
+}
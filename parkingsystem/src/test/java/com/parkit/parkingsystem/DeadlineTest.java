@@ -0,0 +1,79 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.Deadline;
+import com.parkit.parkingsystem.config.DeadlineExceededException;
+import com.parkit.parkingsystem.constants.OperationType;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeadlineTest {
+
+    @Test
+    public void startFailsFastWhenBulkheadIsFull() {
+        //given every report permit is held
+        List<Deadline> held = new ArrayList<>();
+        try {
+            DeadlineExceededException rejected = null;
+            while(rejected == null && held.size() < 1000){
+                try {
+                    held.add(Deadline.start(OperationType.REPORT, 20));
+                } catch (DeadlineExceededException e) {
+                    rejected = e;
+                }
+            }
+
+            //then the next report is rejected within its budget
+            assertTrue(rejected != null);
+            //and the other operation types are not affected
+            assertDoesNotThrow(() -> Deadline.start(OperationType.EXIT, 20).close());
+        } finally {
+            held.forEach(Deadline::close);
+        }
+
+        //when the permits are released, reports are accepted again
+        assertDoesNotThrow(() -> Deadline.start(OperationType.REPORT, 20).close());
+    }
+
+    @Test
+    public void closeReleasesPermitOnlyOnce() {
+        //given a deadline closed twice
+        Deadline deadline = Deadline.start(OperationType.ENTRY, 20);
+        deadline.close();
+        deadline.close();
+
+        //then the bulkhead still accepts as many entries as before
+        assertDoesNotThrow(() -> Deadline.start(OperationType.ENTRY, 20).close());
+    }
+
+    @Test
+    public void queryTimeoutIsReportedAsDeadlineExceeded() {
+        //given a deadline with budget left
+        try(Deadline deadline = Deadline.start(OperationType.EXIT, 60000)){
+            //then a query timeout becomes a DeadlineExceededException
+            assertThrows(DeadlineExceededException.class, () -> deadline.failIfExceeded(new SQLTimeoutException("timeout")));
+            //and any other error is left to the caller
+            assertDoesNotThrow(() -> deadline.failIfExceeded(new SQLException("duplicate key")));
+        }
+    }
+
+    @Test
+    public void anyErrorAfterExpiryIsReportedAsDeadlineExceeded() throws Exception {
+        //given a deadline whose budget ran out
+        try(Deadline deadline = Deadline.start(OperationType.EXIT, 1)){
+            Thread.sleep(5);
+
+            //then a connection error is reported as exceeding the deadline
+            assertTrue(deadline.isExpired());
+            assertThrows(DeadlineExceededException.class, () -> deadline.failIfExceeded(new SQLException("Communications link failure")));
+            assertThrows(DeadlineExceededException.class, deadline::check);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.DriftDAO;
+import com.parkit.parkingsystem.service.DriftReconciler;
+import com.parkit.parkingsystem.simulation.VirtualClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class DriftReconcilerTest {
+
+    @Mock
+    private DriftDAO driftDAO;
+
+    private VirtualClock clock;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        clock = new VirtualClock(1000000);
+        lenient().when(driftDAO.getTakenSpotsWithoutTicket(anyLong(), anyLong())).thenReturn(Collections.emptyList());
+        lenient().when(driftDAO.getFreeSpotsWithTicket(anyLong(), anyLong())).thenReturn(Collections.emptyList());
+    }
+
+    private DriftReconciler reconciler(boolean repair) {
+        return new DriftReconciler(driftDAO, clock, 60000, 5000, repair);
+    }
+
+    @Test
+    public void checksOnlyChangesOlderThanTheGracePeriod(){
+        //given
+        DriftReconciler driftReconciler = reconciler(false);
+        when(driftDAO.getLastChangeBefore(eq(0L), eq(DriftReconciler.WINDOW_SIZE), eq(new Date(995000)))).thenReturn(12L);
+        when(driftDAO.getLastChangeBefore(eq(12L), eq(DriftReconciler.WINDOW_SIZE), any(Date.class))).thenReturn(12L);
+
+        //when
+        assertTrue(driftReconciler.reconcile());
+
+        //then
+        verify(driftDAO).getTakenSpotsWithoutTicket(0, 12);
+        verify(driftDAO).getFreeSpotsWithTicket(0, 12);
+        assertEquals(12, driftReconciler.getReconciledSequence());
+    }
+
+    @Test
+    public void countsDriftWithoutRepairing(){
+        //given
+        DriftReconciler driftReconciler = reconciler(false);
+        when(driftDAO.getLastChangeBefore(anyLong(), eq(DriftReconciler.WINDOW_SIZE), any(Date.class))).thenReturn(20L);
+        when(driftDAO.getTakenSpotsWithoutTicket(0, 20)).thenReturn(Arrays.asList(1, 4));
+        when(driftDAO.getFreeSpotsWithTicket(0, 20)).thenReturn(Collections.singletonList(2));
+
+        //when
+        driftReconciler.reconcile();
+
+        //then
+        assertEquals(2, driftReconciler.getTakenWithoutTicket());
+        assertEquals(1, driftReconciler.getFreeWithTicket());
+        assertEquals(0, driftReconciler.getRepaired());
+        verify(driftDAO, never()).freeSpotsWithoutTicket(anyList());
+        verify(driftDAO, never()).takeSpotsWithTicket(anyList());
+    }
+
+    @Test
+    public void repairsDriftWhenEnabled(){
+        //given
+        DriftReconciler driftReconciler = reconciler(true);
+        when(driftDAO.getLastChangeBefore(anyLong(), eq(DriftReconciler.WINDOW_SIZE), any(Date.class))).thenReturn(20L);
+        when(driftDAO.getTakenSpotsWithoutTicket(0, 20)).thenReturn(Arrays.asList(1, 4));
+        when(driftDAO.getFreeSpotsWithTicket(0, 20)).thenReturn(Collections.singletonList(2));
+        when(driftDAO.freeSpotsWithoutTicket(Arrays.asList(1, 4))).thenReturn(2);
+        when(driftDAO.takeSpotsWithTicket(Collections.singletonList(2))).thenReturn(1);
+
+        //when
+        driftReconciler.reconcile();
+
+        //then
+        assertEquals(3, driftReconciler.getRepaired());
+    }
+
+    @Test
+    public void boundsTheWorkOfARun(){
+        //given a backlog larger than a run
+        DriftReconciler driftReconciler = reconciler(false);
+        when(driftDAO.getLastChangeBefore(anyLong(), eq(DriftReconciler.WINDOW_SIZE), any(Date.class)))
+                .thenAnswer(invocation -> (long) invocation.getArgument(0) + DriftReconciler.WINDOW_SIZE);
+
+        //when
+        assertTrue(driftReconciler.reconcile());
+
+        //then the run stops after its windows and the next one carries on
+        assertEquals((long) DriftReconciler.WINDOW_SIZE * DriftReconciler.MAX_WINDOWS_PER_RUN, driftReconciler.getReconciledSequence());
+    }
+
+    @Test
+    public void failedCheckIsRetriedOnTheNextRun(){
+        //given
+        DriftReconciler driftReconciler = reconciler(false);
+        when(driftDAO.getLastChangeBefore(anyLong(), eq(DriftReconciler.WINDOW_SIZE), any(Date.class))).thenReturn(20L);
+        when(driftDAO.getFreeSpotsWithTicket(0, 20)).thenReturn(null);
+
+        //when
+        boolean reconciled = driftReconciler.reconcile();
+
+        //then
+        assertFalse(reconciled);
+        assertEquals(0, driftReconciler.getReconciledSequence());
+    }
+}
@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.Deadline;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.OperationType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.monitoring.IncidentRecording;
+import com.parkit.parkingsystem.monitoring.QueryNames;
+import com.parkit.parkingsystem.monitoring.StatementEvent;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlightRecorderEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void queryNamesAreTheDBConstantsFieldNames() {
+        assertThat(QueryNames.of(DBConstants.GET_TICKET)).isEqualTo("GET_TICKET");
+        assertThat(QueryNames.of(DBConstants.UPDATE_PARKING_SPOT)).isEqualTo("UPDATE_PARKING_SPOT");
+        assertThat(QueryNames.of("select 1")).isEqualTo("UNKNOWN");
+    }
+
+    @Test
+    public void incidentProfileRecordsStatementsAndFares() throws Exception {
+        //given a recording with the bundled profile
+        Path file = tempDir.resolve("events.jfr");
+        Ticket ticket = new Ticket();
+        try(Recording recording = new Recording(IncidentRecording.loadProfile())){
+            recording.start();
+
+            //when a statement runs and fails, one is never started, and a fare is calculated
+            try(Deadline deadline = Deadline.start(OperationType.EXIT, 60000)){
+                StatementEvent statementEvent = new StatementEvent(DBConstants.GET_TICKET, deadline);
+                statementEvent.start();
+                statementEvent.fail();
+                statementEvent.finish();
+                new StatementEvent(DBConstants.UPDATE_TICKET, deadline).finish();
+            }
+            ticket.setInTime(new Date(0));
+            ticket.setOutTime(new Date(60 * 60 * 1000));
+            ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+            new FareCalculatorService().calculateFare(ticket, true);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        //then the started statement is recorded with its query name, and the fare with its price
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<RecordedEvent> statements = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.parkit.parkingsystem.Statement"))
+                .collect(Collectors.toList());
+        assertThat(statements).hasSize(1);
+        assertThat(statements.get(0).getString("query")).isEqualTo("GET_TICKET");
+        assertThat(statements.get(0).getString("operation")).isEqualTo("EXIT");
+        assertThat(statements.get(0).getBoolean("success")).isFalse();
+
+        List<RecordedEvent> fares = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.parkit.parkingsystem.FareCalculation"))
+                .collect(Collectors.toList());
+        assertThat(fares).hasSize(1);
+        assertThat(fares.get(0).getString("parkingType")).isEqualTo("CAR");
+        assertThat(fares.get(0).getBoolean("discount")).isTrue();
+        assertThat(fares.get(0).getDouble("price")).isEqualTo(ticket.getPrice());
+    }
+}
@@ -0,0 +1,90 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.Deadline;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateWarmup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class GateWarmupTest {
+
+    @Mock
+    private ParkingSpotDAO parkingSpotDAO;
+    @Mock
+    private TicketDAO ticketDAO;
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection connection;
+
+    private GateWarmup gateWarmup;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        lenient().when(dataBaseConfig.getConnection(any(Deadline.class))).thenReturn(connection);
+        lenient().when(dataBaseConfig.getReplicaConnection(any(Deadline.class))).thenReturn(connection);
+        lenient().when(ticketDAO.getTicketAsync(anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        gateWarmup = new GateWarmup(parkingSpotDAO, ticketDAO, new FareCalculatorService());
+    }
+
+    @Test
+    public void runsTheReadPathsOfAnEntryAndAnExit() throws Exception {
+        //when
+        gateWarmup.run();
+
+        //then
+        verify(dataBaseConfig).getConnection(any(Deadline.class));
+        verify(dataBaseConfig).getReplicaConnection(any(Deadline.class));
+        verify(dataBaseConfig, times(2)).closeConnection(connection);
+        verify(parkingSpotDAO).getNextAvailableSlot(ParkingType.CAR);
+        verify(parkingSpotDAO).getNextAvailableSlot(ParkingType.BIKE);
+        verify(ticketDAO).getNbTicket(GateWarmup.WARMUP_VEHICLE_REG_NUMBER);
+        verify(ticketDAO).getTicket(GateWarmup.WARMUP_VEHICLE_REG_NUMBER);
+    }
+
+    @Test
+    public void writesNothing(){
+        //when
+        gateWarmup.run();
+
+        //then
+        verify(parkingSpotDAO, never()).updateParking(any());
+        verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+        verify(ticketDAO, never()).updateTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void unreachableDatabaseDoesNotStopTheStartup() throws Exception {
+        //given
+        when(dataBaseConfig.getConnection(any(Deadline.class))).thenThrow(new SQLException("Connection refused"));
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenThrow(new IllegalStateException("down"));
+
+        //when
+        gateWarmup.run();
+
+        //then the replica is still tried
+        verify(dataBaseConfig).getReplicaConnection(any(Deadline.class));
+    }
+}
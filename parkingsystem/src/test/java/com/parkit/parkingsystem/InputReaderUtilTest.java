@@ -0,0 +1,43 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class InputReaderUtilTest {
+
+    private static InputReaderUtil typed(String line) {
+        return new InputReaderUtil(new Scanner(line + "\n"));
+    }
+
+    @Test
+    public void typedPlateIsReadInCanonicalForm() throws Exception {
+        //given plates typed with separators and in lower case
+        //when they are read
+        //then they come back as the tickets store them
+        assertEquals("AB123CD", typed("ab-123-cd").readVehicleRegistrationNumber());
+        assertEquals("AB123CD", typed(" AB 123 CD ").readVehicleRegistrationNumber());
+        assertEquals("ABCDEFGHIJ", typed("AB-CDE-FGH-IJ").readVehicleRegistrationNumber());
+    }
+
+    @Test
+    public void plateWithoutCharactersIsRejected() {
+        //given inputs which are blank or only separators
+        //when they are read
+        //then they are refused
+        assertThrows(IllegalArgumentException.class, () -> typed("   ").readVehicleRegistrationNumber());
+        assertThrows(IllegalArgumentException.class, () -> typed("- -").readVehicleRegistrationNumber());
+    }
+
+    @Test
+    public void plateLongerThanTheColumnIsRejected() {
+        //given a plate of 11 characters once normalized
+        //when it is read
+        //then it is refused rather than failing at insert
+        assertThrows(IllegalArgumentException.class, () -> typed("ABC-DEF-GHI-JK").readVehicleRegistrationNumber());
+    }
+}
@@ -0,0 +1,84 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.LongObjectHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LongObjectHashMapTest {
+
+    @Test
+    public void putGetAndReplace(){
+        //given an empty map
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+
+        //when a key is put then put again
+        assertNull(map.put(42, "first"));
+        String previous = map.put(42, "second");
+
+        //then the previous value is returned and the key is mapped once
+        assertEquals("first", previous);
+        assertEquals("second", map.get(42));
+        assertTrue(map.containsKey(42));
+        assertFalse(map.containsKey(43));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void keyZeroIsRejected(){
+        //given an empty map
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+
+        //when key 0 is put
+        //then it is refused, and reads of it find nothing
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, "zero"));
+        assertNull(map.get(0));
+        assertNull(map.remove(0));
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomPutsAndRemoves(){
+        //given a map growing from its smallest size and a reference HashMap
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        Map<Long, Long> reference = new HashMap<>();
+        Random random = new Random(7);
+
+        //when keys from a small range are put and removed at random, so probe runs keep colliding
+        for(int i = 0; i < 100000; i++){
+            long key = 1 + random.nextInt(2000);
+            if(random.nextInt(3) == 0){
+                assertEquals(reference.remove(key), map.remove(key));
+            }else{
+                assertEquals(reference.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+
+        //then both maps hold the same mappings
+        assertEquals(reference.size(), map.size());
+        for(long key = 1; key <= 2000; key++){
+            assertEquals(reference.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    public void computeIfAbsentCreatesOnce(){
+        //given an empty map
+        LongObjectHashMap<StringBuilder> map = new LongObjectHashMap<>(4);
+
+        //when the same key is computed twice
+        map.computeIfAbsent(7, key -> new StringBuilder()).append("a");
+        map.computeIfAbsent(7, key -> new StringBuilder()).append("b");
+
+        //then the value was created by the first call only
+        assertEquals("ab", map.get(7).toString());
+        assertEquals(1, map.size());
+    }
+}
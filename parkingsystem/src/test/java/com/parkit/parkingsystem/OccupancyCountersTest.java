@@ -0,0 +1,149 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DeadlineExceededException;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.OccupancyCounters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OccupancyCountersTest {
+
+    @Mock
+    private ParkingSpotCatalog parkingSpotCatalog;
+    @Mock
+    private ParkingSpotDAO parkingSpotDAO;
+
+    private OccupancyCounters occupancyCounters;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        //spots 1 to 3 are cars, 4 and 5 are bikes
+        lenient().when(parkingSpotCatalog.getMaxParkingNumber()).thenReturn(5);
+        lenient().when(parkingSpotCatalog.getCapacity(ParkingType.CAR)).thenReturn(3);
+        lenient().when(parkingSpotCatalog.getCapacity(ParkingType.BIKE)).thenReturn(2);
+        lenient().when(parkingSpotCatalog.getParkingType(anyInt())).thenAnswer(invocation -> {
+            int parkingNumber = invocation.getArgument(0);
+            return (parkingNumber <= 3) ? ParkingType.CAR : ParkingType.BIKE;
+        });
+        occupancyCounters = new OccupancyCounters(parkingSpotCatalog);
+    }
+
+    @Test
+    public void loadCountsOccupiedSpots() {
+        //given spots 1 and 4 occupied in the parking table
+        when(parkingSpotDAO.getOccupiedParkingNumbers()).thenReturn(new int[]{1, 4});
+
+        //when the counters are loaded
+        assertTrue(occupancyCounters.load(parkingSpotDAO));
+
+        //then
+        assertEquals(1, occupancyCounters.getOccupied(ParkingType.CAR));
+        assertEquals(2, occupancyCounters.getFree(ParkingType.CAR));
+        assertEquals(1, occupancyCounters.getFree(ParkingType.BIKE));
+        assertEquals(2, occupancyCounters.getCapacity(ParkingType.BIKE));
+    }
+
+    @Test
+    public void notFullUntilLoaded() {
+        //given the parking table could not be read
+        when(parkingSpotDAO.getOccupiedParkingNumbers()).thenReturn(null);
+
+        //when the counters are loaded
+        assertFalse(occupancyCounters.load(parkingSpotDAO));
+
+        //then entries are left to the query
+        assertFalse(occupancyCounters.isLoaded());
+        assertFalse(occupancyCounters.isFull(ParkingType.CAR));
+    }
+
+    @Test
+    public void notLoadedWhenTheSnapshotMissesItsDeadline() {
+        //given the parking table is not read in time
+        when(parkingSpotDAO.getOccupiedParkingNumbers()).thenThrow(new DeadlineExceededException("SYNC deadline of 2000ms exceeded"));
+
+        //when the counters are loaded
+        assertFalse(occupancyCounters.load(parkingSpotDAO));
+
+        //then entries are left to the query
+        assertFalse(occupancyCounters.isLoaded());
+    }
+
+    @Test
+    public void fullWhenEverySpotIsClaimed() {
+        //given both bike spots occupied
+        occupancyCounters.load(new int[]{4});
+        occupancyCounters.claim(new ParkingSpot(5, ParkingType.BIKE, false));
+
+        //then bikes are full and cars are not
+        assertTrue(occupancyCounters.isFull(ParkingType.BIKE));
+        assertFalse(occupancyCounters.isFull(ParkingType.CAR));
+
+        //when one bike leaves
+        occupancyCounters.release(new ParkingSpot(4, ParkingType.BIKE, true));
+
+        //then bikes are no longer full
+        assertFalse(occupancyCounters.isFull(ParkingType.BIKE));
+    }
+
+    @Test
+    public void claimAndReleaseAreIdempotent() {
+        //given a spot claimed twice and released twice
+        occupancyCounters.load(new int[0]);
+        ParkingSpot parkingSpot = new ParkingSpot(2, ParkingType.CAR, false);
+
+        //then each transition is only counted once
+        assertTrue(occupancyCounters.claim(parkingSpot));
+        assertFalse(occupancyCounters.claim(parkingSpot));
+        assertEquals(1, occupancyCounters.getOccupied(ParkingType.CAR));
+        assertTrue(occupancyCounters.release(parkingSpot));
+        assertFalse(occupancyCounters.release(parkingSpot));
+        assertEquals(0, occupancyCounters.getOccupied(ParkingType.CAR));
+    }
+
+    @Test
+    public void unknownSpotIsIgnored() {
+        //given a spot beyond the loaded catalog
+        occupancyCounters.load(new int[0]);
+
+        //then it is not counted
+        assertFalse(occupancyCounters.claim(new ParkingSpot(42, ParkingType.CAR, false)));
+        assertEquals(0, occupancyCounters.getOccupied(ParkingType.CAR));
+    }
+
+    @Test
+    public void concurrentClaimsCountEachSpotOnce() throws Exception {
+        //given every gate claiming every car spot at the same time
+        occupancyCounters.load(new int[0]);
+        List<CompletableFuture<Void>> gates = new ArrayList<>();
+        for(int gate = 0; gate < 8; gate++){
+            gates.add(CompletableFuture.runAsync(() -> {
+                for(int parkingNumber = 1; parkingNumber <= 3; parkingNumber++){
+                    occupancyCounters.claim(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+                }
+            }));
+        }
+        CompletableFuture.allOf(gates.toArray(new CompletableFuture<?>[0])).get();
+
+        //then
+        assertEquals(3, occupancyCounters.getOccupied(ParkingType.CAR));
+        assertEquals(0, occupancyCounters.getFree(ParkingType.CAR));
+    }
+}
@@ -0,0 +1,64 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ReportGranularity;
+import com.parkit.parkingsystem.service.OccupancyReportAggregator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OccupancyReportAggregatorTest {
+
+    private long hourInMillis = 60 * 60 * 1000;
+    private StringWriter writer;
+    private Map<ParkingType, Integer> initialOccupancy;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        writer = new StringWriter();
+        initialOccupancy = new EnumMap<>(ParkingType.class);
+    }
+
+    @Test
+    public void aggregateHourlyReport() throws Exception {
+        //given a car already parked and two hours of events
+        initialOccupancy.put(ParkingType.CAR, 1);
+        OccupancyReportAggregator aggregator = new OccupancyReportAggregator(0, 2 * hourInMillis, ReportGranularity.HOUR, ZoneOffset.UTC, initialOccupancy, writer);
+
+        //when the events are aggregated
+        aggregator.writeHeader();
+        aggregator.onEvent(hourInMillis / 4, 1, ParkingType.CAR, 0, hourInMillis / 4);
+        aggregator.onEvent(hourInMillis / 2, 1, ParkingType.BIKE, 0, hourInMillis / 2);
+        aggregator.onEvent(hourInMillis + hourInMillis / 4, -1, ParkingType.CAR, 1.5, hourInMillis / 4);
+        aggregator.finish();
+
+        //then each hour reports entries, exits, revenue, stay and peak occupancy per type
+        String[] lines = writer.toString().split("\n");
+        assertEquals(5, lines.length);
+        assertEquals(OccupancyReportAggregator.HEADER, lines[0]);
+        assertEquals("1970-01-01 00:00,CAR,1,0,0.00,0.0,2", lines[1]);
+        assertEquals("1970-01-01 00:00,BIKE,1,0,0.00,0.0,1", lines[2]);
+        assertEquals("1970-01-01 01:00,CAR,0,1,1.50,60.0,2", lines[3]);
+        assertEquals("1970-01-01 01:00,BIKE,0,0,0.00,0.0,1", lines[4]);
+    }
+
+    @Test
+    public void aggregateDailyReportWithoutEvents() throws Exception {
+        //given no events over two days
+        OccupancyReportAggregator aggregator = new OccupancyReportAggregator(0, 48 * hourInMillis, ReportGranularity.DAY, ZoneOffset.UTC, initialOccupancy, writer);
+
+        //when the report is finished
+        aggregator.finish();
+
+        //then every day is still reported
+        String[] lines = writer.toString().split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("1970-01-02 00:00,BIKE,0,0,0.00,0.0,0", lines[3]);
+    }
+}
@@ -0,0 +1,105 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.OccupancyTimeSeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OccupancyTimeSeriesTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+    //2024-01-01T00:00:00Z
+    private static final long START = 1704067200000L;
+
+    private OccupancyTimeSeries occupancyTimeSeries;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        occupancyTimeSeries = new OccupancyTimeSeries();
+        occupancyTimeSeries.setOccupancy(ParkingType.CAR, 2, START);
+    }
+
+    @Test
+    public void entriesAndExitsAreCountedPerMinute() {
+        //given two cars entering in the first minute and one leaving in the second
+        occupancyTimeSeries.recordEntry(ParkingType.CAR, START + 1000);
+        occupancyTimeSeries.recordEntry(ParkingType.CAR, START + 2000);
+        occupancyTimeSeries.recordExit(ParkingType.CAR, START + MINUTE + 1000);
+
+        //then
+        assertEquals(2, occupancyTimeSeries.getArrivalsInMinute(ParkingType.CAR, START));
+        assertEquals(4, occupancyTimeSeries.getPeakOccupancyInMinute(ParkingType.CAR, START));
+        assertEquals(1, occupancyTimeSeries.getExitsInMinute(ParkingType.CAR, START + MINUTE));
+        assertEquals(3, occupancyTimeSeries.getOccupancyAtMinute(ParkingType.CAR, START + MINUTE));
+        assertEquals(3, occupancyTimeSeries.getOccupancy(ParkingType.CAR));
+        assertEquals(0, occupancyTimeSeries.getArrivalsInMinute(ParkingType.BIKE, START));
+    }
+
+    @Test
+    public void quietMinutesCarryTheOccupancyOver() {
+        //given one entry, then nothing for ten minutes
+        occupancyTimeSeries.recordEntry(ParkingType.CAR, START);
+        occupancyTimeSeries.recordEntry(ParkingType.BIKE, START + 10 * MINUTE);
+
+        //then the minutes in between show the occupancy left by the entry
+        assertEquals(3, occupancyTimeSeries.getOccupancyAtMinute(ParkingType.CAR, START + 5 * MINUTE));
+        assertEquals(0, occupancyTimeSeries.getArrivalsInMinute(ParkingType.CAR, START + 5 * MINUTE));
+    }
+
+    @Test
+    public void minutesAreDownsampledToHours() {
+        //given entries spread over the first hour and an exit in the second
+        for(int minute = 0; minute < 60; minute += 10){
+            occupancyTimeSeries.recordEntry(ParkingType.CAR, START + minute * MINUTE);
+        }
+        occupancyTimeSeries.recordExit(ParkingType.CAR, START + HOUR + MINUTE);
+
+        //then
+        assertEquals(6, occupancyTimeSeries.getArrivalsInHour(ParkingType.CAR, START));
+        assertEquals(8, occupancyTimeSeries.getPeakOccupancyInHour(ParkingType.CAR, START));
+        assertEquals(8, occupancyTimeSeries.getOccupancyAtHour(ParkingType.CAR, START));
+        assertEquals(1, occupancyTimeSeries.getExitsInHour(ParkingType.CAR, START + HOUR));
+        assertEquals(7, occupancyTimeSeries.getOccupancyAtHour(ParkingType.CAR, START + HOUR));
+    }
+
+    @Test
+    public void lastDayTotalsForgetOlderMinutes() {
+        //given entries at the start and twelve hours later
+        occupancyTimeSeries.recordEntry(ParkingType.CAR, START);
+        occupancyTimeSeries.recordEntry(ParkingType.CAR, START + 12 * HOUR);
+        assertEquals(2, occupancyTimeSeries.getArrivalsLastDay(ParkingType.CAR, START + 12 * HOUR));
+
+        //when a day has passed since the first one
+        long now = START + 24 * HOUR + MINUTE;
+
+        //then only the second entry is left in the minute window, while hours are still kept
+        assertEquals(1, occupancyTimeSeries.getArrivalsLastDay(ParkingType.CAR, now));
+        assertEquals(0, occupancyTimeSeries.getArrivalsInMinute(ParkingType.CAR, START));
+        assertEquals(1, occupancyTimeSeries.getArrivalsInHour(ParkingType.CAR, START));
+    }
+
+    @Test
+    public void longGapClearsTheMinuteWindow() {
+        //given an entry, then nothing for three days
+        occupancyTimeSeries.recordEntry(ParkingType.CAR, START);
+        long now = START + 72 * HOUR;
+
+        //then
+        assertEquals(0, occupancyTimeSeries.getArrivalsLastDay(ParkingType.CAR, now));
+        assertEquals(3, occupancyTimeSeries.getOccupancyAtMinute(ParkingType.CAR, now));
+    }
+
+    @Test
+    public void lateEventsCountInTheCurrentMinute() {
+        //given an entry reported after a later one
+        occupancyTimeSeries.recordEntry(ParkingType.CAR, START + 5 * MINUTE);
+        occupancyTimeSeries.recordEntry(ParkingType.CAR, START + MINUTE);
+
+        //then
+        assertEquals(2, occupancyTimeSeries.getArrivalsInMinute(ParkingType.CAR, START + 5 * MINUTE));
+        assertEquals(0, occupancyTimeSeries.getArrivalsInMinute(ParkingType.CAR, START + MINUTE));
+    }
+}
@@ -0,0 +1,167 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.event.ParkingEvent;
+import com.parkit.parkingsystem.event.ParkingEventBus;
+import com.parkit.parkingsystem.event.ParkingEventSubscriber;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParkingEventBusTest {
+
+    private Ticket ticket(long id, int parkingNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    @Test
+    public void capacityMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new ParkingEventBus(100));
+    }
+
+    @Test
+    public void subscribersReceiveEventsInOrder() throws Exception {
+        //given two subscribers
+        ParkingEventBus eventBus = new ParkingEventBus(64);
+        CountDownLatch received = new CountDownLatch(200);
+        List<Long> first = Collections.synchronizedList(new ArrayList<>());
+        List<Long> second = Collections.synchronizedList(new ArrayList<>());
+        ParkingEventBus.Subscription board = eventBus.subscribe("board", (event, endOfBatch) -> {
+            first.add(event.getTicketId());
+            received.countDown();
+        });
+        ParkingEventBus.Subscription billing = eventBus.subscribe("billing", (event, endOfBatch) -> {
+            second.add(event.getTicketId());
+            received.countDown();
+        });
+
+        //when entries are published
+        for(long id = 1; id <= 100; id++){
+            eventBus.publishEntry(ticket(id, 1));
+            if(id % 32 == 0){
+                Thread.sleep(5);
+            }
+        }
+
+        //then each subscriber gets all of them in publication order
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        for(int i = 0; i < 100; i++){
+            assertEquals(i + 1, first.get(i));
+            assertEquals(i + 1, second.get(i));
+        }
+        assertEquals(0, board.getLostEvents());
+        board.close();
+        billing.close();
+    }
+
+    @Test
+    public void eventsCarryTicketAndSpotDetails() throws Exception {
+        //given a subscriber
+        ParkingEventBus eventBus = new ParkingEventBus(16);
+        CountDownLatch received = new CountDownLatch(2);
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        ParkingEventBus.Subscription subscription = eventBus.subscribe("analytics", (event, endOfBatch) -> {
+            events.add(event.getEventType() + " " + event.getParkingNumber() + " " + event.getParkingType() + " "
+                    + event.getVehicleRegNumber() + " " + event.getPrice() + " " + event.isAvailable());
+            received.countDown();
+        });
+
+        //when a car leaves spot 3 and the spot is freed
+        Ticket ticket = ticket(7, 3);
+        ticket.setOutTime(new Date());
+        ticket.setPrice(1.5);
+        eventBus.publishExit(ticket);
+        eventBus.publishSpotChange(new ParkingSpot(3, ParkingType.CAR, true), System.currentTimeMillis());
+
+        //then
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertEquals(ParkingEventType.VEHICLE_EXITED + " 3 CAR ABCDEF 1.5 false", events.get(0));
+        assertEquals(ParkingEventType.SPOT_CHANGED + " 3 CAR null 0.0 true", events.get(1));
+        subscription.close();
+    }
+
+    @Test
+    public void slowSubscriberLosesEventsWithoutBlockingPublisher() throws Exception {
+        //given a subscriber stuck on its first event and a small ring
+        ParkingEventBus eventBus = new ParkingEventBus(8);
+        CountDownLatch stuck = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<Long> sequences = Collections.synchronizedList(new ArrayList<>());
+        long[] lost = new long[1];
+        ParkingEventBus.Subscription subscription = eventBus.subscribe("slow", new ParkingEventSubscriber() {
+            @Override
+            public void onEvent(ParkingEvent event, boolean endOfBatch) throws Exception {
+                sequences.add(event.getSequence());
+                blocked.countDown();
+                stuck.await();
+            }
+
+            @Override
+            public void onLost(long lostEvents) {
+                lost[0] += lostEvents;
+            }
+        });
+        eventBus.publishEntry(ticket(1, 1));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        //when far more events than the ring holds are published
+        for(long id = 2; id <= 100; id++){
+            eventBus.publishEntry(ticket(id, 1));
+        }
+
+        //then the publisher was not held back, and once released the subscriber skips what was overwritten
+        assertEquals(100, eventBus.getPublishedCount());
+        stuck.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while(subscription.getLag() > 0 && System.currentTimeMillis() < deadline){
+            Thread.sleep(5);
+        }
+        assertEquals(0, subscription.getLag());
+        assertTrue(subscription.getLostEvents() > 0);
+        assertEquals(subscription.getLostEvents(), lost[0]);
+        assertEquals(100, sequences.size() + subscription.getLostEvents());
+        for(int i = 1; i < sequences.size(); i++){
+            assertTrue(sequences.get(i) > sequences.get(i - 1));
+        }
+        subscription.close();
+    }
+
+    @Test
+    public void failingSubscriberKeepsReceiving() throws Exception {
+        //given a subscriber failing on every other event
+        ParkingEventBus eventBus = new ParkingEventBus(16);
+        CountDownLatch received = new CountDownLatch(4);
+        ParkingEventBus.Subscription subscription = eventBus.subscribe("flaky", (event, endOfBatch) -> {
+            received.countDown();
+            if(event.getSequence() % 2 == 0){
+                throw new IllegalStateException("board offline");
+            }
+        });
+
+        //when events are published
+        for(long id = 1; id <= 4; id++){
+            eventBus.publishEntry(ticket(id, 1));
+        }
+
+        //then all of them are still delivered
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        subscription.close();
+    }
+}
@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.ChangeLogDAO;
+import com.parkit.parkingsystem.event.ParkingEventBus;
+import com.parkit.parkingsystem.service.ParkingLot;
+import com.parkit.parkingsystem.service.ParkingLotRegistry;
+import com.parkit.parkingsystem.simulation.VirtualClock;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+public class ParkingLotRegistryTest {
+
+    @Mock
+    private ChangeLogDAO changeLogDAO;
+
+    private ParkingLotRegistry parkingLotRegistry;
+    private final List<Integer> consoles = new ArrayList<>();
+
+    @BeforeEach
+    private void setUpPerTest() {
+        //no change log: the lots are opened without a poller, their caches fail to load and are left out
+        lenient().when(changeLogDAO.getLastSequence()).thenReturn(-1L);
+        parkingLotRegistry = new ParkingLotRegistry(changeLogDAO, new VirtualClock(1000000));
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        parkingLotRegistry.close();
+    }
+
+    private InputReaderUtil console(int lotId) {
+        consoles.add(lotId);
+        return mock(InputReaderUtil.class);
+    }
+
+    @Test
+    public void lotIdsAreParsedOnceEach() {
+        //given a list with spaces, an empty entry and a duplicate
+        //when it is parsed
+        //then every lot id comes once, in order
+        assertArrayEquals(new int[]{1, 2, 3}, ParkingLotRegistry.parseLotIds(" 1, 2,,2 ,3"));
+        assertThrows(NumberFormatException.class, () -> ParkingLotRegistry.parseLotIds("1,two"));
+    }
+
+    @Test
+    public void openedLotsAreBoundToTheirId() {
+        //when lots 1 and 2 are opened
+        parkingLotRegistry.open(new int[]{1, 2}, this::console);
+
+        //then each lot has its own DAOs, console and event bus, and a lot not opened is not hosted
+        ParkingLot lot1 = parkingLotRegistry.get(1);
+        ParkingLot lot2 = parkingLotRegistry.get(2);
+        assertEquals(2, parkingLotRegistry.getLots().size());
+        assertEquals(Arrays.asList(1, 2), consoles);
+        assertEquals(1, lot1.getTicketDAO().lotId);
+        assertEquals(1, lot1.getParkingSpotDAO().lotId);
+        assertEquals(2, lot2.getTicketDAO().lotId);
+        assertEquals(2, lot2.getParkingSpotDAO().lotId);
+        assertEquals(2, lot2.getTicketDAO().parkingSpotCatalog.getLotId());
+        assertEquals(2, lot2.newSettlementDAO().lotId);
+        assertSame(ParkingEventBus.getInstance(), lot1.getEventBus());
+        assertNotSame(lot1.getEventBus(), lot2.getEventBus());
+        assertNull(lot2.getDriftReconciler());
+        assertNull(parkingLotRegistry.get(3));
+    }
+
+    @Test
+    public void lotsAreOpenedOnce() {
+        //given lots already opened
+        parkingLotRegistry.open(new int[]{1}, this::console);
+
+        //when they are opened again
+        //then it is refused
+        assertThrows(IllegalStateException.class, () -> parkingLotRegistry.open(new int[]{2}, this::console));
+    }
+}
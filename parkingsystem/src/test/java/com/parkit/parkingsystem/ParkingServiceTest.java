@@ -1,23 +1,53 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.config.DeadlineExceededException;
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.constants.OperationType;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.event.ParkingEventBus;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.AdmissionController;
+import com.parkit.parkingsystem.service.AdmissionRejectedException;
+import com.parkit.parkingsystem.service.ChangeLogPoller;
+import com.parkit.parkingsystem.service.OccupancyCounters;
 import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ReservationService;
+import com.parkit.parkingsystem.service.SpotAllocationPolicy;
+import com.parkit.parkingsystem.service.SpotAllocator;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.LatencyTracker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +57,7 @@ public class ParkingServiceTest {
 
     private long hourInMillis = 60 * 60 * 1000;
     private String vehicleRegNumber = "ABCDEF";
+    private AdmissionController admissionController;
 
     @Mock
     private static InputReaderUtil inputReaderUtil;
@@ -55,6 +86,8 @@ public class ParkingServiceTest {
             lenient().when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
 
             parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+            admissionController = new AdmissionController(new LatencyTracker(), 0, 1000, 250);
+            parkingService.setAdmissionController(admissionController);
         } catch (Exception e) {
             e.printStackTrace();
             throw  new RuntimeException("Failed to set up test mock objects");
@@ -86,12 +119,26 @@ public class ParkingServiceTest {
         verify(inputReaderUtil, Mockito.times(1)).readSelection();
     }
 
+    @Test
+    public void testProcessIncomingVehiclePrintsToItsConsole() throws Exception{
+        //given the messages of this gate go to their own console
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        parkingService.setConsole(new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        //when an incoming vehicle is processed
+        parkingService.processIncomingVehicle();
+
+        //then the driver is told where to park there
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("Please park your vehicle in spot number:1"));
+    }
+
     @Test
     public void testProcessIncomingVehicleIfReturningCustomer(){
         /*given standard conditions
         except there is a previous ticket for this vehicle */
 
         when(ticketDAO.getNbTicket(anyString())).thenReturn(1);
+        ArgumentCaptor<Ticket> savedTicket = ArgumentCaptor.forClass(Ticket.class);
 
         //when an incoming vehicle is processed
         try{
@@ -100,6 +147,10 @@ public class ParkingServiceTest {
             e.printStackTrace();
         }
 
+        //then the saved ticket carries the recurring user discount
+        verify(ticketDAO, Mockito.times(1)).saveTicket(savedTicket.capture());
+        assertTrue(savedTicket.getValue().isDiscount());
+
         //then the following methods are called
         try{
             verify(inputReaderUtil, Mockito.times(1)).readVehicleRegistrationNumber();
@@ -162,7 +213,7 @@ public class ParkingServiceTest {
         
         //then the following methods are called
         verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
-        verify(ticketDAO, Mockito.times(1)).getNbTicket(anyString());
+        verify(ticketDAO, Mockito.times(0)).getNbTicket(anyString());
     }
 
     @Test
@@ -180,21 +231,27 @@ public class ParkingServiceTest {
         
         //then the following methods are called
         verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
-        verify(ticketDAO, Mockito.times(1)).getNbTicket(anyString());
+        verify(ticketDAO, Mockito.times(0)).getNbTicket(anyString());
     }
     
     @Test
     public void processExitingVehicleTestIfReturningCustomer(){
         /*given standard conditions
-        except that there is a previous ticket for this vehicle  */
-        when(ticketDAO.getNbTicket(anyString())).thenReturn(1);
+        except that the ticket was given the recurring user discount at entry  */
+        Ticket ticket = new Ticket();
+        ticket.setInTime(new Date(System.currentTimeMillis() - (hourInMillis)));
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR,false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setDiscount(true);
+        when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
 
         //when an exiting vehicle is processed
         parkingService.processExitingVehicle();
         
-        //then the following methods are called
+        //then the discounted price is computed without querying the ticket history
+        assertEquals(0.95 * Fare.CAR_RATE_PER_HOUR, ticket.getPrice(), 0.01);
         verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
-        verify(ticketDAO, Mockito.times(1)).getNbTicket(anyString());
+        verify(ticketDAO, Mockito.times(0)).getNbTicket(anyString());
     }
     
     @Test
@@ -208,7 +265,7 @@ public class ParkingServiceTest {
         
         //then the following methods are called
         verify(parkingSpotDAO, Mockito.times(0)).updateParking(any(ParkingSpot.class));
-        verify(ticketDAO, Mockito.times(1)).getNbTicket(anyString());
+        verify(ticketDAO, Mockito.times(0)).getNbTicket(anyString());
     }
 
     @Test
@@ -267,4 +324,374 @@ public class ParkingServiceTest {
         assertThrows(IllegalArgumentException.class, () -> parkingService.getNextParkingNumberIfAvailable());
     }
 
+    @Test
+    public void testProcessIncomingVehicleAsync(){
+        /*given standard conditions
+        with asynchronous database calls */
+        when(parkingSpotDAO.getNextAvailableSlotAsync(any(ParkingType.class))).thenReturn(CompletableFuture.completedFuture(1));
+        when(ticketDAO.getNbTicketAsync(anyString())).thenReturn(CompletableFuture.completedFuture(0));
+        when(parkingSpotDAO.updateParkingAsync(any(ParkingSpot.class))).thenReturn(CompletableFuture.completedFuture(true));
+        when(ticketDAO.saveTicketAsync(any(Ticket.class))).thenReturn(CompletableFuture.completedFuture(true));
+
+        //when an incoming vehicle is processed asynchronously
+        Ticket ticket = parkingService.processIncomingVehicleAsync().join();
+
+        //then a ticket is created for the allotted spot and every step is called once
+        assertEquals(1, ticket.getParkingSpot().getId());
+        assertFalse(ticket.getParkingSpot().isAvailable());
+        assertEquals(vehicleRegNumber, ticket.getVehicleRegNumber());
+        verify(parkingSpotDAO, Mockito.times(1)).getNextAvailableSlotAsync(any(ParkingType.class));
+        verify(ticketDAO, Mockito.times(1)).getNbTicketAsync(anyString());
+        verify(parkingSpotDAO, Mockito.times(1)).updateParkingAsync(any(ParkingSpot.class));
+        verify(ticketDAO, Mockito.times(1)).saveTicketAsync(any(Ticket.class));
+    }
+
+    @Test
+    public void testProcessIncomingVehicleAsyncIfTicketNotSaved(){
+        /*given standard conditions
+        with asynchronous database calls, except that the ticket cannot be saved */
+        when(parkingSpotDAO.getNextAvailableSlotAsync(any(ParkingType.class))).thenReturn(CompletableFuture.completedFuture(1));
+        when(ticketDAO.getNbTicketAsync(anyString())).thenReturn(CompletableFuture.completedFuture(0));
+        //availability of the spot at each update, the spot object itself is changed in between
+        List<Boolean> availability = new ArrayList<>();
+        when(parkingSpotDAO.updateParkingAsync(any(ParkingSpot.class))).thenAnswer(invocation -> {
+            availability.add(((ParkingSpot) invocation.getArgument(0)).isAvailable());
+            return CompletableFuture.completedFuture(true);
+        });
+        when(ticketDAO.saveTicketAsync(any(Ticket.class))).thenReturn(CompletableFuture.completedFuture(false));
+
+        //when an incoming vehicle is processed asynchronously
+        CompletableFuture<Ticket> result = parkingService.processIncomingVehicleAsync();
+
+        //then the future fails and the spot taken for it is given back
+        assertTrue(result.isCompletedExceptionally());
+        verify(parkingSpotDAO, Mockito.times(2)).updateParkingAsync(any(ParkingSpot.class));
+        assertEquals(List.of(false, true), availability);
+    }
+
+    @Test
+    public void testProcessIncomingVehicleAsyncIfParkingFull(){
+        /*given standard conditions
+        except that there is no available parking spot */
+        when(parkingSpotDAO.getNextAvailableSlotAsync(any(ParkingType.class))).thenReturn(CompletableFuture.completedFuture(0));
+        when(ticketDAO.getNbTicketAsync(anyString())).thenReturn(CompletableFuture.completedFuture(0));
+
+        //when an incoming vehicle is processed asynchronously
+        CompletableFuture<Ticket> result = parkingService.processIncomingVehicleAsync();
+
+        //then the future fails and no spot is allotted
+        assertTrue(result.isCompletedExceptionally());
+        verify(parkingSpotDAO, Mockito.times(0)).updateParkingAsync(any(ParkingSpot.class));
+        verify(ticketDAO, Mockito.times(0)).saveTicketAsync(any(Ticket.class));
+    }
+
+    @Test
+    public void processExitingVehicleAsyncTest(){
+        /*given standard conditions
+        with asynchronous database calls */
+        Ticket ticket = new Ticket();
+        ticket.setInTime(new Date(System.currentTimeMillis() - (hourInMillis)));
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR,false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        when(ticketDAO.getTicketAsync(anyString())).thenReturn(CompletableFuture.completedFuture(ticket));
+        when(ticketDAO.updateTicketAsync(any(Ticket.class))).thenReturn(CompletableFuture.completedFuture(true));
+        when(parkingSpotDAO.updateParkingAsync(any(ParkingSpot.class))).thenReturn(CompletableFuture.completedFuture(true));
+
+        //when an exiting vehicle is processed asynchronously
+        parkingService.processExitingVehicleAsync().join();
+
+        //then the ticket is priced and the spot is freed
+        assertEquals(Fare.CAR_RATE_PER_HOUR, ticket.getPrice(), 0.01);
+        assertTrue(ticket.getParkingSpot().isAvailable());
+        verify(parkingSpotDAO, Mockito.times(1)).updateParkingAsync(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void processExitingVehicleByTicketIdTest() throws Exception {
+        /*given standard conditions
+        with a ticket number scanned at the exit */
+        Ticket ticket = new Ticket();
+        ticket.setId(12);
+        ticket.setInTime(new Date(System.currentTimeMillis() - (hourInMillis)));
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR,false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        when(inputReaderUtil.readTicketId()).thenReturn(12L);
+        when(ticketDAO.getTicket(12L)).thenReturn(ticket);
+
+        //when an exiting vehicle is processed with its ticket number
+        parkingService.processExitingVehicleByTicketId();
+
+        //then the ticket is looked up by id only and the spot is freed
+        verify(ticketDAO, Mockito.times(1)).getTicket(12L);
+        verify(ticketDAO, Mockito.times(0)).getTicket(anyString());
+        verify(ticketDAO, Mockito.times(1)).updateTicket(ticket);
+        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void processExitingVehicleByTicketIdTestIfTicketClosed() throws Exception {
+        /*given standard conditions
+        except that the scanned ticket is already closed */
+        Ticket ticket = new Ticket();
+        ticket.setInTime(new Date(System.currentTimeMillis() - (hourInMillis)));
+        ticket.setOutTime(new Date());
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR,false));
+        when(inputReaderUtil.readTicketId()).thenReturn(12L);
+        when(ticketDAO.getTicket(12L)).thenReturn(ticket);
+
+        //when an exiting vehicle is processed with its ticket number
+        parkingService.processExitingVehicleByTicketId();
+
+        //then nothing is updated
+        verify(ticketDAO, Mockito.times(0)).updateTicket(any(Ticket.class));
+        verify(parkingSpotDAO, Mockito.times(0)).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void processIncomingVehicleTestIfDeadlineExceeded() {
+        /*given standard conditions
+        except that the database does not answer within the entry deadline */
+        when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenThrow(new DeadlineExceededException("ENTRY deadline of 2000ms exceeded"));
+
+        //when an incoming vehicle is processed
+        assertThrows(DeadlineExceededException.class, () -> parkingService.processIncomingVehicle());
+
+        //then the gate fails fast without touching the tickets
+        verify(ticketDAO, Mockito.times(0)).getNbTicket(anyString());
+        verify(ticketDAO, Mockito.times(0)).saveTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void processExitingVehicleTestIfDeadlineExceeded() {
+        /*given standard conditions
+        except that the ticket lookup does not answer within the exit deadline */
+        when(ticketDAO.getTicket(anyString())).thenThrow(new DeadlineExceededException("EXIT deadline of 2000ms exceeded"));
+
+        //when an exiting vehicle is processed
+        parkingService.processExitingVehicle();
+
+        //then nothing is updated
+        verify(ticketDAO, Mockito.times(0)).updateTicket(any(Ticket.class));
+        verify(parkingSpotDAO, Mockito.times(0)).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void processIncomingVehicleTestIfOverloaded() {
+        /*given standard conditions
+        except that as many entries as allowed are already running */
+        for(int i = 0; i < admissionController.getLimit(OperationType.ENTRY); i++){
+            admissionController.tryAcquire(OperationType.ENTRY);
+        }
+
+        //when an incoming vehicle is processed
+        assertThrows(AdmissionRejectedException.class, () -> parkingService.processIncomingVehicle());
+
+        //then it is rejected before reaching the database
+        verify(parkingSpotDAO, Mockito.times(0)).getNextAvailableSlot(any(ParkingType.class));
+        verify(ticketDAO, Mockito.times(0)).saveTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void processIncomingVehicleTestReleasesAdmission() throws Exception {
+        //given standard conditions
+
+        //when an incoming vehicle is processed
+        parkingService.processIncomingVehicle();
+
+        //then nothing is left running
+        assertEquals(0, admissionController.getInFlight(OperationType.ENTRY));
+    }
+
+    @Test
+    public void processIncomingVehicleTestHoldsNoAdmissionWhileTyping() throws Exception {
+        //given the plate is being typed at the console
+        int[] inFlightWhileTyping = new int[1];
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenAnswer(invocation -> {
+            inFlightWhileTyping[0] = admissionController.getInFlight(OperationType.ENTRY);
+            return vehicleRegNumber;
+        });
+
+        //when an incoming vehicle is processed
+        parkingService.processIncomingVehicle();
+
+        //then the entry was not counted as running until the input was read
+        assertEquals(0, inFlightWhileTyping[0]);
+        verify(ticketDAO, Mockito.times(1)).saveTicket(any(Ticket.class));
+    }
+
+    private OccupancyCounters carOnlyCounters(int... occupiedParkingNumbers) {
+        //a lot with a single car spot, number 1
+        ParkingSpotCatalog parkingSpotCatalog = mock(ParkingSpotCatalog.class);
+        lenient().when(parkingSpotCatalog.getMaxParkingNumber()).thenReturn(1);
+        lenient().when(parkingSpotCatalog.getCapacity(ParkingType.CAR)).thenReturn(1);
+        lenient().when(parkingSpotCatalog.getParkingType(1)).thenReturn(ParkingType.CAR);
+        OccupancyCounters occupancyCounters = new OccupancyCounters(parkingSpotCatalog);
+        occupancyCounters.load(occupiedParkingNumbers);
+        return occupancyCounters;
+    }
+
+    @Test
+    public void processIncomingAndExitingVehicleTestWithSpotAllocator() throws Exception {
+        /*given standard conditions
+        with cars on spots 1 to 3 in zone A and 4 to 6 in zone B, the entrance next to spot 5 */
+        ParkingSpotCatalog parkingSpotCatalog = mock(ParkingSpotCatalog.class);
+        lenient().when(parkingSpotCatalog.getMaxParkingNumber()).thenReturn(6);
+        lenient().when(parkingSpotCatalog.getParkingType(anyInt())).thenAnswer(invocation ->
+                ((int) invocation.getArgument(0) >= 1) ? ParkingType.CAR : ParkingType.UNKNOWN);
+        lenient().when(parkingSpotCatalog.getZone(anyInt())).thenAnswer(invocation ->
+                ((int) invocation.getArgument(0) >= 4) ? "B" : "A");
+        SpotAllocator spotAllocator = new SpotAllocator(parkingSpotCatalog);
+        spotAllocator.load(new int[0]);
+        parkingService.setSpotAllocator(spotAllocator, SpotAllocationPolicy.nearestTo(5));
+
+        //when a car enters
+        parkingService.processIncomingVehicle();
+
+        //then it is sent to spot 5 without asking the database for a spot
+        ArgumentCaptor<ParkingSpot> parkingSpot = ArgumentCaptor.forClass(ParkingSpot.class);
+        verify(parkingSpotDAO).updateParking(parkingSpot.capture());
+        assertEquals(5, parkingSpot.getValue().getId());
+        assertEquals("B", parkingSpot.getValue().getZone());
+        verify(parkingSpotDAO, never()).getNextAvailableSlot(any(ParkingType.class));
+        assertEquals(2, spotAllocator.getFreeCount(ParkingType.CAR, "B"));
+
+        //when it leaves
+        Ticket ticket = new Ticket();
+        ticket.setInTime(new Date(System.currentTimeMillis() - hourInMillis));
+        ticket.setParkingSpot(new ParkingSpot(5, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        when(ticketDAO.getTicket(vehicleRegNumber)).thenReturn(ticket);
+        parkingService.processExitingVehicle();
+
+        //then the spot is free again
+        assertEquals(3, spotAllocator.getFreeCount(ParkingType.CAR, "B"));
+    }
+
+    @Test
+    public void processIncomingVehicleTestIgnoresStaleCounters() throws Exception {
+        /*given standard conditions
+        with counters showing a full lot, but not kept in line with the other instances for too long */
+        parkingService.setOccupancyCounters(carOnlyCounters(1));
+        ChangeLogPoller changeLogPoller = mock(ChangeLogPoller.class);
+        when(changeLogPoller.isStale()).thenReturn(true);
+        parkingService.setChangeLogPoller(changeLogPoller);
+
+        //when an incoming car is processed
+        parkingService.processIncomingVehicle();
+
+        //then the database decides
+        verify(parkingSpotDAO).getNextAvailableSlot(ParkingType.CAR);
+        verify(parkingSpotDAO).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void processIncomingVehicleTestRefusesWalkInOnReservedSpot() {
+        /*given standard conditions
+        except that the only free car spot is held for a reservation of another vehicle */
+        parkingService.setOccupancyCounters(carOnlyCounters());
+        ReservationService reservationService = mock(ReservationService.class);
+        when(reservationService.getHeld(ParkingType.CAR)).thenReturn(1);
+        parkingService.setReservationService(reservationService);
+
+        //when an incoming car without reservation is processed
+        assertThrows(Exception.class, () -> parkingService.processIncomingVehicle());
+
+        //then it is refused before the spot is taken
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+        verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void processIncomingVehicleTestChecksInReservation() throws Exception {
+        /*given standard conditions
+        with a reservation running now for the incoming car */
+        parkingService.setOccupancyCounters(carOnlyCounters());
+        ReservationService reservationService = mock(ReservationService.class);
+        Reservation reservation = new Reservation();
+        when(reservationService.findActive(ParkingType.CAR, vehicleRegNumber)).thenReturn(reservation);
+        when(reservationService.checkIn(reservation)).thenReturn(true);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+        parkingService.setReservationService(reservationService);
+
+        //when it is processed
+        parkingService.processIncomingVehicle();
+
+        //then it takes the spot held for it and the reservation is used
+        verify(ticketDAO).saveTicket(any(Ticket.class));
+        verify(reservationService).checkIn(reservation);
+        verify(reservationService, never()).getHeld(any(ParkingType.class));
+    }
+
+    @Test
+    public void processIncomingVehicleTestIfTypeIsFull() {
+        /*given standard conditions
+        except that every car spot is already occupied */
+        parkingService.setOccupancyCounters(carOnlyCounters(1));
+
+        //when an incoming car is processed
+        assertThrows(Exception.class, () -> parkingService.processIncomingVehicle());
+
+        //then it is refused without any query
+        verify(parkingSpotDAO, Mockito.times(0)).getNextAvailableSlot(any(ParkingType.class));
+        verify(ticketDAO, Mockito.times(0)).getNbTicket(anyString());
+    }
+
+    @Test
+    public void processIncomingAndExitingVehicleTestUpdateCounters() throws Exception {
+        //given standard conditions with an empty car lot
+        OccupancyCounters occupancyCounters = carOnlyCounters();
+        parkingService.setOccupancyCounters(occupancyCounters);
+
+        //when a car enters
+        parkingService.processIncomingVehicle();
+
+        //then the lot is full
+        assertTrue(occupancyCounters.isFull(ParkingType.CAR));
+
+        //when it leaves
+        parkingService.processExitingVehicle();
+
+        //then the spot is free again
+        assertEquals(1, occupancyCounters.getFree(ParkingType.CAR));
+    }
+
+    @Test
+    public void processIncomingVehicleTestPublishesEvents() throws Exception {
+        //given standard conditions and a subscriber on the event bus
+        ParkingEventBus eventBus = new ParkingEventBus(16);
+        parkingService.setEventBus(eventBus);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+        CountDownLatch received = new CountDownLatch(2);
+        List<ParkingEventType> events = Collections.synchronizedList(new ArrayList<>());
+        ParkingEventBus.Subscription subscription = eventBus.subscribe("test", (event, endOfBatch) -> {
+            events.add(event.getEventType());
+            received.countDown();
+        });
+
+        //when an incoming vehicle is processed
+        parkingService.processIncomingVehicle();
+
+        //then the spot change and the entry are published, in that order
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertEquals(ParkingEventType.SPOT_CHANGED, events.get(0));
+        assertEquals(ParkingEventType.VEHICLE_ENTERED, events.get(1));
+        subscription.close();
+    }
+
+    @Test
+    public void processIncomingVehicleTestUsesInjectedClock() throws Exception {
+        //given standard conditions on a fixed clock
+        Clock clock = Clock.fixed(Instant.parse("2024-01-01T08:00:00Z"), ZoneOffset.UTC);
+        parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, clock);
+        parkingService.setAdmissionController(admissionController);
+        ArgumentCaptor<Ticket> savedTicket = ArgumentCaptor.forClass(Ticket.class);
+
+        //when an incoming vehicle is processed
+        parkingService.processIncomingVehicle();
+
+        //then the ticket in time comes from the clock
+        verify(ticketDAO).saveTicket(savedTicket.capture());
+        assertEquals(clock.millis(), savedTicket.getValue().getInTime().getTime());
+    }
+
 }
@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.Deadline;
+import com.parkit.parkingsystem.config.DeadlineExceededException;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
+import com.parkit.parkingsystem.simulation.VirtualClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ParkingSpotCatalogTest {
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    private VirtualClock clock;
+    private ParkingSpotCatalog parkingSpotCatalog;
+    //rows of the parking table as number and type, read again on every load
+    private final List<Object[]> spots = new ArrayList<>();
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        lenient().when(dataBaseConfig.getConnection(any(Deadline.class))).thenReturn(connection);
+        lenient().when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        lenient().when(preparedStatement.executeQuery()).thenAnswer(invocation -> resultSet(new ArrayList<>(spots)));
+        clock = new VirtualClock(1000000);
+        parkingSpotCatalog = new ParkingSpotCatalog(42);
+        parkingSpotCatalog.dataBaseConfig = dataBaseConfig;
+        parkingSpotCatalog.clock = clock;
+        spots.add(new Object[]{1, "CAR"});
+        spots.add(new Object[]{2, "BIKE"});
+    }
+
+    private static ResultSet resultSet(List<Object[]> rows) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] row = {-1};
+        lenient().when(rs.next()).thenAnswer(invocation -> ++row[0] < rows.size());
+        lenient().when(rs.getInt(1)).thenAnswer(invocation -> rows.get(row[0])[0]);
+        lenient().when(rs.getString(2)).thenAnswer(invocation -> rows.get(row[0])[1]);
+        lenient().when(rs.getString(3)).thenReturn("A");
+        lenient().when(rs.getInt(4)).thenReturn(0);
+        return rs;
+    }
+
+    @Test
+    public void unknownSpotTriggersOneReload() throws Exception {
+        //given a loaded catalog, and a spot added to the table after the reload interval
+        assertEquals(ParkingType.CAR, parkingSpotCatalog.getParkingType(1));
+        spots.add(new Object[]{3, "BIKE"});
+        clock.setMillis(clock.millis() + ParkingSpotCatalog.MIN_RELOAD_INTERVAL_MILLIS);
+
+        //when the new spot is looked up twice
+        ParkingType first = parkingSpotCatalog.getParkingType(3);
+        ParkingType second = parkingSpotCatalog.getParkingType(3);
+
+        //then the first lookup reloaded the catalog once, the second found it in memory
+        assertEquals(ParkingType.BIKE, first);
+        assertEquals(ParkingType.BIKE, second);
+        verify(preparedStatement, times(2)).executeQuery();
+        verify(preparedStatement, times(2)).setInt(1, 42);
+    }
+
+    @Test
+    public void repeatedMissWithinIntervalDoesNotReload() throws Exception {
+        //given a loaded catalog
+        parkingSpotCatalog.getParkingType(1);
+        clock.setMillis(clock.millis() + ParkingSpotCatalog.MIN_RELOAD_INTERVAL_MILLIS);
+
+        //when a spot which does not exist is looked up again and again within the interval
+        for(int i = 0; i < 10; i++){
+            assertEquals(ParkingType.UNKNOWN, parkingSpotCatalog.getParkingType(99));
+            clock.setMillis(clock.millis() + 10);
+        }
+
+        //then it stays of unknown type and only the first miss reloaded
+        verify(preparedStatement, times(2)).executeQuery();
+    }
+
+    @Test
+    public void unknownSpotFallsBackToUnknownType() throws Exception {
+        //given a database which cannot be reached
+        when(dataBaseConfig.getConnection(any(Deadline.class))).thenThrow(new SQLException("down"));
+
+        //when spots are looked up
+        //then they are of unknown type rather than failing the caller
+        assertEquals(ParkingType.UNKNOWN, parkingSpotCatalog.getParkingType(1));
+        assertEquals(ParkingType.UNKNOWN, parkingSpotCatalog.getParkingType(-1));
+        assertEquals(0, parkingSpotCatalog.getCapacity(ParkingType.CAR));
+    }
+
+    @Test
+    public void slowReloadFailsOnItsDeadline() throws Exception {
+        //given a database which does not answer the catalog query in time
+        when(preparedStatement.executeQuery()).thenThrow(new SQLTimeoutException("timeout"));
+
+        //when the catalog is loaded
+        //then the query ran under the SYNC deadline and the caller is told it ran out
+        assertThrows(DeadlineExceededException.class, () -> parkingSpotCatalog.refresh());
+        verify(dataBaseConfig).applyTimeout(eq(preparedStatement), any(Deadline.class));
+    }
+}
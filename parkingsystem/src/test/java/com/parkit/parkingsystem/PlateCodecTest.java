@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.PlateCodec;
+import com.parkit.parkingsystem.util.PlateMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PlateCodecTest {
+
+    @Test
+    public void typedPlatesAreNormalized(){
+        //given the same plate typed in different ways
+        //when they are normalized
+        //then they all give the canonical form
+        assertEquals("AB123CD", PlateCodec.normalize("AB-123-CD"));
+        assertEquals("AB123CD", PlateCodec.normalize(" ab 123 cd "));
+        assertEquals("AB123CD", PlateCodec.normalize("Ab-123-cD"));
+    }
+
+    @Test
+    public void canonicalPlatesRoundTrip(){
+        //given canonical plates from 1 to 10 characters
+        String[] plates = {"A", "9", "AB123CD", "ZZZZZZZZZZ", "0000000000", "1234567890"};
+        Set<Long> codes = new HashSet<>();
+
+        for(String plate : plates){
+            //when they are encoded
+            long code = PlateCodec.encode(plate);
+
+            //then each code is distinct, positive, and decodes back to the plate
+            assertNotEquals(PlateCodec.NOT_ENCODABLE, code);
+            assertEquals(true, code > 0);
+            assertEquals(plate, PlateCodec.decode(code));
+            assertEquals(true, codes.add(code));
+        }
+        //leading zeros are kept apart from shorter plates
+        assertNotEquals(PlateCodec.encode("0A"), PlateCodec.encode("A"));
+    }
+
+    @Test
+    public void nonCanonicalPlatesAreNotEncodable(){
+        //given plates which are empty, too long or hold other characters
+        //when they are encoded
+        //then none of them gets a code
+        assertEquals(PlateCodec.NOT_ENCODABLE, PlateCodec.encode(""));
+        assertEquals(PlateCodec.NOT_ENCODABLE, PlateCodec.encode("ABCDEFGHIJK"));
+        assertEquals(PlateCodec.NOT_ENCODABLE, PlateCodec.encode("ab123"));
+        assertEquals(PlateCodec.NOT_ENCODABLE, PlateCodec.encode("AB-123"));
+        assertEquals(PlateCodec.NOT_ENCODABLE, PlateCodec.encode("ÉTÉ42"));
+    }
+
+    @Test
+    public void plateMapHoldsEncodableAndOtherPlates(){
+        //given a plate map with a canonical plate and one that cannot be packed
+        PlateMap<String> plateMap = new PlateMap<>();
+        plateMap.put("AB123CD", "canonical");
+        plateMap.put("VIS12-345", "legacy");
+
+        //when they are looked up and removed
+        //then both behave as in any map
+        assertEquals("canonical", plateMap.get("AB123CD"));
+        assertEquals("legacy", plateMap.get("VIS12-345"));
+        assertNull(plateMap.get("AB123CE"));
+        assertEquals(2, plateMap.size());
+        assertEquals("canonical", plateMap.remove("AB123CD"));
+        assertNull(plateMap.get("AB123CD"));
+        assertEquals(1, plateMap.size());
+    }
+}
@@ -0,0 +1,227 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ReservationStatus;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.service.ReservationService;
+import com.parkit.parkingsystem.simulation.VirtualClock;
+import com.parkit.parkingsystem.util.IntervalCapacityIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReservationServiceTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Mock
+    private ReservationDAO reservationDAO;
+    @Mock
+    private ParkingSpotCatalog parkingSpotCatalog;
+
+    private VirtualClock clock;
+    private ReservationService reservationService;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        //two car spots
+        lenient().when(parkingSpotCatalog.getCapacity(ParkingType.CAR)).thenReturn(2);
+        lenient().when(reservationDAO.saveReservation(any(Reservation.class), anyInt())).thenReturn(true);
+        lenient().when(reservationDAO.updateReservationStatus(any(Reservation.class))).thenReturn(true);
+        clock = new VirtualClock(TimeUnit.DAYS.toMillis(1000));
+        reservationService = new ReservationService(reservationDAO, parkingSpotCatalog, clock, TimeUnit.DAYS.toMillis(7));
+    }
+
+    private Date in(long millis) {
+        return new Date(clock.millis() + millis);
+    }
+
+    @Test
+    public void bookingsAreLimitedByCapacityOverTheInterval() {
+        //given two overlapping bookings
+        assertNotNull(reservationService.book(ParkingType.CAR, "AAA", in(HOUR), in(3 * HOUR)));
+        assertNotNull(reservationService.book(ParkingType.CAR, "BBB", in(2 * HOUR), in(4 * HOUR)));
+
+        //then a third one overlapping both is refused
+        assertFalse(reservationService.canBook(ParkingType.CAR, 1, in(2 * HOUR), in(5 * HOUR)));
+        assertNull(reservationService.book(ParkingType.CAR, "CCC", in(2 * HOUR), in(5 * HOUR)));
+        //but one overlapping only the first is accepted
+        assertTrue(reservationService.canBook(ParkingType.CAR, 1, in(0), in(2 * HOUR)));
+        assertFalse(reservationService.canBook(ParkingType.CAR, 2, in(0), in(2 * HOUR)));
+        //and one after both
+        assertTrue(reservationService.canBook(ParkingType.CAR, 2, in(4 * HOUR), in(6 * HOUR)));
+    }
+
+    @Test
+    public void failedSaveGivesCapacityBack() {
+        //given the reservation table is unavailable
+        when(reservationDAO.saveReservation(any(Reservation.class), anyInt())).thenReturn(false);
+
+        //when a booking is attempted
+        assertNull(reservationService.book(ParkingType.CAR, "AAA", in(HOUR), in(2 * HOUR)));
+
+        //then nothing is held
+        assertTrue(reservationService.canBook(ParkingType.CAR, 2, in(HOUR), in(2 * HOUR)));
+    }
+
+    @Test
+    public void bookingIsCheckedAgainByTheDatabase() {
+        //given another instance already booked both car spots, which this one does not know of
+        when(reservationDAO.saveReservation(any(Reservation.class), eq(2))).thenReturn(false);
+
+        //when a booking is attempted
+        assertNull(reservationService.book(ParkingType.CAR, "AAA", in(HOUR), in(2 * HOUR)));
+
+        //then the database refused it against the capacity, and nothing is held here
+        verify(reservationDAO).saveReservation(any(Reservation.class), eq(2));
+        assertTrue(reservationService.canBook(ParkingType.CAR, 2, in(HOUR), in(2 * HOUR)));
+    }
+
+    @Test
+    public void failedCancelKeepsTheBooking() {
+        //given the lot fully booked for the next hour
+        Reservation first = reservationService.book(ParkingType.CAR, "AAA", in(0), in(HOUR));
+        reservationService.book(ParkingType.CAR, "BBB", in(0), in(HOUR));
+        when(reservationDAO.updateReservationStatus(first)).thenReturn(false);
+
+        //when a cancellation cannot be saved
+        assertFalse(reservationService.cancel(first));
+
+        //then the reservation is still booked and counted
+        assertEquals(ReservationStatus.BOOKED, first.getStatus());
+        assertFalse(reservationService.canBook(ParkingType.CAR, 1, in(0), in(HOUR)));
+        assertEquals(2, reservationService.getHeld(ParkingType.CAR));
+        assertEquals(first, reservationService.findActive(ParkingType.CAR, "AAA"));
+
+        //and can be cancelled once the table is back
+        when(reservationDAO.updateReservationStatus(first)).thenReturn(true);
+        assertTrue(reservationService.cancel(first));
+        assertTrue(reservationService.canBook(ParkingType.CAR, 1, in(0), in(HOUR)));
+    }
+
+    @Test
+    public void checkInReleasesTheHeldSpot() {
+        //given a reservation which started
+        Reservation reservation = reservationService.book(ParkingType.CAR, "AAA", in(HOUR), in(3 * HOUR));
+        clock.setMillis(clock.millis() + 2 * HOUR);
+        assertEquals(1, reservationService.getHeld(ParkingType.CAR));
+        assertNull(reservationService.findActive(ParkingType.CAR, "BBB"));
+
+        //when the vehicle arrives
+        assertEquals(reservation, reservationService.findActive(ParkingType.CAR, "AAA"));
+        assertTrue(reservationService.checkIn(reservation));
+
+        //then its spot is no longer held, but still booked until the end of the reservation
+        assertEquals(ReservationStatus.USED, reservation.getStatus());
+        verify(reservationDAO).updateReservationStatus(reservation);
+        assertEquals(0, reservationService.getHeld(ParkingType.CAR));
+        assertNull(reservationService.findActive(ParkingType.CAR, "AAA"));
+        assertFalse(reservationService.canBook(ParkingType.CAR, 2, in(0), in(HOUR)));
+    }
+
+    @Test
+    public void endedAndCancelledReservationsFreeTheirBuckets() {
+        //given the lot fully booked for the next hour, then booked again far ahead
+        Reservation first = reservationService.book(ParkingType.CAR, "AAA", in(0), in(HOUR));
+        reservationService.book(ParkingType.CAR, "BBB", in(0), in(HOUR));
+        Reservation later = reservationService.book(ParkingType.CAR, "CCC", in(6 * 24 * HOUR), in(7 * 24 * HOUR));
+
+        //when one is cancelled, one seat is bookable again
+        assertTrue(reservationService.cancel(first));
+        assertEquals(ReservationStatus.CANCELLED, first.getStatus());
+        assertTrue(reservationService.canBook(ParkingType.CAR, 1, in(0), in(HOUR)));
+        assertFalse(reservationService.cancel(first));
+
+        //when every reservation has ended, buckets come round again and must start empty
+        clock.setMillis(clock.millis() + 7 * 24 * HOUR);
+        for(int day = 0; day < 14; day++){
+            clock.setMillis(clock.millis() + 24 * HOUR);
+            assertTrue(reservationService.canBook(ParkingType.CAR, 2, in(0), in(7 * 24 * HOUR)));
+        }
+        assertEquals(ReservationStatus.BOOKED, later.getStatus());
+    }
+
+    @Test
+    public void loadRestoresBookedAndHeldSpots() {
+        //given a booked and a used reservation running now in the reservation table
+        Reservation booked = reservation("AAA", ReservationStatus.BOOKED);
+        Reservation used = reservation("BBB", ReservationStatus.USED);
+        when(reservationDAO.getReservationsEndingAfter(any(Date.class))).thenReturn(Arrays.asList(booked, used));
+
+        //when the service is loaded
+        assertTrue(reservationService.load());
+
+        //then both are booked and only the first is held
+        assertFalse(reservationService.canBook(ParkingType.CAR, 1, in(0), in(HOUR)));
+        assertEquals(1, reservationService.getHeld(ParkingType.CAR));
+        assertEquals(booked, reservationService.findActive(ParkingType.CAR, "AAA"));
+    }
+
+    private Reservation reservation(String vehicleRegNumber, ReservationStatus status) {
+        Reservation reservation = new Reservation();
+        reservation.setId(vehicleRegNumber.hashCode());
+        reservation.setParkingType(ParkingType.CAR);
+        reservation.setVehicleRegNumber(vehicleRegNumber);
+        reservation.setStartTime(in(-HOUR));
+        reservation.setEndTime(in(2 * HOUR));
+        reservation.setStatus(status);
+        return reservation;
+    }
+
+    @Test
+    public void intervalsBeyondTheHorizonAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> reservationService.book(ParkingType.CAR, "AAA", in(HOUR), in(8 * 24 * HOUR)));
+        assertThrows(IllegalArgumentException.class, () -> reservationService.book(ParkingType.CAR, "AAA", in(2 * HOUR), in(HOUR)));
+    }
+
+    @Test
+    public void intervalCapacityIndexMatchesBucketCounts() {
+        //given an index and plain bucket counts with the same random intervals, wrapping around the ring
+        Random random = new Random(7);
+        int buckets = 100;
+        IntervalCapacityIndex index = new IntervalCapacityIndex(10, buckets);
+        int[] counts = new int[buckets];
+        long origin = 12345;
+        for(int i = 0; i < 2000; i++){
+            long from = origin + random.nextInt(buckets * 10);
+            long to = from + 1 + random.nextInt(buckets * 10 - 10);
+            int delta = random.nextBoolean() ? 1 : -1;
+            index.add(from, to, delta);
+            for(long bucket = Math.floorDiv(from, 10); bucket <= Math.floorDiv(to - 1, 10); bucket++){
+                counts[(int) Math.floorMod(bucket, (long) buckets)] += delta;
+            }
+
+            //then both agree on the maximum over any range
+            long queryFrom = origin + random.nextInt(buckets * 10);
+            long queryTo = queryFrom + 1 + random.nextInt(buckets * 10 - 10);
+            int expected = Integer.MIN_VALUE;
+            for(long bucket = Math.floorDiv(queryFrom, 10); bucket <= Math.floorDiv(queryTo - 1, 10); bucket++){
+                expected = Math.max(expected, counts[(int) Math.floorMod(bucket, (long) buckets)]);
+            }
+            assertEquals(expected, index.max(queryFrom, queryTo));
+        }
+    }
+}
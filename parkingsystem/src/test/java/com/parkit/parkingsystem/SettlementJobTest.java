@@ -0,0 +1,161 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.SettlementDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.SettlementCheckpoint;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.SettlementJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SettlementJobTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final Date AS_OF = new Date(100 * HOUR);
+
+    @Mock
+    private SettlementDAO settlementDAO;
+
+    private SettlementJob settlementJob;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        settlementJob = new SettlementJob(settlementDAO, new FareCalculatorService(), 2);
+        lenient().when(settlementDAO.settleChunk(anyList(), any(SettlementCheckpoint.class))).thenReturn(true);
+    }
+
+    private static Ticket openTicket(long id, ParkingType parkingType, long inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(new ParkingSpot((int) id, parkingType, false));
+        ticket.setVehicleRegNumber("REG" + id);
+        ticket.setInTime(new Date(inTime));
+        return ticket;
+    }
+
+    @Test
+    public void settlesOpenTicketsInChunks(){
+        //given
+        Ticket car = openTicket(1, ParkingType.CAR, AS_OF.getTime() - 2 * HOUR);
+        Ticket bike = openTicket(4, ParkingType.BIKE, AS_OF.getTime() - 3 * HOUR);
+        Ticket later = openTicket(7, ParkingType.CAR, AS_OF.getTime() + HOUR);
+        when(settlementDAO.getOpenTicketsAfter(0, 2)).thenReturn(Arrays.asList(car, bike));
+        when(settlementDAO.getOpenTicketsAfter(4, 2)).thenReturn(Collections.singletonList(later));
+
+        //when
+        SettlementCheckpoint checkpoint = settlementJob.run("shift-1", AS_OF);
+
+        //then
+        assertTrue(checkpoint.isFinished());
+        assertEquals(3, checkpoint.getSettled());
+        assertEquals(7, checkpoint.getLastTicketId());
+        assertEquals(2 * Fare.CAR_RATE_PER_HOUR, car.getPrice(), 0.001);
+        assertEquals(3 * Fare.BIKE_RATE_PER_HOUR, bike.getPrice(), 0.001);
+        assertEquals(0, later.getPrice());
+        //priced, not closed
+        assertNull(car.getOutTime());
+        verify(settlementDAO, times(2)).settleChunk(anyList(), any(SettlementCheckpoint.class));
+    }
+
+    @Test
+    public void writesTheCheckpointWithEachChunk(){
+        //given
+        when(settlementDAO.getOpenTicketsAfter(0, 2)).thenReturn(Arrays.asList(
+                openTicket(1, ParkingType.CAR, 0), openTicket(2, ParkingType.CAR, 0)));
+        when(settlementDAO.getOpenTicketsAfter(2, 2)).thenReturn(Collections.emptyList());
+        ArgumentCaptor<SettlementCheckpoint> checkpoints = ArgumentCaptor.forClass(SettlementCheckpoint.class);
+
+        //when
+        settlementJob.run("shift-1", AS_OF);
+
+        //then
+        verify(settlementDAO, times(2)).settleChunk(anyList(), checkpoints.capture());
+        List<SettlementCheckpoint> written = checkpoints.getAllValues();
+        assertEquals(2, written.get(0).getLastTicketId());
+        assertFalse(written.get(0).isFinished());
+        assertEquals(2, written.get(1).getSettled());
+        assertTrue(written.get(1).isFinished());
+    }
+
+    @Test
+    public void resumesAfterTheLastCommittedChunkWithItsAsOf(){
+        //given
+        SettlementCheckpoint saved = new SettlementCheckpoint();
+        saved.setJobId("shift-1");
+        saved.setAsOf(AS_OF);
+        saved.setLastTicketId(5);
+        saved.setSettled(2);
+        when(settlementDAO.getCheckpoint("shift-1")).thenReturn(saved);
+        Ticket ticket = openTicket(6, ParkingType.CAR, AS_OF.getTime() - HOUR);
+        when(settlementDAO.getOpenTicketsAfter(5, 2)).thenReturn(Collections.singletonList(ticket));
+
+        //when
+        SettlementCheckpoint checkpoint = settlementJob.run("shift-1", new Date(AS_OF.getTime() + 10 * HOUR));
+
+        //then
+        assertTrue(checkpoint.isFinished());
+        assertEquals(3, checkpoint.getSettled());
+        assertEquals(AS_OF, checkpoint.getAsOf());
+        assertEquals(Fare.CAR_RATE_PER_HOUR, ticket.getPrice(), 0.001);
+    }
+
+    @Test
+    public void finishedJobIsNotRunAgain(){
+        //given
+        SettlementCheckpoint saved = new SettlementCheckpoint();
+        saved.setJobId("shift-1");
+        saved.setAsOf(AS_OF);
+        saved.setFinished(true);
+        when(settlementDAO.getCheckpoint("shift-1")).thenReturn(saved);
+
+        //when
+        settlementJob.run("shift-1", AS_OF);
+
+        //then
+        verify(settlementDAO, never()).getOpenTicketsAfter(anyLong(), anyInt());
+    }
+
+    @Test
+    public void failedChunkStopsAtThePreviousCheckpoint(){
+        //given
+        when(settlementDAO.getOpenTicketsAfter(0, 2)).thenReturn(Arrays.asList(
+                openTicket(1, ParkingType.CAR, 0), openTicket(2, ParkingType.CAR, 0)));
+        when(settlementDAO.getOpenTicketsAfter(2, 2)).thenReturn(Collections.singletonList(openTicket(3, ParkingType.CAR, 0)));
+        when(settlementDAO.settleChunk(anyList(), any(SettlementCheckpoint.class))).thenReturn(true, false);
+
+        //when
+        SettlementCheckpoint checkpoint = settlementJob.run("shift-1", AS_OF);
+
+        //then
+        assertFalse(checkpoint.isFinished());
+        assertEquals(2, checkpoint.getLastTicketId());
+        assertEquals(2, checkpoint.getSettled());
+    }
+}
@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.simulation.SimulationEngine;
+import com.parkit.parkingsystem.simulation.SimulationReport;
+import com.parkit.parkingsystem.simulation.SyntheticArrivals;
+import com.parkit.parkingsystem.simulation.Visit;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SimulationEngineTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    //2024-01-01T00:00:00Z
+    private static final long START = 1704067200000L;
+
+    @Test
+    public void scriptedVisitsOnASingleSpot() {
+        //given one car spot and three cars, the second arriving while the first is still parked
+        SimulationEngine simulationEngine = new SimulationEngine(1, 0, new FareCalculatorService());
+
+        //when the visits are simulated
+        SimulationReport report = simulationEngine.run(Arrays.asList(
+                new Visit(START, ParkingType.CAR, "A", 2 * HOUR),
+                new Visit(START + HOUR, ParkingType.CAR, "B", HOUR),
+                new Visit(START + 3 * HOUR, ParkingType.CAR, "C", HOUR)).iterator());
+
+        //then the second car is turned away and the others pay their stay
+        assertEquals(3, report.getArrivals(ParkingType.CAR));
+        assertEquals(1, report.getRejections(ParkingType.CAR));
+        assertEquals(3 * 1.5, report.getRevenue(ParkingType.CAR), 0.01);
+        assertEquals(1, report.getPeakOccupancy(ParkingType.CAR));
+        assertEquals(0.75, report.getAverageOccupancy(ParkingType.CAR), 0.001);
+        assertEquals(4 * HOUR, report.getSimulatedMillis());
+    }
+
+    @Test
+    public void departureFreesTheSpotForAnArrivalAtTheSameTime() {
+        //given one car spot and a car arriving when the previous one leaves
+        SimulationEngine simulationEngine = new SimulationEngine(1, 0, new FareCalculatorService());
+
+        //when the visits are simulated
+        SimulationReport report = simulationEngine.run(Arrays.asList(
+                new Visit(START, ParkingType.CAR, "A", HOUR),
+                new Visit(START + HOUR, ParkingType.CAR, "B", HOUR)).iterator());
+
+        //then both are parked
+        assertEquals(0, report.getRejections(ParkingType.CAR));
+    }
+
+    @Test
+    public void recurringVehicleGetsTheDiscountAndTariffsApply() {
+        //given a tariff of 2 per hour for cars and the same car coming twice
+        FareCalculatorService fareCalculatorService = new FareCalculatorService(2, Fare.BIKE_RATE_PER_HOUR);
+        SimulationEngine simulationEngine = new SimulationEngine(1, 0, fareCalculatorService);
+
+        //when the visits are simulated
+        SimulationReport report = simulationEngine.run(Arrays.asList(
+                new Visit(START, ParkingType.CAR, "A", HOUR),
+                new Visit(START + 2 * HOUR, ParkingType.CAR, "A", HOUR)).iterator());
+
+        //then the second visit is discounted
+        assertEquals(2 + 2 * 0.95, report.getRevenue(ParkingType.CAR), 0.01);
+    }
+
+    @Test
+    public void monthOfSyntheticTrafficRunsQuickly() {
+        //given a month of traffic at 40 arrivals an hour staying 2 hours on average
+        long end = START + TimeUnit.DAYS.toMillis(30);
+
+        //when it is simulated on a large and a small lot
+        SimulationReport large = new SimulationEngine(150, 40, new FareCalculatorService())
+                .run(new SyntheticArrivals(START, end, SyntheticArrivals.flatRate(40), 120, 0.2, 500, 0.3, 1));
+        SimulationReport small = new SimulationEngine(40, 10, new FareCalculatorService())
+                .run(new SyntheticArrivals(START, end, SyntheticArrivals.flatRate(40), 120, 0.2, 500, 0.3, 1));
+
+        //then the same traffic is seen, the small lot turns more cars away and the run took seconds at most
+        assertEquals(large.getArrivals(ParkingType.CAR), small.getArrivals(ParkingType.CAR));
+        assertTrue(large.getArrivals(ParkingType.CAR) > 20000);
+        assertTrue(small.getRejectionRate(ParkingType.CAR) > large.getRejectionRate(ParkingType.CAR));
+        assertTrue(small.getPeakOccupancy(ParkingType.CAR) <= 40);
+        assertTrue(large.getWallMillis() < TimeUnit.SECONDS.toMillis(30));
+    }
+}
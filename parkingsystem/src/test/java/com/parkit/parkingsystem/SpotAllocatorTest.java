@@ -0,0 +1,167 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.SpotAllocationPolicy;
+import com.parkit.parkingsystem.service.SpotAllocator;
+import com.parkit.parkingsystem.util.FreeSpotTree;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class SpotAllocatorTest {
+
+    @Mock
+    private ParkingSpotCatalog parkingSpotCatalog;
+
+    private SpotAllocator spotAllocator;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        //cars: 1 to 3 in zone A level 0, 4 to 6 in zone B level 1; bikes: 7 to 10 in zone A level 0
+        lenient().when(parkingSpotCatalog.getMaxParkingNumber()).thenReturn(10);
+        lenient().when(parkingSpotCatalog.getParkingType(anyInt())).thenAnswer(invocation -> {
+            int parkingNumber = invocation.getArgument(0);
+            if(parkingNumber < 1){
+                return ParkingType.UNKNOWN;
+            }
+            return (parkingNumber <= 6) ? ParkingType.CAR : ParkingType.BIKE;
+        });
+        lenient().when(parkingSpotCatalog.getZone(anyInt())).thenAnswer(invocation -> {
+            int parkingNumber = invocation.getArgument(0);
+            return (parkingNumber >= 4 && parkingNumber <= 6) ? "B" : "A";
+        });
+        lenient().when(parkingSpotCatalog.getLevel(anyInt())).thenAnswer(invocation -> {
+            int parkingNumber = invocation.getArgument(0);
+            return (parkingNumber >= 4 && parkingNumber <= 6) ? 1 : 0;
+        });
+        spotAllocator = new SpotAllocator(parkingSpotCatalog);
+    }
+
+    @Test
+    public void loadIndexesSpotsPerTypeAndZone() {
+        //given spots 1 and 7 occupied
+        spotAllocator.load(new int[]{1, 7});
+
+        //then
+        assertEquals(Arrays.asList("A", "B"), spotAllocator.getZones(ParkingType.CAR));
+        assertEquals(2, spotAllocator.getFreeCount(ParkingType.CAR, "A"));
+        assertEquals(3, spotAllocator.getFreeCount(ParkingType.CAR, "B"));
+        assertEquals(5, spotAllocator.getFreeCount(ParkingType.CAR));
+        assertEquals(3, spotAllocator.getFreeCount(ParkingType.BIKE));
+        assertEquals(2, spotAllocator.getLowestFree(ParkingType.CAR));
+        assertEquals(8, spotAllocator.getLowestFree(ParkingType.BIKE));
+        assertEquals("B", spotAllocator.getZone(5));
+        assertEquals(1, spotAllocator.getLevel(5));
+    }
+
+    @Test
+    public void nearestFreeSpotToEntrance() {
+        //given spot 5 occupied
+        spotAllocator.load(new int[]{5});
+
+        //then the entrance at spot 5 gets the lower of its two neighbours
+        assertEquals(4, spotAllocator.choose(ParkingType.CAR, SpotAllocationPolicy.nearestTo(5)));
+
+        //when 4 is taken too, the next one up is nearer than 3
+        spotAllocator.claim(new ParkingSpot(4, ParkingType.CAR, false));
+        assertEquals(6, spotAllocator.choose(ParkingType.CAR, SpotAllocationPolicy.nearestTo(5)));
+        //and an entrance past the last car spot gets the highest free one
+        assertEquals(6, spotAllocator.getNearestFree(ParkingType.CAR, 100));
+        assertEquals(3, spotAllocator.getNearestFree(ParkingType.CAR, "A", 5));
+    }
+
+    @Test
+    public void leastLoadedZoneSpreadsVehicles() {
+        //given one car already in zone A
+        spotAllocator.load(new int[]{1});
+        SpotAllocationPolicy policy = SpotAllocationPolicy.leastLoadedZone();
+
+        //then the next car goes to zone B
+        assertEquals("B", spotAllocator.getLeastLoadedZone(ParkingType.CAR));
+        assertEquals(4, spotAllocator.choose(ParkingType.CAR, policy));
+
+        //when zone B holds two cars, zone A is the emptier one again
+        spotAllocator.claim(new ParkingSpot(4, ParkingType.CAR, false));
+        spotAllocator.claim(new ParkingSpot(5, ParkingType.CAR, false));
+        assertEquals(2, spotAllocator.choose(ParkingType.CAR, policy));
+    }
+
+    @Test
+    public void claimAndReleaseAreIdempotent() {
+        //given an empty lot
+        spotAllocator.load(new int[0]);
+        ParkingSpot parkingSpot = new ParkingSpot(2, ParkingType.CAR, false);
+
+        //when a spot is claimed twice then released twice
+        spotAllocator.claim(parkingSpot);
+        spotAllocator.claim(parkingSpot);
+        assertEquals(5, spotAllocator.getFreeCount(ParkingType.CAR));
+        spotAllocator.release(parkingSpot);
+        spotAllocator.release(parkingSpot);
+
+        //then it was counted once
+        assertEquals(6, spotAllocator.getFreeCount(ParkingType.CAR));
+        assertEquals(3, spotAllocator.getFreeCount(ParkingType.CAR, "A"));
+    }
+
+    @Test
+    public void fullTypeOrUnloadedAllocatorChoosesNothing() {
+        //given an allocator which is not loaded
+        assertEquals(0, spotAllocator.choose(ParkingType.CAR, SpotAllocationPolicy.lowestNumber()));
+
+        //when every bike spot is occupied
+        spotAllocator.load(new int[]{7, 8, 9, 10});
+
+        //then no bike spot is chosen by any policy
+        assertEquals(0, spotAllocator.choose(ParkingType.BIKE, SpotAllocationPolicy.lowestNumber()));
+        assertEquals(0, spotAllocator.choose(ParkingType.BIKE, SpotAllocationPolicy.nearestTo(8)));
+        assertEquals(0, spotAllocator.choose(ParkingType.BIKE, SpotAllocationPolicy.leastLoadedZone()));
+        assertNull(spotAllocator.getLeastLoadedZone(ParkingType.BIKE));
+    }
+
+    @Test
+    public void freeSpotTreeMatchesLinearScan() {
+        //given a tree and a plain array with the same random updates
+        Random random = new Random(42);
+        int size = 1000;
+        FreeSpotTree tree = new FreeSpotTree(size);
+        boolean[] free = new boolean[size];
+        for(int i = 0; i < 5000; i++){
+            int position = random.nextInt(size);
+            boolean isFree = random.nextInt(10) == 0;
+            tree.setFree(position, isFree);
+            free[position] = isFree;
+
+            //then both agree on the neighbours of any position
+            int from = random.nextInt(size);
+            int expectedFirst = -1;
+            for(int p = from; p < size && expectedFirst < 0; p++){
+                expectedFirst = free[p] ? p : -1;
+            }
+            int expectedLast = -1;
+            for(int p = from; p >= 0 && expectedLast < 0; p--){
+                expectedLast = free[p] ? p : -1;
+            }
+            assertEquals(expectedFirst, tree.firstFreeFrom(from));
+            assertEquals(expectedLast, tree.lastFreeUpTo(from));
+        }
+        int expectedCount = 0;
+        for(boolean isFree : free){
+            expectedCount += isFree ? 1 : 0;
+        }
+        assertEquals(expectedCount, tree.freeCount());
+    }
+}
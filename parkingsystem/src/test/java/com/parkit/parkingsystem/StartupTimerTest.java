@@ -0,0 +1,42 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.monitoring.StartupTimer;
+import com.parkit.parkingsystem.simulation.VirtualClock;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StartupTimerTest {
+
+    @Test
+    public void measuresTheFirstVehicleFromTheJvmStart(){
+        //given
+        VirtualClock clock = new VirtualClock(1000);
+        StartupTimer startupTimer = new StartupTimer(1000, clock);
+        clock.setMillis(1800);
+        startupTimer.gateOpened(true);
+
+        //when
+        clock.setMillis(5000);
+        startupTimer.vehicleEntered();
+        clock.setMillis(6000);
+        startupTimer.vehicleEntered();
+
+        //then
+        assertEquals(800, startupTimer.getGateOpenMillis());
+        assertEquals(4000, startupTimer.getFirstVehicleMillis());
+    }
+
+    @Test
+    public void ignoresVehiclesBeforeTheGateOpened(){
+        //given
+        VirtualClock clock = new VirtualClock(1000);
+        StartupTimer startupTimer = new StartupTimer(1000, clock);
+
+        //when
+        startupTimer.vehicleEntered();
+
+        //then
+        assertEquals(-1, startupTimer.getFirstVehicleMillis());
+    }
+}
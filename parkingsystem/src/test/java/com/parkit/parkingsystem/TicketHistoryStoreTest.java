@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.service.TicketHistoryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TicketHistoryStoreTest {
+
+    private TicketHistoryStore store;
+    private long hourInMillis = 60 * 60 * 1000;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        //given a history of 3 car tickets for 2 vehicles, 1 bike ticket and 1 open ticket
+        store = new TicketHistoryStore();
+        store.add(1, "ABCDEF", ParkingType.CAR, 1.5, 0, hourInMillis);
+        store.add(2, "ABCDEF", ParkingType.CAR, 3, 2 * hourInMillis, 4 * hourInMillis);
+        store.add(3, "GHIJKL", ParkingType.CAR, 1.5, 3 * hourInMillis, 4 * hourInMillis);
+        store.add(4, "MNOPQR", ParkingType.BIKE, 1, 3 * hourInMillis, 4 * hourInMillis);
+        store.add(5, "MNOPQR", ParkingType.BIKE, 0, 5 * hourInMillis, TicketHistoryStore.NO_OUT_TIME);
+    }
+
+    @Test
+    public void storeEncodesTicketColumns(){
+        //when the rows are read back
+        //then plates are deduplicated and every column is preserved
+        assertEquals(5, store.size());
+        assertEquals(3, store.getNbVehicles());
+        assertEquals("GHIJKL", store.getVehicleRegNumber(2));
+        assertEquals(ParkingType.BIKE, store.getParkingType(3));
+        assertEquals(4, store.getParkingNumber(3));
+        assertEquals(TicketHistoryStore.NO_OUT_TIME, store.getOutTime(4));
+    }
+
+    @Test
+    public void revenueByType(){
+        //when the revenue per type is aggregated
+        //then only closed tickets of the type are summed
+        assertEquals(6, store.revenue(store.ofType(ParkingType.CAR)));
+        assertEquals(1, store.revenue(store.ofType(ParkingType.BIKE)));
+        assertEquals(3, store.count(store.ofType(ParkingType.CAR)));
+    }
+
+    @Test
+    public void revenueByHour(){
+        //when the revenue is grouped by hour of exit
+        double[] revenueByHour = store.revenueByHour(store.all(), ZoneOffset.UTC);
+
+        //then each exit hour gets the revenue of its tickets
+        assertEquals(1.5, revenueByHour[1]);
+        assertEquals(5.5, revenueByHour[4]);
+        assertEquals(0, revenueByHour[5]);
+    }
+
+    @Test
+    public void repeatVisitRate(){
+        //when the repeat visit rate is computed
+        //then 2 of the 3 vehicles came back
+        assertEquals(2.0 / 3, store.repeatVisitRate(store.all()), 0.0001);
+        assertEquals(0.5, store.repeatVisitRate(store.ofType(ParkingType.CAR)), 0.0001);
+    }
+
+    @Test
+    public void averageStayForVehicle(){
+        //when the average stay of a vehicle is computed
+        //then it is averaged over its closed tickets
+        assertEquals(90, store.averageStayMinutes(store.vehicle("ABCDEF")), 0.0001);
+        assertEquals(0, store.averageStayMinutes(store.vehicle("UNKNOWN")));
+    }
+
+    @Test
+    public void addAfterEmptyLoad(){
+        //given a store loaded from a period without tickets, trimmed to no capacity
+        TicketHistoryDAO ticketHistoryDAO = mock(TicketHistoryDAO.class);
+        when(ticketHistoryDAO.streamTickets(any(Date.class), any(Date.class), any(TicketHistoryDAO.TicketRowHandler.class))).thenReturn(true);
+        TicketHistoryStore emptyStore = TicketHistoryStore.load(ticketHistoryDAO, new Date(0), new Date(hourInMillis));
+
+        //when a ticket is added to it
+        emptyStore.add(1, "ABCDEF", ParkingType.CAR, 1.5, 0, hourInMillis);
+
+        //then the store grows again
+        assertEquals(1, emptyStore.size());
+        assertEquals("ABCDEF", emptyStore.getVehicleRegNumber(0));
+    }
+}
@@ -0,0 +1,72 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.TicketIdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TicketIdGeneratorTest {
+
+    private long now = TicketIdGenerator.EPOCH + 1000;
+
+    @Test
+    public void idsEncodeTimeAndNode(){
+        //given a generator for node 5
+        TicketIdGenerator ticketIdGenerator = new TicketIdGenerator(5, () -> now);
+
+        //when an id is generated
+        long id = ticketIdGenerator.nextId();
+
+        //then the time and the node can be read back from the id
+        assertEquals(now, TicketIdGenerator.getTimestamp(id));
+        assertEquals(5, TicketIdGenerator.getNodeId(id));
+    }
+
+    @Test
+    public void idsAreUniqueAndOrdered(){
+        //given a clock ticking every 10000 ids, which overflows the sequence
+        AtomicLong calls = new AtomicLong();
+        TicketIdGenerator ticketIdGenerator = new TicketIdGenerator(1, () -> now + calls.incrementAndGet() / 10000);
+
+        //when many ids are generated
+        Set<Long> ids = new HashSet<>();
+        long previous = 0;
+        for(int i = 0; i < 20000; i++){
+            long id = ticketIdGenerator.nextId();
+            //then each id is greater than the previous one
+            assertTrue(id > previous);
+            previous = id;
+            ids.add(id);
+        }
+        assertEquals(20000, ids.size());
+    }
+
+    @Test
+    public void idsStayOrderedWhenClockGoesBack(){
+        //given a clock going back in time
+        AtomicLong clock = new AtomicLong(now);
+        TicketIdGenerator ticketIdGenerator = new TicketIdGenerator(1, clock::get);
+        long first = ticketIdGenerator.nextId();
+
+        //when the next id is generated
+        clock.set(now - 10);
+        long second = ticketIdGenerator.nextId();
+
+        //then it is still greater than the previous one
+        assertTrue(second > first);
+    }
+
+    @Test
+    public void invalidNodeId(){
+        //given a node id which does not fit in 10 bits
+        //when the generator is created
+        //then an IllegalArgumentException is thrown
+        assertThrows(IllegalArgumentException.class, () -> new TicketIdGenerator(TicketIdGenerator.MAX_NODE_ID + 1, () -> now));
+    }
+}
@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.util.TicketRecordEncoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TicketRecordEncoderTest {
+
+    private ByteBuffer buffer;
+
+    //2023-03-14 15:09:26 UTC
+    private long inTime = 1678806566000L;
+    private long hourInMillis = 60 * 60 * 1000;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        buffer = ByteBuffer.allocateDirect(1024);
+    }
+
+    private String readAscii() {
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void encodeClosedTicketAsCsv(){
+        //given a closed car ticket
+        //when it is encoded as csv
+        TicketRecordEncoder.putCsv(buffer, 42, 3, ParkingType.CAR, "ABCDEF", 1.5, inTime, inTime + hourInMillis);
+
+        //then the row holds every column with utc date times
+        assertEquals("42,3,CAR,ABCDEF,1.50,2023-03-14 15:09:26,2023-03-14 16:09:26\n", readAscii());
+    }
+
+    @Test
+    public void encodeOpenTicketAsCsv(){
+        //given an open bike ticket with a comma in the registration number
+        //when it is encoded as csv
+        TicketRecordEncoder.putCsv(buffer, 7, 4, ParkingType.BIKE, "AB,12", 0, 0, TicketRecordEncoder.NO_OUT_TIME);
+
+        //then the registration number is quoted and the out time is empty
+        assertEquals("7,4,BIKE,\"AB,12\",0.00,1970-01-01 00:00:00,\n", readAscii());
+    }
+
+    @Test
+    public void encodeTicketAsBinary(){
+        //given a closed car ticket
+        //when it is encoded as a binary record
+        TicketRecordEncoder.putBinary(buffer, 42, 3, ParkingType.CAR, "ABCDEF", 1.5, inTime, inTime + hourInMillis);
+        buffer.flip();
+
+        //then the record is prefixed with its length and fields can be read back
+        assertEquals(buffer.limit() - 2, buffer.getShort());
+        assertEquals(42, buffer.getLong());
+        assertEquals(3, buffer.getInt());
+        assertEquals(ParkingType.CAR.ordinal(), buffer.get());
+        assertEquals(inTime, buffer.getLong());
+        assertEquals(inTime + hourInMillis, buffer.getLong());
+        assertEquals(1.5, buffer.getDouble());
+        assertEquals(6, buffer.get());
+    }
+}
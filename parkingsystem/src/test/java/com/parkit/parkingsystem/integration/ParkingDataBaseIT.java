@@ -1,17 +1,23 @@
 package com.parkit.parkingsystem.integration;
 
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotCatalog;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.TicketSummary;
 import com.parkit.parkingsystem.service.ParkingService;
 import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ReservationService;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import java.time.Clock;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -23,6 +29,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +40,8 @@ public class ParkingDataBaseIT {
     private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
     private static ParkingSpotDAO parkingSpotDAO;
     private static TicketDAO ticketDAO;
+    private static ParkingSpotDAO lot2ParkingSpotDAO;
+    private static TicketDAO lot2TicketDAO;
     private static DataBasePrepareService dataBasePrepareService;
 
     private long hourInMillis = 60 * 60 * 1000;
@@ -45,6 +56,16 @@ public class ParkingDataBaseIT {
         parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
         ticketDAO = new TicketDAO();
         ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        ticketDAO.parkingSpotCatalog = new ParkingSpotCatalog();
+        ticketDAO.parkingSpotCatalog.dataBaseConfig = dataBaseTestConfig;
+        lot2ParkingSpotDAO = new ParkingSpotDAO();
+        lot2ParkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        lot2ParkingSpotDAO.lotId = 2;
+        lot2TicketDAO = new TicketDAO();
+        lot2TicketDAO.dataBaseConfig = dataBaseTestConfig;
+        lot2TicketDAO.lotId = 2;
+        lot2TicketDAO.parkingSpotCatalog = new ParkingSpotCatalog(2);
+        lot2TicketDAO.parkingSpotCatalog.dataBaseConfig = dataBaseTestConfig;
         dataBasePrepareService = new DataBasePrepareService();
     }
 
@@ -54,6 +75,7 @@ public class ParkingDataBaseIT {
         lenient().when(inputReaderUtil.readSelection()).thenReturn(1); //when asked a vehicle type, user chooses "car"
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(vehicleRegNumber);
         dataBasePrepareService.clearDataBaseEntries();
+        dataBasePrepareService.addLot(2);
     }
 
     @AfterAll
@@ -151,4 +173,134 @@ public class ParkingDataBaseIT {
         they should not be different by more than a cent */
     }
 
+    @Test
+    public void testSaveTicketReturnsGeneratedId(){
+        //given a new ticket
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR,false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+
+        //when the ticket is saved
+        assertTrue(ticketDAO.saveTicket(ticket));
+
+        //then it holds the generated id and can be read back by primary key
+        assertTrue(ticket.getId() > 0);
+        assertEquals(vehicleRegNumber, ticketDAO.getTicket(ticket.getId()).getVehicleRegNumber());
+    }
+
+    @Test
+    public void testTicketHistoryPagesByKeyset(){
+        //given five tickets, two of them entering at the same time
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        long[] inTimes = {now - 4 * hourInMillis, now - 3 * hourInMillis, now - 2 * hourInMillis, now - 2 * hourInMillis, now - hourInMillis};
+        for(long inTime : inTimes){
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR,false));
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setInTime(new Date(inTime));
+            ticket.setOutTime(new Date(inTime + hourInMillis / 2));
+            assertTrue(ticketDAO.saveTicket(ticket));
+        }
+
+        //when the history is read two tickets at a time
+        List<TicketSummary> first = ticketDAO.getTicketHistory(vehicleRegNumber, null, 2);
+        List<TicketSummary> second = ticketDAO.getTicketHistory(vehicleRegNumber, first.get(1), 2);
+        List<TicketSummary> third = ticketDAO.getTicketHistory(vehicleRegNumber, second.get(1), 2);
+
+        //then every ticket comes once, newest first
+        assertEquals(2, first.size());
+        assertEquals(2, second.size());
+        assertEquals(1, third.size());
+        assertEquals(now - hourInMillis, first.get(0).getInTime().getTime());
+        assertEquals(first.get(1).getInTime(), second.get(0).getInTime());
+        assertTrue(first.get(1).getId() > second.get(0).getId());
+        assertEquals(now - 4 * hourInMillis, third.get(0).getInTime().getTime());
+    }
+
+    @Test
+    public void testTicketsOfAnotherLotAreNotSeen(){
+        //given a ticket of the vehicle in the default lot
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR,false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(System.currentTimeMillis() - hourInMillis));
+        assertTrue(ticketDAO.saveTicket(ticket));
+
+        //when lot 2 looks it up by plate, by id and in the history
+        //then lot 2 knows nothing of it
+        assertNull(lot2TicketDAO.getTicket(vehicleRegNumber));
+        assertNull(lot2TicketDAO.getTicket(ticket.getId()));
+        assertEquals(0, lot2TicketDAO.getNbTicket(vehicleRegNumber));
+        assertTrue(lot2TicketDAO.getTicketHistory(vehicleRegNumber, null, 10).isEmpty());
+        assertEquals(1, ticketDAO.getNbTicket(vehicleRegNumber));
+    }
+
+    @Test
+    public void testSpotsOfAnotherLotAreNotTaken(){
+        //given spot 1 is taken in lot 2
+        assertTrue(lot2ParkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR,false)));
+
+        //when each lot looks for a car spot
+        //then the default lot still has its spot 1, lot 2 goes on to its spot 2
+        assertEquals(1, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(2, lot2ParkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void testParkingACarInAnotherLot(){
+        //given the vehicle has already parked in the default lot
+        Ticket firstTicket = new Ticket();
+        firstTicket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR,false));
+        firstTicket.setVehicleRegNumber(vehicleRegNumber);
+        firstTicket.setInTime(new Date(System.currentTimeMillis() - 3 * hourInMillis));
+        firstTicket.setOutTime(new Date(System.currentTimeMillis() - 2 * hourInMillis));
+        assertTrue(ticketDAO.saveTicket(firstTicket));
+        ParkingService parkingService = new ParkingService(inputReaderUtil, lot2ParkingSpotDAO, lot2TicketDAO);
+
+        //when it enters lot 2
+        try{
+            parkingService.processIncomingVehicle();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        //then the ticket and the taken spot are lot 2's, and visits are counted per lot: no recurring discount yet
+        Ticket ticket = lot2TicketDAO.getTicket(vehicleRegNumber);
+        assertEquals(1, ticket.getParkingSpot().getId());
+        assertFalse(ticket.isDiscount());
+        assertEquals(1, ticketDAO.getNbTicket(vehicleRegNumber));
+        assertEquals(2, lot2ParkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(1, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void testBookingsOfAllInstancesShareTheCapacity(){
+        //given two instances of the default lot, each with its own reservation service
+        ReservationService firstInstance = newReservationService();
+        ReservationService secondInstance = newReservationService();
+        //whole seconds, as DATETIME keeps them
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        Date startTime = new Date(now + hourInMillis);
+        Date endTime = new Date(now + 3 * hourInMillis);
+
+        //when the first one books both bike spots
+        assertNotNull(firstInstance.book(ParkingType.BIKE, "AAA", startTime, endTime));
+        assertNotNull(firstInstance.book(ParkingType.BIKE, "BBB", startTime, endTime));
+
+        //then the second one cannot book a third over the same hours, though it has not seen those bookings
+        assertTrue(secondInstance.canBook(ParkingType.BIKE, 1, startTime, endTime));
+        assertNull(secondInstance.book(ParkingType.BIKE, "CCC", startTime, endTime));
+        //but can once they are over
+        assertNotNull(secondInstance.book(ParkingType.BIKE, "CCC", endTime, new Date(endTime.getTime() + hourInMillis)));
+    }
+
+    private ReservationService newReservationService(){
+        ReservationDAO reservationDAO = new ReservationDAO();
+        reservationDAO.dataBaseConfig = dataBaseTestConfig;
+        ParkingSpotCatalog parkingSpotCatalog = new ParkingSpotCatalog();
+        parkingSpotCatalog.dataBaseConfig = dataBaseTestConfig;
+        return new ReservationService(reservationDAO, parkingSpotCatalog, Clock.systemUTC());
+    }
+
 }
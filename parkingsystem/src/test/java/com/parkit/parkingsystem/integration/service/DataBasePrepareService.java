@@ -3,6 +3,7 @@ package com.parkit.parkingsystem.integration.service;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 
 public class DataBasePrepareService {
 
@@ -19,6 +20,15 @@ public class DataBasePrepareService {
             //clear ticket entries;
             connection.prepareStatement("truncate table ticket").execute();
 
+            //clear reservations, the change log and settlement checkpoints
+            connection.prepareStatement("truncate table reservation").execute();
+            connection.prepareStatement("truncate table reservation_lock").execute();
+            connection.prepareStatement("truncate table change_log").execute();
+            connection.prepareStatement("truncate table settlement_checkpoint").execute();
+
+            //drop the spots of the lots added by tests, only the default lot is in the schema script
+            connection.prepareStatement("delete from parking where LOT_ID <> 1").execute();
+
         }catch(Exception e){
             e.printStackTrace();
         }finally {
@@ -26,5 +36,22 @@ public class DataBasePrepareService {
         }
     }
 
-
+    //a lot laid out as the default one: spots 1 to 3 for cars, 4 and 5 for bikes, all available
+    public void addLot(int lotId){
+        Connection connection = null;
+        try{
+            connection = dataBaseTestConfig.getConnection();
+            PreparedStatement ps = connection.prepareStatement("insert into parking(LOT_ID, PARKING_NUMBER, AVAILABLE, TYPE) values(?,?,true,?)");
+            for(int parkingNumber = 1; parkingNumber <= 5; parkingNumber++){
+                ps.setInt(1, lotId);
+                ps.setInt(2, parkingNumber);
+                ps.setString(3, (parkingNumber <= 3) ? "CAR" : "BIKE");
+                ps.execute();
+            }
+        }catch(Exception e){
+            e.printStackTrace();
+        }finally {
+            dataBaseTestConfig.closeConnection(connection);
+        }
+    }
 }